@@ -32,6 +32,7 @@
 package eu.carrade.amaury.UHCReloaded;
 
 import eu.carrade.amaury.UHCReloaded.borders.BorderManager;
+import eu.carrade.amaury.UHCReloaded.borders.ChunksTrimmer;
 import eu.carrade.amaury.UHCReloaded.commands.UHCommandExecutor;
 import eu.carrade.amaury.UHCReloaded.game.UHGameManager;
 import eu.carrade.amaury.UHCReloaded.integration.UHDynmapIntegration;
@@ -42,13 +43,21 @@ import eu.carrade.amaury.UHCReloaded.listeners.BeforeGameListener;
 import eu.carrade.amaury.UHCReloaded.listeners.CraftingListener;
 import eu.carrade.amaury.UHCReloaded.listeners.GameListener;
 import eu.carrade.amaury.UHCReloaded.listeners.GameplayListener;
+import eu.carrade.amaury.UHCReloaded.listeners.MovementListener;
 import eu.carrade.amaury.UHCReloaded.listeners.SpawnsListener;
+import eu.carrade.amaury.UHCReloaded.listeners.TeamsListener;
 import eu.carrade.amaury.UHCReloaded.misc.Freezer;
 import eu.carrade.amaury.UHCReloaded.misc.MOTDManager;
 import eu.carrade.amaury.UHCReloaded.misc.OfflinePlayersLoader;
 import eu.carrade.amaury.UHCReloaded.misc.PlayerListHeaderFooterManager;
 import eu.carrade.amaury.UHCReloaded.misc.RulesManager;
 import eu.carrade.amaury.UHCReloaded.misc.RuntimeCommandsExecutor;
+import eu.carrade.amaury.UHCReloaded.protips.ProTips;
+import eu.carrade.amaury.UHCReloaded.movement.MovementDispatcher;
+import eu.carrade.amaury.UHCReloaded.movement.PlayersSpatialHash;
+import eu.carrade.amaury.UHCReloaded.movement.PlayersSpatialHashListener;
+import eu.carrade.amaury.UHCReloaded.movement.ProximityEngine;
+import eu.carrade.amaury.UHCReloaded.movement.ProximityListener;
 import eu.carrade.amaury.UHCReloaded.recipes.RecipesManager;
 import eu.carrade.amaury.UHCReloaded.scoreboard.ScoreboardManager;
 import eu.carrade.amaury.UHCReloaded.spawns.SpawnsManager;
@@ -57,21 +66,26 @@ import eu.carrade.amaury.UHCReloaded.task.UpdateTimerTask;
 import eu.carrade.amaury.UHCReloaded.teams.TeamChatManager;
 import eu.carrade.amaury.UHCReloaded.teams.TeamManager;
 import eu.carrade.amaury.UHCReloaded.timers.TimerManager;
+import eu.carrade.amaury.UHCReloaded.utils.I18nTemplates;
 import fr.zcraft.zlib.components.gui.Gui;
 import fr.zcraft.zlib.components.i18n.I;
 import fr.zcraft.zlib.components.i18n.I18n;
 import fr.zcraft.zlib.components.scoreboard.SidebarScoreboard;
 import fr.zcraft.zlib.core.ZLib;
 import fr.zcraft.zlib.core.ZPlugin;
+import fr.zcraft.zlib.tools.PluginLogger;
 import org.bukkit.entity.Player;
 
 import java.util.Locale;
+import java.util.Set;
 
 
 public class UHCReloaded extends ZPlugin
 {
     private static UHCReloaded instance;
 
+    private volatile UHConfigSnapshot configSnapshot = null;
+
     private TeamManager teamManager = null;
     private SpawnsManager spawnsManager = null;
     private UHGameManager gameManager = null;
@@ -88,6 +102,9 @@ public class UHCReloaded extends ZPlugin
     private RuntimeCommandsExecutor runtimeCommandsExecutor = null;
 
     private Freezer freezer = null;
+    private MovementDispatcher movementDispatcher = null;
+    private PlayersSpatialHash playersSpatialHash = null;
+    private ProximityEngine proximityEngine = null;
 
     private UHWorldBorderIntegration wbintegration = null;
     private UHSpectatorPlusIntegration spintegration = null;
@@ -95,6 +112,13 @@ public class UHCReloaded extends ZPlugin
     private UHProtocolLibIntegrationWrapper protocollibintegrationwrapper = null;
 
 
+    @Override
+    public void onLoad()
+    {
+        // Called before the worlds are loaded, so the regions files are not in use.
+        ChunksTrimmer.deletePendingRegions(getDataFolder());
+    }
+
     @Override
     public void onEnable()
     {
@@ -104,6 +128,8 @@ public class UHCReloaded extends ZPlugin
 
         loadComponents(SidebarScoreboard.class, Gui.class, I18n.class, UHConfig.class, OfflinePlayersLoader.class);
 
+        configSnapshot = new UHConfigSnapshot(getConfig());
+
         final String langInConfig = UHConfig.LANG.get();
         if (langInConfig == null || langInConfig.isEmpty())
         {
@@ -118,6 +144,8 @@ public class UHCReloaded extends ZPlugin
 
         I18n.setFallbackLocale(Locale.US);
 
+        OfflinePlayersLoader.loadNamesCache();
+
 
         wbintegration = new UHWorldBorderIntegration();
         spintegration = new UHSpectatorPlusIntegration();
@@ -139,6 +167,9 @@ public class UHCReloaded extends ZPlugin
 
         runtimeCommandsExecutor = new RuntimeCommandsExecutor();
 
+        movementDispatcher = new MovementDispatcher();
+        playersSpatialHash = new PlayersSpatialHash();
+        proximityEngine = new ProximityEngine();
         freezer = new Freezer(this);
 
         scoreboardManager = new ScoreboardManager(this);
@@ -158,6 +189,10 @@ public class UHCReloaded extends ZPlugin
         ZLib.registerEvents(new CraftingListener(this));
         ZLib.registerEvents(new SpawnsListener());
         ZLib.registerEvents(new BeforeGameListener());
+        ZLib.registerEvents(new MovementListener());
+        ZLib.registerEvents(new PlayersSpatialHashListener(playersSpatialHash));
+        ZLib.registerEvents(new ProximityListener(proximityEngine));
+        ZLib.registerEvents(new TeamsListener());
 
         // The freezer listener is registered by the freezer when it is needed.
 
@@ -170,6 +205,8 @@ public class UHCReloaded extends ZPlugin
         for (Player player : getServer().getOnlinePlayers())
         {
             gameManager.initPlayer(player);
+            movementDispatcher.track(player);
+            playersSpatialHash.update(player);
         }
 
         // Imports spawnpoints from the config.
@@ -181,7 +218,11 @@ public class UHCReloaded extends ZPlugin
         // Starts the task that updates the timers.
         // Started here, so a timer can be displayed before the start of the game
         // (example: countdown before the start).
-        new UpdateTimerTask().runTaskTimer(this, 20L, 20L);
+        // Runs every tick, so the timers end on time; only the timers that are up are processed.
+        new UpdateTimerTask().runTaskTimer(this, 1L, 1L);
+
+        // Resumes the game running before a restart, if any, with its timers.
+        timerManager.restoreTimers();
 
         // Schedule commands
         runtimeCommandsExecutor.registerCommandsInScheduler(RuntimeCommandsExecutor.AFTER_SERVER_START);
@@ -189,6 +230,75 @@ public class UHCReloaded extends ZPlugin
         getLogger().info(I.t("Ultra Hardcore plugin loaded."));
     }
 
+    @Override
+    public void onDisable()
+    {
+        if (timerManager != null)
+            timerManager.saveTimers(true);
+
+        if (borderManager != null)
+            borderManager.getChunksTrimmer().savePendingDeletions(getDataFolder());
+
+        OfflinePlayersLoader.saveNamesCache();
+
+        super.onDisable();
+    }
+
+    /**
+     * Reloads the configuration file, publishes a new configuration snapshot, and notifies the
+     * managers whose settings changed. Must be called from the main thread.
+     *
+     * <p>Some settings are only read at startup; see {@link UHConfigSnapshot#requiresRestart(String)}.</p>
+     *
+     * @return The keys whose values changed.
+     */
+    public Set<String> reloadConfiguration()
+    {
+        reloadConfig();
+
+        final UHConfigSnapshot previous = configSnapshot;
+        final UHConfigSnapshot current = new UHConfigSnapshot(getConfig());
+
+        configSnapshot = current;
+
+        // The templates may embed colors or values from the configuration.
+        I18nTemplates.clear();
+
+        final Set<String> changed = current.getChangedKeys(previous);
+        if (changed.isEmpty())
+            return changed;
+
+        if (UHConfigSnapshot.isChanged(changed, "map.border.warningInterval"))
+            borderManager.onConfigurationReloaded();
+
+        if (UHConfigSnapshot.isChanged(changed, "episodes.length"))
+            timerManager.onConfigurationReloaded(current);
+
+        if (UHConfigSnapshot.isChanged(changed, "scoreboard") || UHConfigSnapshot.isChanged(changed, "episodes.enabled"))
+            scoreboardManager.onConfigurationReloaded();
+
+        if (UHConfigSnapshot.isChanged(changed, "motd") || UHConfigSnapshot.isChanged(changed, "scoreboard.title"))
+            motdManager.onConfigurationReloaded();
+
+        if (UHConfigSnapshot.isChanged(changed, "gameplay-changes.compass.enabled"))
+            recipesManager.onConfigurationReloaded();
+
+        if (UHConfigSnapshot.isChanged(changed, "protips"))
+            ProTips.applyConfiguration(current);
+
+        PluginLogger.info("Configuration reloaded; {0} value(s) changed.", changed.size());
+
+        return changed;
+    }
+
+    /**
+     * Returns the current configuration snapshot. Readable from any thread.
+     */
+    public UHConfigSnapshot getConfigSnapshot()
+    {
+        return configSnapshot;
+    }
+
     /**
      * Returns the team manager.
      */
@@ -302,6 +412,30 @@ public class UHCReloaded extends ZPlugin
         return freezer;
     }
 
+    /**
+     * Returns the movement dispatcher.
+     */
+    public MovementDispatcher getMovementDispatcher()
+    {
+        return movementDispatcher;
+    }
+
+    /**
+     * Returns the spatial hash of the alive players, for proximity queries.
+     */
+    public PlayersSpatialHash getPlayersSpatialHash()
+    {
+        return playersSpatialHash;
+    }
+
+    /**
+     * Returns the proximity engine, detecting the teammates met and the enemies nearby.
+     */
+    public ProximityEngine getProximityEngine()
+    {
+        return proximityEngine;
+    }
+
     /**
      * Returns the representation of the WorldBorder integration in the plugin.
      */
@@ -73,6 +73,17 @@ public class UHConfig extends Configuration
             }
 
             public final ConfigurationItem<Integer> WARNING_INTERVAL = item("warningInterval", 90);
+
+            public final TrimmingSection TRIMMING = section("trimming", TrimmingSection.class);
+
+            static public class TrimmingSection extends ConfigurationSection
+            {
+                public final ConfigurationItem<Boolean> ENABLED = item("enabled", true);
+                public final ConfigurationItem<Integer> MARGIN = item("margin", 32);
+                public final ConfigurationItem<Integer> INTERVAL = item("interval", 30);
+                public final ConfigurationItem<Integer> BATCH_SIZE = item("batchSize", 16);
+                public final ConfigurationItem<Boolean> DELETE = item("delete", false);
+            }
         }
 
         public final SpawnPointsSection SPAWN_POINTS = section("spawnPoints", SpawnPointsSection.class);
@@ -452,6 +463,13 @@ public class UHConfig extends Configuration
             }
         }
 
+        public final AutoSection AUTO = section("auto", AutoSection.class);
+
+        static public class AutoSection extends ConfigurationSection
+        {
+            public final ConfigurationItem<String> RATINGS_FILE = item("ratingsFile", "ratings.yml");
+        }
+
         public final TeamChatSection TEAM_CHAT = section("teamChat", TeamChatSection.class);
 
         static public class TeamChatSection extends ConfigurationSection
@@ -461,6 +479,28 @@ public class UHConfig extends Configuration
         }
     }
 
+    static public final ProximitySection PROXIMITY = section("proximity", ProximitySection.class);
+
+    static public class ProximitySection extends ConfigurationSection
+    {
+        public final EnemyNearbySection ENEMY_NEARBY = section("enemyNearby", EnemyNearbySection.class);
+
+        static public class EnemyNearbySection extends ConfigurationSection
+        {
+            public final ConfigurationItem<Double> DISTANCE = item("distance", 24d);
+            public final ConfigurationItem<Double> HYSTERESIS = item("hysteresis", 8d);
+        }
+    }
+
+    static public final NamesResolutionSection NAMES_RESOLUTION = section("names-resolution", NamesResolutionSection.class);
+
+    static public class NamesResolutionSection extends ConfigurationSection
+    {
+        public final ConfigurationItem<String> RESOLVER = item("resolver", "mojang");
+        public final ConfigurationItem<String> FILE = item("file", "names.yml");
+        public final ConfigurationItem<Integer> MAX_REQUESTS_PER_MINUTE = item("maxRequestsPerMinute", 60);
+    }
+
     static public final HardcoreHeartsSection HARDCORE_HEARTS = section("hardcore-hearts", HardcoreHeartsSection.class);
 
     static public class HardcoreHeartsSection extends ConfigurationSection
@@ -0,0 +1,661 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded;
+
+import eu.carrade.amaury.UHCReloaded.utils.UHUtils;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.configuration.Configuration;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+
+/**
+ * An immutable, typed copy of the configuration values read by the event handlers and the
+ * periodic tasks, compiled once (durations parsed, colors translated) so these hot paths only
+ * read fields.
+ *
+ * <p>A snapshot is compiled when the plugin is enabled, and a new one is published atomically
+ * by {@link UHCReloaded#reloadConfiguration()}; the values which are not in the snapshot are
+ * still read from {@link UHConfig}.</p>
+ */
+public final class UHConfigSnapshot
+{
+    // Keys whose changes are only applied after a restart.
+    private static final String[] RESTART_REQUIRED = {
+            "lang",
+            "map.size", "map.shape", "map.border.motor",
+            "scoreboard.enabled", "scoreboard.health",
+            "gameplay-changes.craftGoldenAppleFromHead", "gameplay-changes.craftGoldenMelonWithGoldBlock",
+            "gameplay-changes.compass.recipe", "gameplay-changes.goldenApple.disableNotchApples",
+            "playersList", "proximity", "names-resolution",
+            "spawnpoints", "teams", "teambanners"
+    };
+
+    private final Map<String, Object> values;
+
+    private final boolean episodesEnabled;
+    private final int episodeLength;
+
+    private final int borderWarningInterval;
+    private final boolean borderShrinking;
+    private final long borderShrinkingStartsAfter;
+    private final long borderShrinkingDuration;
+    private final double borderShrinkingFinalSize;
+
+    private final boolean beforeStartClearInventory;
+    private final boolean beforeStartPreventInventoryUsage;
+    private final boolean beforeStartAllowInventoryForBuilders;
+    private final boolean teamSelectorEnabled;
+    private final Material teamSelectorItem;
+    private final boolean teamInActionBar;
+    private final boolean pvpBeforeStart;
+
+    private final long slowStartDelayBetweenTeleportations;
+
+    private final boolean deathLightningStrike;
+    private final boolean deathKick;
+    private final int deathKickDelay;
+    private final boolean deathKickAllowReconnect;
+    private final boolean deathHeadDrop;
+    private final boolean deathHeadPvPOnly;
+    private final int deathXPLevelsToKiller;
+    private final boolean deathXPOnlyOtherTeam;
+    private final boolean deathNotifyTeamFallen;
+    private final String deathMessagesFormat;
+    private final String teamDeathMessagesFormat;
+
+    private final boolean hardcoreHeartsRespawnMessage;
+    private final boolean teamChatDisableLockOnDeath;
+    private final boolean addBannersOnShields;
+
+    private final boolean replaceGhastTearsWithGold;
+    private final boolean disableLevelIIPotions;
+    private final boolean disableEnderpearlsDamages;
+    private final boolean disableWitchNaturalSpawn;
+    private final boolean disableWitchLightningSpawn;
+    private final boolean weather;
+    private final boolean compassEnabled;
+    private final int goldenAppleRegeneration;
+    private final int notchAppleRegeneration;
+    private final int goldenHeadRegeneration;
+    private final int notchHeadRegeneration;
+
+    private final boolean dynmapShowDeathLocations;
+    private final boolean dynmapShowSpawnLocations;
+
+    private final Map<String, Boolean> proTips;
+
+
+    /**
+     * Compiles a snapshot of the current configuration. Must be called from the main thread.
+     *
+     * @param config The plugin's configuration.
+     */
+    UHConfigSnapshot(Configuration config)
+    {
+        values = Collections.unmodifiableMap(compileValues(config));
+
+        episodesEnabled = config.getBoolean("episodes.enabled", true);
+        episodeLength = time(config, "episodes.length", 20*60);
+
+        borderWarningInterval = Math.max(config.getInt("map.border.warningInterval", 90), 1);
+        borderShrinking = config.getBoolean("map.border.shrinking.enabled", false);
+        borderShrinkingStartsAfter = time(config, "map.border.shrinking.startsAfter", 30*60);  // Seconds
+        borderShrinkingDuration = time(config, "map.border.shrinking.shrinksDuring", 60*60*2);  // Same
+        borderShrinkingFinalSize = config.getInt("map.border.shrinking.diameterAfterShrink", 200);
+
+        beforeStartClearInventory = config.getBoolean("before-start.inventory.clear", true);
+        beforeStartPreventInventoryUsage = config.getBoolean("before-start.inventory.preventUsage", true);
+        beforeStartAllowInventoryForBuilders = config.getBoolean("before-start.inventory.allowForBuilders", true);
+        teamSelectorEnabled = config.getBoolean("before-start.teamSelector.enabled", true);
+        teamSelectorItem = material(config, "before-start.teamSelector.item", Material.NETHER_STAR);
+        teamInActionBar = config.getBoolean("before-start.teamInActionBar", true);
+        pvpBeforeStart = config.getBoolean("before-start.enablePVP", false);
+
+        slowStartDelayBetweenTeleportations = config.getLong("start.slow.delayBetweenTP", 3l);
+
+        deathLightningStrike = config.getBoolean("death.announcements.lightning-strike", false);
+        deathKick = config.getBoolean("death.kick.do", false);
+        deathKickDelay = config.getInt("death.kick.time", 30);
+        deathKickAllowReconnect = config.getBoolean("death.kick.allow-reconnect", true);
+        deathHeadDrop = config.getBoolean("death.head.drop", true);
+        deathHeadPvPOnly = config.getBoolean("death.head.pvpOnly", false);
+        deathXPLevelsToKiller = config.getInt("death.give-xp-to-killer.levels", 2);
+        deathXPOnlyOtherTeam = config.getBoolean("death.give-xp-to-killer.onlyOtherTeam", true);
+        deathNotifyTeamFallen = config.getBoolean("death.messages.notifyIfTeamHasFallen", true);
+        deathMessagesFormat = ChatColor.translateAlternateColorCodes('&', config.getString("death.messages.deathMessagesFormat", "§6"));
+        teamDeathMessagesFormat = ChatColor.translateAlternateColorCodes('&', config.getString("death.messages.teamDeathMessagesFormat", "§6"));
+
+        hardcoreHeartsRespawnMessage = config.getBoolean("hardcore-hearts.display", true) && config.getBoolean("hardcore-hearts.respawnMessage", false);
+        teamChatDisableLockOnDeath = config.getBoolean("teams-options.teamChat.disableLockOnDeath", true);
+        addBannersOnShields = config.getBoolean("teams-options.banner.shields.addOnShields", true);
+
+        replaceGhastTearsWithGold = config.getBoolean("gameplay-changes.replaceGhastTearsWithGold", true);
+        disableLevelIIPotions = config.getBoolean("gameplay-changes.disableLevelIIPotions", false);
+        disableEnderpearlsDamages = config.getBoolean("gameplay-changes.disableEnderpearlsDamages", true);
+        disableWitchNaturalSpawn = config.getBoolean("gameplay-changes.witch.disableNaturalSpawn", false);
+        disableWitchLightningSpawn = config.getBoolean("gameplay-changes.witch.disableLightningSpawn", false);
+        weather = config.getBoolean("gameplay-changes.weather", true);
+        compassEnabled = config.getBoolean("gameplay-changes.compass.enabled", true);
+        goldenAppleRegeneration = config.getInt("gameplay-changes.goldenApple.regeneration.normal", 4);
+        notchAppleRegeneration = config.getInt("gameplay-changes.goldenApple.regeneration.notch", 180);
+        goldenHeadRegeneration = config.getInt("gameplay-changes.goldenApple.regeneration.fromNormalHead", 4);
+        notchHeadRegeneration = config.getInt("gameplay-changes.goldenApple.regeneration.fromNotchHead", 180);
+
+        dynmapShowDeathLocations = config.getBoolean("dynmap.showDeathLocations", true);
+        dynmapShowSpawnLocations = config.getBoolean("dynmap.showSpawnLocations", true);
+
+        proTips = Collections.unmodifiableMap(compileProTips(config));
+    }
+
+    /**
+     * Copies the raw values of the configuration, by full path (sections excluded), to compare
+     * two snapshots.
+     */
+    private static Map<String, Object> compileValues(Configuration config)
+    {
+        final Map<String, Object> values = new HashMap<>();
+
+        for (Map.Entry<String, Object> entry : config.getValues(true).entrySet())
+        {
+            if (!(entry.getValue() instanceof ConfigurationSection))
+                values.put(entry.getKey(), entry.getValue());
+        }
+
+        return values;
+    }
+
+    /**
+     * Reads a duration ({@code "mm:ss"}, {@code "hh:mm:ss"}...), in seconds.
+     */
+    private static int time(Configuration config, String path, int defaultValue)
+    {
+        return UHUtils.string2Time(config.getString(path), defaultValue);
+    }
+
+    /**
+     * Reads a material by name, falling back to the given one if unknown.
+     */
+    private static Material material(Configuration config, String path, Material defaultValue)
+    {
+        final String name = config.getString(path);
+        final Material material = name != null ? Material.matchMaterial(name) : null;
+
+        return material != null ? material : defaultValue;
+    }
+
+    /**
+     * Reads the ProTips switches ({@code protips.*} booleans), falling back to the defaults.
+     */
+    private static Map<String, Boolean> compileProTips(Configuration config)
+    {
+        final Set<String> keys = new HashSet<>();
+
+        if (config.isConfigurationSection("protips"))
+            keys.addAll(config.getConfigurationSection("protips").getKeys(true));
+
+        final Configuration defaults = config.getDefaults();
+        if (defaults != null && defaults.isConfigurationSection("protips"))
+            keys.addAll(defaults.getConfigurationSection("protips").getKeys(true));
+
+        final Map<String, Boolean> proTips = new HashMap<>();
+        for (String key : keys)
+        {
+            if (config.isBoolean("protips." + key))
+                proTips.put(key, config.getBoolean("protips." + key));
+        }
+
+        return proTips;
+    }
+
+
+    /**
+     * Lists the configuration keys whose values differ between the given snapshot and this one.
+     *
+     * @param previous The previous snapshot.
+     * @return The full paths of the changed, added or removed keys.
+     */
+    public Set<String> getChangedKeys(UHConfigSnapshot previous)
+    {
+        final Set<String> changed = new HashSet<>();
+
+        for (Map.Entry<String, Object> entry : values.entrySet())
+        {
+            if (!Objects.equals(entry.getValue(), previous.values.get(entry.getKey())))
+                changed.add(entry.getKey());
+        }
+
+        for (String key : previous.values.keySet())
+        {
+            if (!values.containsKey(key))
+                changed.add(key);
+        }
+
+        return changed;
+    }
+
+    /**
+     * Checks if one of the given keys is the given path or is below it.
+     *
+     * @param keys The changed keys, from {@link #getChangedKeys(UHConfigSnapshot)}.
+     * @param path A configuration path, like {@code "map.border"}.
+     * @return {@code true} if a key is inside this path.
+     */
+    public static boolean isChanged(Set<String> keys, String path)
+    {
+        for (String key : keys)
+        {
+            if (key.equals(path) || key.startsWith(path + "."))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks if a change of the given key is only applied after a restart.
+     *
+     * @param key A configuration key (full path).
+     * @return {@code true} if a restart is needed to apply a change of this key.
+     */
+    public static boolean requiresRestart(String key)
+    {
+        for (String path : RESTART_REQUIRED)
+        {
+            if (key.equals(path) || key.startsWith(path + "."))
+                return true;
+        }
+
+        return false;
+    }
+
+
+    /**
+     * @return {@code true} if the game is divided in episodes.
+     */
+    public boolean isEpisodesEnabled()
+    {
+        return episodesEnabled;
+    }
+
+    /**
+     * @return the length of one episode, in seconds.
+     */
+    public int getEpisodeLength()
+    {
+        return episodeLength;
+    }
+
+    /**
+     * @return the interval between two messages warning the players out of the future border,
+     * in seconds.
+     */
+    public int getBorderWarningInterval()
+    {
+        return borderWarningInterval;
+    }
+
+    /**
+     * @return {@code true} if the border shrinks automatically.
+     */
+    public boolean isBorderShrinking()
+    {
+        return borderShrinking;
+    }
+
+    /**
+     * @return the delay before the automatic border shrinking, in seconds.
+     */
+    public long getBorderShrinkingStartsAfter()
+    {
+        return borderShrinkingStartsAfter;
+    }
+
+    /**
+     * @return the duration of the automatic border shrinking, in seconds.
+     */
+    public long getBorderShrinkingDuration()
+    {
+        return borderShrinkingDuration;
+    }
+
+    /**
+     * @return the diameter of the border after the automatic shrinking.
+     */
+    public double getBorderShrinkingFinalSize()
+    {
+        return borderShrinkingFinalSize;
+    }
+
+    /**
+     * @return {@code true} if the inventories are cleared on join before the game.
+     */
+    public boolean isBeforeStartClearInventory()
+    {
+        return beforeStartClearInventory;
+    }
+
+    /**
+     * @return {@code true} if the inventories can't be used before the game.
+     */
+    public boolean isBeforeStartPreventInventoryUsage()
+    {
+        return beforeStartPreventInventoryUsage;
+    }
+
+    /**
+     * @return {@code true} if the builders are excluded from the inventory restrictions before
+     * the game.
+     */
+    public boolean isBeforeStartAllowInventoryForBuilders()
+    {
+        return beforeStartAllowInventoryForBuilders;
+    }
+
+    /**
+     * @return {@code true} if an item opening the teams selector is given before the game.
+     */
+    public boolean isTeamSelectorEnabled()
+    {
+        return teamSelectorEnabled;
+    }
+
+    /**
+     * @return the item opening the teams selector.
+     */
+    public Material getTeamSelectorItem()
+    {
+        return teamSelectorItem;
+    }
+
+    /**
+     * @return {@code true} if the team of the players is displayed in their action bar before
+     * the game.
+     */
+    public boolean isTeamInActionBar()
+    {
+        return teamInActionBar;
+    }
+
+    /**
+     * @return {@code true} if the PvP is enabled before the game.
+     */
+    public boolean isPvPBeforeStart()
+    {
+        return pvpBeforeStart;
+    }
+
+    /**
+     * @return the delay between two teleportations during a slow start, in seconds.
+     */
+    public long getSlowStartDelayBetweenTeleportations()
+    {
+        return slowStartDelayBetweenTeleportations;
+    }
+
+    /**
+     * @return {@code true} if a lightning strike announces the deaths.
+     */
+    public boolean isDeathLightningStrike()
+    {
+        return deathLightningStrike;
+    }
+
+    /**
+     * @return {@code true} if the dead players are kicked.
+     */
+    public boolean isDeathKick()
+    {
+        return deathKick;
+    }
+
+    /**
+     * @return the delay before the kick of a dead player, in seconds.
+     */
+    public int getDeathKickDelay()
+    {
+        return deathKickDelay;
+    }
+
+    /**
+     * @return {@code true} if the dead players can log in again.
+     */
+    public boolean isDeathKickAllowReconnect()
+    {
+        return deathKickAllowReconnect;
+    }
+
+    /**
+     * @return {@code true} if the heads of the dead players are dropped.
+     */
+    public boolean isDeathHeadDrop()
+    {
+        return deathHeadDrop;
+    }
+
+    /**
+     * @return {@code true} if the heads are only dropped when the player was killed by another
+     * player.
+     */
+    public boolean isDeathHeadPvPOnly()
+    {
+        return deathHeadPvPOnly;
+    }
+
+    /**
+     * @return the levels given to the killer of a player.
+     */
+    public int getDeathXPLevelsToKiller()
+    {
+        return deathXPLevelsToKiller;
+    }
+
+    /**
+     * @return {@code true} if the levels are only given when the killer is in another team.
+     */
+    public boolean isDeathXPOnlyOtherTeam()
+    {
+        return deathXPOnlyOtherTeam;
+    }
+
+    /**
+     * @return {@code true} if the death of the last player of a team is announced.
+     */
+    public boolean isDeathNotifyTeamFallen()
+    {
+        return deathNotifyTeamFallen;
+    }
+
+    /**
+     * @return the format of the death messages, colors translated.
+     */
+    public String getDeathMessagesFormat()
+    {
+        return deathMessagesFormat;
+    }
+
+    /**
+     * @return the format of the team-death messages, colors translated.
+     */
+    public String getTeamDeathMessagesFormat()
+    {
+        return teamDeathMessagesFormat;
+    }
+
+    /**
+     * @return {@code true} if the hardcore hearts are displayed and the dead players are told
+     * they can respawn.
+     */
+    public boolean isHardcoreHeartsRespawnMessage()
+    {
+        return hardcoreHeartsRespawnMessage;
+    }
+
+    /**
+     * @return {@code true} if the team-chat lock is disabled on death.
+     */
+    public boolean isTeamChatDisableLockOnDeath()
+    {
+        return teamChatDisableLockOnDeath;
+    }
+
+    /**
+     * @return {@code true} if the team banner is added on the crafted shields.
+     */
+    public boolean isAddBannersOnShields()
+    {
+        return addBannersOnShields;
+    }
+
+    /**
+     * @return {@code true} if the ghast tears are replaced with gold.
+     */
+    public boolean isReplaceGhastTearsWithGold()
+    {
+        return replaceGhastTearsWithGold;
+    }
+
+    /**
+     * @return {@code true} if the level-II potions are disabled.
+     */
+    public boolean isDisableLevelIIPotions()
+    {
+        return disableLevelIIPotions;
+    }
+
+    /**
+     * @return {@code true} if the ender pearls don't inflict damages.
+     */
+    public boolean isDisableEnderpearlsDamages()
+    {
+        return disableEnderpearlsDamages;
+    }
+
+    /**
+     * @return {@code true} if the witches don't spawn naturally.
+     */
+    public boolean isDisableWitchNaturalSpawn()
+    {
+        return disableWitchNaturalSpawn;
+    }
+
+    /**
+     * @return {@code true} if the witches don't spawn from lightning strikes.
+     */
+    public boolean isDisableWitchLightningSpawn()
+    {
+        return disableWitchLightningSpawn;
+    }
+
+    /**
+     * @return {@code true} if the weather can change.
+     */
+    public boolean isWeather()
+    {
+        return weather;
+    }
+
+    /**
+     * @return {@code true} if the compass points to the nearest player.
+     */
+    public boolean isCompassEnabled()
+    {
+        return compassEnabled;
+    }
+
+    /**
+     * @return the half-hearts regenerated by a golden apple.
+     */
+    public int getGoldenAppleRegeneration()
+    {
+        return goldenAppleRegeneration;
+    }
+
+    /**
+     * @return the half-hearts regenerated by a Notch apple.
+     */
+    public int getNotchAppleRegeneration()
+    {
+        return notchAppleRegeneration;
+    }
+
+    /**
+     * @return the half-hearts regenerated by a golden apple crafted from a head.
+     */
+    public int getGoldenHeadRegeneration()
+    {
+        return goldenHeadRegeneration;
+    }
+
+    /**
+     * @return the half-hearts regenerated by a Notch apple crafted from a head.
+     */
+    public int getNotchHeadRegeneration()
+    {
+        return notchHeadRegeneration;
+    }
+
+    /**
+     * @return {@code true} if the death locations are displayed on the dynmap.
+     */
+    public boolean isDynmapShowDeathLocations()
+    {
+        return dynmapShowDeathLocations;
+    }
+
+    /**
+     * @return {@code true} if the spawn locations are displayed on the dynmap.
+     */
+    public boolean isDynmapShowSpawnLocations()
+    {
+        return dynmapShowSpawnLocations;
+    }
+
+    /**
+     * Checks if a ProTip is enabled.
+     *
+     * @param name The name of the ProTip in the configuration (under {@code protips}).
+     * @return {@code true} if enabled; {@code false} if disabled or unknown.
+     */
+    public boolean isProTipEnabled(String name)
+    {
+        final Boolean enabled = proTips.get(name);
+        return enabled != null && enabled;
+    }
+}
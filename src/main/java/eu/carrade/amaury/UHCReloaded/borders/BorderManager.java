@@ -34,8 +34,10 @@ package eu.carrade.amaury.UHCReloaded.borders;
 
 import eu.carrade.amaury.UHCReloaded.UHCReloaded;
 import eu.carrade.amaury.UHCReloaded.UHConfig;
+import eu.carrade.amaury.UHCReloaded.UHConfigSnapshot;
 import eu.carrade.amaury.UHCReloaded.borders.exceptions.CannotGenerateWallsException;
 import eu.carrade.amaury.UHCReloaded.borders.generators.WallGenerator;
+import eu.carrade.amaury.UHCReloaded.borders.worldborders.BorderAnimation;
 import eu.carrade.amaury.UHCReloaded.borders.worldborders.WorldBorder;
 import eu.carrade.amaury.UHCReloaded.task.BorderWarningTask;
 import eu.carrade.amaury.UHCReloaded.timers.UHTimer;
@@ -55,25 +57,24 @@ import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.UUID;
 
 
 public class BorderManager
 {
-    private final boolean BORDER_SHRINKING;
-    private final long BORDER_SHRINKING_STARTS_AFTER;
-    private final long BORDER_SHRINKING_DURATION;
-    private final double BORDER_SHRINKING_FINAL_SIZE;
-
     private final UHCReloaded p;
 
     private WorldBorder border = null;
+    private ChunksTrimmer chunksTrimmer = null;
 
     private Integer warningSize = 0;
     private BukkitRunnable warningTask = null;
 
     private Boolean warningFinalTimeEnabled = false;
     private String warningTimerName = null;
+    private String reductionTimerName = null;
     private CommandSender warningSender = null;
+    private UUID warningSenderId = null;
 
     private MapShape mapShape = null;
 
@@ -85,6 +86,9 @@ public class BorderManager
         /// The name of the warning timer displaying the time left before the next border
         warningTimerName = I.t("Border shrinking");
 
+        /// The name of the (hidden) timer counting down before the automatic border shrinking
+        reductionTimerName = I.t("Border shrinking start");
+
         mapShape = UHConfig.MAP.SHAPE.get();
         if (mapShape == null)
         {
@@ -111,11 +115,7 @@ public class BorderManager
 
         PluginLogger.info("Using {0} to set the world border.", border.getClass().getSimpleName());
 
-
-        BORDER_SHRINKING = UHConfig.MAP.BORDER.SHRINKING.ENABLED.get();
-        BORDER_SHRINKING_STARTS_AFTER = UHUtils.string2Time(UHConfig.MAP.BORDER.SHRINKING.STARTS_AFTER.get(), 30*60);  // Seconds
-        BORDER_SHRINKING_DURATION = UHUtils.string2Time(UHConfig.MAP.BORDER.SHRINKING.SHRINKS_DURING.get(), 60*60*2);  // Same
-        BORDER_SHRINKING_FINAL_SIZE = UHConfig.MAP.BORDER.SHRINKING.DIAMETER_AFTER_SHRINK.get();
+        chunksTrimmer = new ChunksTrimmer(this, world);
     }
 
     /**
@@ -147,6 +147,14 @@ public class BorderManager
         return border;
     }
 
+    /**
+     * @return The trimmer unloading the chunks outside of the border.
+     */
+    public ChunksTrimmer getChunksTrimmer()
+    {
+        return chunksTrimmer;
+    }
+
     /**
      * Checks if a given location is inside the border with the given diameter.
      * The check is performed for a circular or squared border, following the configuration.
@@ -231,13 +239,41 @@ public class BorderManager
     }
 
     /**
-     * @return the sender of the last warning configured.
+     * @return {@code true} if the warning messages are displayed to the players out of the
+     * future border.
+     */
+    public boolean isWarningEnabled()
+    {
+        return warningTask != null;
+    }
+
+    /**
+     * Returns the sender of the last warning configured.
+     *
+     * <p>If it was a player, this player is returned if online, and the console else.</p>
+     *
+     * @return the sender, or {@code null} if the warning was not configured by a command.
      */
     public CommandSender getWarningSender()
     {
+        if (warningSenderId != null)
+        {
+            final Player player = Bukkit.getPlayer(warningSenderId);
+            return player != null ? player : Bukkit.getConsoleSender();
+        }
+
         return this.warningSender;
     }
 
+    /**
+     * @return the UUID of the sender of the last warning configured, if it was a player;
+     * {@code null} else.
+     */
+    public UUID getWarningSenderId()
+    {
+        return warningSenderId;
+    }
+
     /**
      * Sets the size of the future border, used in the warning messages sent to the
      * players out of this future border.
@@ -270,16 +306,60 @@ public class BorderManager
 
         if (sender != null)
         {
-            this.warningSender = sender;
+            this.warningSender = sender instanceof Player ? null : sender;
+            this.warningSenderId = sender instanceof Player ? ((Player) sender).getUniqueId() : null;
         }
 
+        scheduleWarningTask();
+        p.getTimerManager().markDirty();
+    }
+
+    /**
+     * Displays the warning messages again after a restart. The timer counting down before the
+     * new border, if any, is restored with the other timers.
+     *
+     * @param diameter The future diameter.
+     * @param sender   The sender of the warning, if not a player; {@code null} else.
+     * @param senderId The UUID of the sender of the warning, if a player; {@code null} else.
+     */
+    public void restoreWarning(int diameter, CommandSender sender, UUID senderId)
+    {
+        this.warningSize = diameter;
+        this.warningSender = sender;
+        this.warningSenderId = senderId;
+
+        scheduleWarningTask();
+    }
+
+    /**
+     * Starts the task displaying the warning messages, following the configured interval.
+     */
+    private void scheduleWarningTask()
+    {
         RunTask.timer(
                 warningTask = new BorderWarningTask(),
                 20L,
-                20L * p.getConfig().getInt("map.border.warningInterval", 90)
+                20L * p.getConfigSnapshot().getBorderWarningInterval()
         );
     }
 
+    /**
+     * Called after a reload of the configuration: the warning messages, if displayed, are
+     * rescheduled following the new interval.
+     */
+    public void onConfigurationReloaded()
+    {
+        if (warningTask == null) return;
+
+        try
+        {
+            warningTask.cancel();
+        }
+        catch (IllegalStateException ignored) {}
+
+        scheduleWarningTask();
+    }
+
     /**
      * Sets the size of the future border, used in the warning messages sent to the
      * players out of this future border.
@@ -318,6 +398,9 @@ public class BorderManager
                 warningTask.cancel();
             }
             catch (IllegalStateException ignored) {}
+
+            warningTask = null;
+            p.getTimerManager().markDirty();
         }
 
         UHTimer timer = getWarningTimer();
@@ -350,6 +433,28 @@ public class BorderManager
         cancelWarning();
 
         border.setDiameter(diameter);
+        chunksTrimmer.scan();
+
+        p.getTimerManager().markDirty();
+    }
+
+    /**
+     * Restores the border diameter after a restart, and resumes its shrinking if it was in
+     * progress. Like the timers, the time the server was down is not counted.
+     *
+     * @param diameter       The diameter when the state was saved.
+     * @param targetDiameter The diameter at the end of the shrinking.
+     * @param shrinkTimeLeft The time left before the end of the shrinking, in milliseconds; zero
+     *                       if the border was not shrinking.
+     */
+    public void restoreBorder(double diameter, double targetDiameter, long shrinkTimeLeft)
+    {
+        border.setDiameter(diameter);
+
+        if (shrinkTimeLeft > 0)
+            border.setDiameter(targetDiameter, Math.max(Math.round(shrinkTimeLeft / 1000d), 1L));
+
+        chunksTrimmer.scan();
     }
 
 
@@ -416,21 +521,63 @@ public class BorderManager
 
     /**
      * Schedules the automatic border reduction, if enabled in the configuration.
+     *
+     * <p>The delay is counted by a hidden timer, so it is paused with the game and restored
+     * after a restart like the other timers.</p>
      */
     public void scheduleBorderReduction()
     {
-        if (BORDER_SHRINKING)
+        if (p.getConfigSnapshot().isBorderShrinking())
         {
-            RunTask.later(() -> {
-                Integer secondsPerBlock = (int) Math.rint(BORDER_SHRINKING_DURATION / (border.getDiameter() - BORDER_SHRINKING_FINAL_SIZE)) * 2;
+            UHTimer timer = getReductionTimer();
+            if (timer == null)
+            {
+                timer = new UHTimer(reductionTimerName);
+                p.getTimerManager().registerTimer(timer);
+            }
 
-                border.setDiameter(BORDER_SHRINKING_FINAL_SIZE, BORDER_SHRINKING_DURATION);
+            timer.setDuration((int) p.getConfigSnapshot().getBorderShrinkingStartsAfter());
+            timer.start();
+            timer.setDisplayed(false);
+        }
+    }
 
-                Titles.broadcastTitle(5, 30, 8, I.t("{red}Warning!"), I.t("{white}The border begins to shrink..."));
+    /**
+     * Returns the hidden UHTimer object counting down before the automatic border reduction.
+     *
+     * <p>Returns {@code null} if the border reduction was never scheduled.</p>
+     *
+     * @return The timer.
+     */
+    public UHTimer getReductionTimer()
+    {
+        return p.getTimerManager().getTimer(this.reductionTimerName);
+    }
 
-                Bukkit.broadcastMessage(I.t("{red}{bold}The border begins to shrink..."));
-                Bukkit.broadcastMessage(I.t("{gray}It will shrink by one block every {0} second(s) until {1} blocks in diameter.", secondsPerBlock, BORDER_SHRINKING_FINAL_SIZE));
-            }, BORDER_SHRINKING_STARTS_AFTER * 20l);
+    /**
+     * Starts the automatic border reduction.
+     *
+     * <p>Called when the timer scheduled by {@link #scheduleBorderReduction()} is up.</p>
+     */
+    public void startBorderReduction()
+    {
+        final UHConfigSnapshot config = p.getConfigSnapshot();
+        final long duration = config.getBorderShrinkingDuration();
+        final double finalSize = config.getBorderShrinkingFinalSize();
+
+        border.setDiameter(finalSize, duration);
+        p.getTimerManager().markDirty();
+
+        Titles.broadcastTitle(5, 30, 8, I.t("{red}Warning!"), I.t("{white}The border begins to shrink..."));
+
+        Bukkit.broadcastMessage(I.t("{red}{bold}The border begins to shrink..."));
+
+        // The speed of the continuous shrinking itself.
+        final BorderAnimation animation = border.getAnimation();
+        if (animation != null)
+        {
+            final String secondsPerBlock = String.format("%.2f", animation.getSecondsPerBlock());
+            Bukkit.broadcastMessage(I.t("{gray}It will shrink by one block every {0} second(s) until {1} blocks in diameter.", secondsPerBlock, finalSize));
         }
     }
 }
@@ -0,0 +1,368 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.borders;
+
+import eu.carrade.amaury.UHCReloaded.UHCReloaded;
+import eu.carrade.amaury.UHCReloaded.UHConfig;
+import eu.carrade.amaury.UHCReloaded.listeners.ChunksTrimmerListener;
+import fr.zcraft.zlib.tools.PluginLogger;
+import fr.zcraft.zlib.tools.runners.RunTask;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.event.HandlerList;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+
+/**
+ * Unloads (and optionally deletes) the chunks left outside of the border while it shrinks.
+ *
+ * <p>The chunks fully outside the current border plus a margin are queued, and unloaded by
+ * small batches to avoid lag spikes. A chunk still in use (e.g. in the view distance of a
+ * spectator) is never unloaded.</p>
+ *
+ * <p>If enabled, the region files fully outside the border plus margin are deleted too, so the
+ * world folder shrinks with the playable area. As the server keeps the region files open while
+ * running, they are only queued during the game: the queue is saved when the plugin is disabled,
+ * and the files are deleted at the next startup, before the worlds are loaded.</p>
+ */
+public class ChunksTrimmer
+{
+    private static final long BATCH_PERIOD = 5L;
+
+    private static final String DELETIONS_FILE = "regions-to-delete.txt";
+    private static final Pattern REGION_FILE_NAME = Pattern.compile("r\\.-?[0-9]+\\.-?[0-9]+\\.mca");
+
+    private final boolean ENABLED;
+    private final int MARGIN;
+    private final int SCAN_INTERVAL;
+    private final int BATCH_SIZE;
+    private final boolean DELETE;
+
+    private final UHCReloaded p;
+    private final BorderManager borderManager;
+    private final World world;
+
+    private final Set<Long> pendingChunks = new LinkedHashSet<>();
+    private final Set<File> pendingDeletions = new LinkedHashSet<>();
+    private final ChunksTrimmerListener listener = new ChunksTrimmerListener();
+
+    private BukkitTask scanTask = null;
+    private BukkitTask batchTask = null;
+
+
+    public ChunksTrimmer(BorderManager borderManager, World world)
+    {
+        this.p = UHCReloaded.get();
+        this.borderManager = borderManager;
+        this.world = world;
+
+        ENABLED = UHConfig.MAP.BORDER.TRIMMING.ENABLED.get();
+        MARGIN = Math.max(UHConfig.MAP.BORDER.TRIMMING.MARGIN.get(), 0);
+        SCAN_INTERVAL = Math.max(UHConfig.MAP.BORDER.TRIMMING.INTERVAL.get(), 1);
+        BATCH_SIZE = Math.max(UHConfig.MAP.BORDER.TRIMMING.BATCH_SIZE.get(), 1);
+        DELETE = UHConfig.MAP.BORDER.TRIMMING.DELETE.get();
+    }
+
+    /**
+     * Starts the periodic trimming, if enabled in the configuration.
+     */
+    public void start()
+    {
+        if (!ENABLED || isRunning()) return;
+
+        scanTask = RunTask.timer(this::scan, 20L, SCAN_INTERVAL * 20L);
+        batchTask = RunTask.timer(this::processBatch, BATCH_PERIOD, BATCH_PERIOD);
+
+        p.getServer().getPluginManager().registerEvents(listener, p);
+    }
+
+    /**
+     * Stops the trimming. The chunks still queued are left loaded; the region files already
+     * queued for deletion are kept in the queue.
+     */
+    public void stop()
+    {
+        if (!isRunning()) return;
+
+        scanTask.cancel();
+        batchTask.cancel();
+
+        scanTask = null;
+        batchTask = null;
+
+        HandlerList.unregisterAll(listener);
+        pendingChunks.clear();
+    }
+
+    /**
+     * @return {@code true} if the trimmer is currently running.
+     */
+    public boolean isRunning()
+    {
+        return scanTask != null;
+    }
+
+    /**
+     * Queues all the loaded chunks outside the border plus the margin, and the region files
+     * outside for deletion if enabled.
+     *
+     * <p>Called periodically while the trimmer runs, and when the border diameter is changed.</p>
+     */
+    public void scan()
+    {
+        if (!isRunning()) return;
+
+        for (Chunk chunk : world.getLoadedChunks())
+        {
+            if (isOutside(chunk.getX(), chunk.getZ()))
+                pendingChunks.add(key(chunk.getX(), chunk.getZ()));
+        }
+
+        if (DELETE)
+            queueRegionsOutside();
+    }
+
+    /**
+     * Queues the given chunk for unloading if it is outside the border plus the margin.
+     *
+     * @param chunk The chunk.
+     */
+    public void offer(Chunk chunk)
+    {
+        if (isRunning() && chunk.getWorld().equals(world) && isOutside(chunk.getX(), chunk.getZ()))
+        {
+            pendingChunks.add(key(chunk.getX(), chunk.getZ()));
+        }
+    }
+
+    /**
+     * Checks if a chunk is fully outside the border plus the margin, i.e. if the point of this
+     * chunk closest to the center of the map is outside.
+     *
+     * @param chunkX The X coordinate of the chunk.
+     * @param chunkZ The Z coordinate of the chunk.
+     *
+     * @return {@code true} if the whole chunk is outside.
+     */
+    public boolean isOutside(int chunkX, int chunkZ)
+    {
+        return isOutside(chunkX << 4, chunkZ << 4, 16);
+    }
+
+    /**
+     * Unloads the next batch of queued chunks.
+     */
+    private void processBatch()
+    {
+        int processed = 0;
+        Iterator<Long> iterator = pendingChunks.iterator();
+
+        while (iterator.hasNext() && processed < BATCH_SIZE)
+        {
+            long key = iterator.next();
+            iterator.remove();
+
+            int x = (int) (key >> 32);
+            int z = (int) key;
+
+            // The border may have been enlarged since the chunk was queued.
+            if (!world.isChunkLoaded(x, z) || !isOutside(x, z)) continue;
+
+            // Safe unloading: chunks in use by a player are kept.
+            world.unloadChunkRequest(x, z, true);
+
+            processed++;
+        }
+    }
+
+    /**
+     * Queues for deletion the region files fully outside the border plus the margin, without any
+     * chunk currently loaded.
+     */
+    private void queueRegionsOutside()
+    {
+        File[] regionFiles = new File(world.getWorldFolder(), "region").listFiles((dir, name) -> REGION_FILE_NAME.matcher(name).matches());
+        if (regionFiles == null) return;
+
+        Set<Long> regionsInUse = new HashSet<>();
+        for (Chunk chunk : world.getLoadedChunks())
+        {
+            regionsInUse.add(key(chunk.getX() >> 5, chunk.getZ() >> 5));
+        }
+
+        for (File regionFile : regionFiles)
+        {
+            if (pendingDeletions.contains(regionFile)) continue;
+
+            String[] parts = regionFile.getName().split("\\.");
+
+            int regionX = Integer.parseInt(parts[1]);
+            int regionZ = Integer.parseInt(parts[2]);
+
+            if (regionsInUse.contains(key(regionX, regionZ)) || !isOutside(regionX << 9, regionZ << 9, 512))
+                continue;
+
+            pendingDeletions.add(regionFile);
+        }
+    }
+
+    /**
+     * Saves the region files queued for deletion, to be deleted at the next startup by
+     * {@link #deletePendingRegions(File)}. Called when the plugin is disabled.
+     *
+     * @param dataFolder The data folder of the plugin.
+     */
+    public void savePendingDeletions(File dataFolder)
+    {
+        if (pendingDeletions.isEmpty()) return;
+
+        final File file = new File(dataFolder, DELETIONS_FILE);
+        final File temp = new File(dataFolder, DELETIONS_FILE + ".tmp");
+
+        final List<String> lines = new ArrayList<>();
+
+        // Regions queued during a previous session and not deleted yet.
+        if (file.exists())
+        {
+            try
+            {
+                lines.addAll(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+            }
+            catch (IOException e)
+            {
+                PluginLogger.error("Unable to read the regions to delete from {0}", e, file.getName());
+            }
+        }
+
+        for (File regionFile : pendingDeletions)
+        {
+            final String path = regionFile.getAbsolutePath();
+            if (!lines.contains(path)) lines.add(path);
+        }
+
+        try
+        {
+            if (!dataFolder.exists() && !dataFolder.mkdirs())
+                throw new IOException("Unable to create the directory " + dataFolder);
+
+            Files.write(temp.toPath(), lines, StandardCharsets.UTF_8);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            PluginLogger.info("{0} region(s) outside of the border will be deleted at the next startup.", pendingDeletions.size());
+        }
+        catch (IOException e)
+        {
+            PluginLogger.error("Unable to save the regions to delete to {0}", e, file.getName());
+        }
+    }
+
+    /**
+     * Deletes the region files queued for deletion during the previous session. Must be called
+     * before the worlds are loaded, so the server doesn't hold these files open.
+     *
+     * @param dataFolder The data folder of the plugin.
+     */
+    public static void deletePendingRegions(File dataFolder)
+    {
+        final File file = new File(dataFolder, DELETIONS_FILE);
+        if (!file.exists()) return;
+
+        final List<String> paths;
+        try
+        {
+            paths = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        }
+        catch (IOException e)
+        {
+            PluginLogger.error("Unable to read the regions to delete from {0}", e, file.getName());
+            return;
+        }
+
+        for (String path : paths)
+        {
+            final File regionFile = new File(path);
+
+            // Only region files can be deleted, in case the file was edited.
+            if (!REGION_FILE_NAME.matcher(regionFile.getName()).matches() || !regionFile.getParentFile().getName().equals("region"))
+                continue;
+
+            if (!regionFile.exists()) continue;
+
+            if (regionFile.delete())
+                PluginLogger.info("Deleted region {0} outside of the border.", regionFile.getPath());
+            else
+                PluginLogger.warning("Unable to delete region {0} outside of the border.", regionFile.getPath());
+        }
+
+        if (!file.delete())
+            PluginLogger.warning("Unable to delete {0}; the regions listed will be deleted again at the next startup.", file.getName());
+    }
+
+    /**
+     * Checks if a squared area is fully outside the border plus the margin.
+     *
+     * @param minX The lowest X coordinate of the area.
+     * @param minZ The lowest Z coordinate of the area.
+     * @param size The size of the area, in blocks.
+     *
+     * @return {@code true} if the whole area is outside.
+     */
+    private boolean isOutside(int minX, int minZ, int size)
+    {
+        final Location center = world.getSpawnLocation();
+
+        // Point of the area closest to the center.
+        final int x = Math.max(minX, Math.min(center.getBlockX(), minX + size - 1));
+        final int z = Math.max(minZ, Math.min(center.getBlockZ(), minZ + size - 1));
+
+        return !borderManager.isInsideBorder(new Location(world, x, center.getY(), z), borderManager.getCurrentBorderDiameter() + 2 * MARGIN);
+    }
+
+    private static long key(int x, int z)
+    {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.borders.worldborders;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A linear change of a border diameter over time.
+ *
+ * <p>The diameter is a pure function of the monotonic clock ({@link System#nanoTime()}), so it
+ * can be queried at any time with a sub-block precision, and the animation ends exactly at the
+ * scheduled time, whatever the server tick rate is.</p>
+ */
+public class BorderAnimation
+{
+    private final double startDiameter;
+    private final double endDiameter;
+
+    private final long startTime;
+    private final long duration;
+
+    /**
+     * @param startDiameter The diameter at the beginning of the animation.
+     * @param endDiameter   The diameter at the end of the animation.
+     * @param duration      The duration of the animation, in seconds.
+     */
+    public BorderAnimation(double startDiameter, double endDiameter, long duration)
+    {
+        this.startDiameter = startDiameter;
+        this.endDiameter = endDiameter;
+
+        this.startTime = System.nanoTime();
+        this.duration = TimeUnit.SECONDS.toNanos(Math.max(duration, 0));
+    }
+
+    /**
+     * @return The diameter at the beginning of the animation.
+     */
+    public double getStartDiameter()
+    {
+        return startDiameter;
+    }
+
+    /**
+     * @return The diameter at the end of the animation.
+     */
+    public double getEndDiameter()
+    {
+        return endDiameter;
+    }
+
+    /**
+     * @return The time taken by each side of the border to move by one block, in seconds (the
+     * diameter changes by two blocks meanwhile); zero if the change is instantaneous.
+     */
+    public double getSecondsPerBlock()
+    {
+        final double sidesMove = Math.abs(endDiameter - startDiameter) / 2;
+        return sidesMove == 0 ? 0d : (duration / 1e9) / sidesMove;
+    }
+
+    /**
+     * @param time A {@link System#nanoTime()} timestamp.
+     * @return The diameter of the border at this time.
+     */
+    public double getDiameter(long time)
+    {
+        final long elapsed = time - startTime;
+
+        if (elapsed >= duration) return endDiameter;
+        if (elapsed <= 0) return startDiameter;
+
+        return startDiameter + (endDiameter - startDiameter) * ((double) elapsed / duration);
+    }
+
+    /**
+     * @return The current diameter of the border.
+     */
+    public double getDiameter()
+    {
+        return getDiameter(System.nanoTime());
+    }
+
+    /**
+     * @return The time left before the end of the animation, in milliseconds.
+     */
+    public long getTimeLeft()
+    {
+        return Math.max(TimeUnit.NANOSECONDS.toMillis(duration - (System.nanoTime() - startTime)), 0);
+    }
+
+    /**
+     * @param time A {@link System#nanoTime()} timestamp.
+     * @return {@code true} if the end of this animation was reached at this time.
+     */
+    public boolean isFinished(long time)
+    {
+        return time - startTime >= duration;
+    }
+
+    /**
+     * @return {@code true} if the end of this animation was reached.
+     */
+    public boolean isFinished()
+    {
+        return isFinished(System.nanoTime());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.borders.worldborders;
+
+import fr.zcraft.zlib.tools.runners.RunTask;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+
+/**
+ * Drives the animated diameter changes of all the world borders from a single ticker.
+ *
+ * <p>Each tick, the diameter of every border driven by this animator is recomputed from its
+ * {@link BorderAnimation}. The ticker only runs while at least one border is animated.</p>
+ *
+ * <p>Borders animating themselves (like the vanilla one) are tracked too, but not driven, so the
+ * current animation of any border can be retrieved.</p>
+ */
+public final class BorderAnimator
+{
+    private static final Map<WorldBorder, AnimatedBorder> animations = new IdentityHashMap<>();
+    private static BukkitTask ticker = null;
+
+    private BorderAnimator() {}
+
+    /**
+     * Animates the diameter of a border from its current diameter to the given one.
+     *
+     * <p>If the border was already animated, the previous animation is replaced.</p>
+     *
+     * @param border   The border.
+     * @param diameter The target diameter.
+     * @param time     The duration of the animation, in seconds.
+     * @param driven   {@code true} if the animator has to update the diameter of the border each
+     *                 tick; {@code false} if the border animates itself and the animation is only
+     *                 tracked.
+     *
+     * @return The animation.
+     */
+    public static BorderAnimation animate(WorldBorder border, double diameter, long time, boolean driven)
+    {
+        final BorderAnimation animation = new BorderAnimation(border.getDiameter(), diameter, time);
+
+        animations.put(border, new AnimatedBorder(animation, driven));
+
+        if (ticker == null)
+            ticker = RunTask.timer(BorderAnimator::tick, 1L, 1L);
+
+        return animation;
+    }
+
+    /**
+     * Stops the animation of the given border, if any. The diameter is left as is.
+     *
+     * @param border The border.
+     */
+    public static void cancel(WorldBorder border)
+    {
+        animations.remove(border);
+    }
+
+    /**
+     * @param border The border.
+     * @return The running animation of this border, or {@code null} if the border is not animated.
+     */
+    public static BorderAnimation getAnimation(WorldBorder border)
+    {
+        final AnimatedBorder animated = animations.get(border);
+        return animated != null ? animated.animation : null;
+    }
+
+    private static void tick()
+    {
+        final long now = System.nanoTime();
+        final Iterator<Map.Entry<WorldBorder, AnimatedBorder>> iterator = animations.entrySet().iterator();
+
+        while (iterator.hasNext())
+        {
+            final Map.Entry<WorldBorder, AnimatedBorder> entry = iterator.next();
+            final BorderAnimation animation = entry.getValue().animation;
+
+            if (entry.getValue().driven)
+                entry.getKey().updateDiameter(animation.getDiameter(now));
+
+            if (animation.isFinished(now))
+                iterator.remove();
+        }
+
+        if (animations.isEmpty())
+        {
+            ticker.cancel();
+            ticker = null;
+        }
+    }
+
+
+    private static final class AnimatedBorder
+    {
+        private final BorderAnimation animation;
+        private final boolean driven;
+
+        private AnimatedBorder(BorderAnimation animation, boolean driven)
+        {
+            this.animation = animation;
+            this.driven = driven;
+        }
+    }
+}
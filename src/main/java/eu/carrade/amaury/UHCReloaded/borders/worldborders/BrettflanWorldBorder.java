@@ -35,10 +35,8 @@ import com.wimbli.WorldBorder.BorderData;
 import com.wimbli.WorldBorder.Config;
 import eu.carrade.amaury.UHCReloaded.UHCReloaded;
 import eu.carrade.amaury.UHCReloaded.borders.MapShape;
-import fr.zcraft.zlib.tools.runners.RunTask;
 import org.bukkit.Location;
 import org.bukkit.World;
-import org.bukkit.scheduler.BukkitTask;
 
 
 /**
@@ -60,8 +58,6 @@ public class BrettflanWorldBorder extends WorldBorder
 
     private Double diameter = 0d;
 
-    private BukkitTask slowReductionTask = null;
-
 
     public BrettflanWorldBorder(World world)
     {
@@ -103,7 +99,7 @@ public class BrettflanWorldBorder extends WorldBorder
         Double realDiameter = (double) (border.getRadiusX() * 2);
 
         // Returns the stored diameter, except if it was changed
-        // manually with /wb (see #setDiameterInternal(Double) for
+        // manually with /wb (see #updateDiameter(double) for
         // details).
         if (realDiameter - diameter >= 8)
             diameter = realDiameter;
@@ -114,47 +110,12 @@ public class BrettflanWorldBorder extends WorldBorder
     @Override
     public void setDiameter(double diameter)
     {
-        setDiameterInternal(diameter);
-
-        if (slowReductionTask != null)
-        {
-            slowReductionTask.cancel();
-            slowReductionTask = null;
-        }
+        BorderAnimator.cancel(this);
+        updateDiameter(diameter);
     }
 
     @Override
-    public void setDiameter(final double diameter, final long time)
-    {
-        // The behavior of the vanilla reduction is emulated.
-        final double currentDiameter = getDiameter();
-
-        final long ticksPerBlockRemoved = (int) Math.rint(time / (currentDiameter - diameter)) * 20L;
-        final long movement = (diameter >= currentDiameter) ? 1 : -1;
-
-        if (slowReductionTask != null)
-        {
-            slowReductionTask.cancel();
-            slowReductionTask = null;
-        }
-
-        slowReductionTask = RunTask.timer(() -> {
-            double newDiameter = getDiameter() + movement;
-
-            // If the final size is achieved, we set the exact requested size and we stop here.
-            // Calling setDiameter cancels this task.
-            if ((movement < 0 && newDiameter <= diameter) || (movement > 0 && newDiameter >= diameter))
-            {
-                setDiameter(diameter);
-            }
-            else
-            {
-                setDiameterInternal(newDiameter);
-            }
-        }, ticksPerBlockRemoved, ticksPerBlockRemoved);
-    }
-
-    private void setDiameterInternal(double diameter)
+    protected void updateDiameter(double diameter)
     {
         this.diameter = diameter;
 
@@ -164,8 +125,12 @@ public class BrettflanWorldBorder extends WorldBorder
         // display (avoids rounding errors).
         // “+3” ? Experimental.
         int offset = (getShape() == MapShape.CIRCULAR) ? 3 : 0;
+        int radius = (int) Math.floor((diameter + offset) / 2);
 
-        border.setRadius((int) Math.floor((diameter + offset) / 2));
+        // The animator calls this every tick; the WorldBorder plugin is only updated when the
+        // block radius actually changes.
+        if (radius != border.getRadiusX() || radius != border.getRadiusZ())
+            border.setRadius(radius);
     }
 
     @Override
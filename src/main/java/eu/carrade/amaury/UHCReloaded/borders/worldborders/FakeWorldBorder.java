@@ -71,11 +71,12 @@ public class FakeWorldBorder extends WorldBorder
     @Override
     public void setDiameter(double diameter)
     {
+        BorderAnimator.cancel(this);
         this.diameter = diameter;
     }
 
     @Override
-    public void setDiameter(double diameter, long time)
+    protected void updateDiameter(double diameter)
     {
         this.diameter = diameter;
     }
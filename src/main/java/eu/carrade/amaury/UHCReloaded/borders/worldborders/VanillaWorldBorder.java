@@ -80,15 +80,24 @@ public class VanillaWorldBorder extends WorldBorder
     @Override
     public void setDiameter(double diameter)
     {
+        BorderAnimator.cancel(this);
         border.setSize(diameter);
     }
 
     @Override
     public void setDiameter(double diameter, long time)
     {
+        // The vanilla border animates itself (smoothly, client-side); the animation is only tracked.
+        BorderAnimator.animate(this, diameter, time, false);
         border.setSize(diameter, time);
     }
 
+    @Override
+    protected void updateDiameter(double diameter)
+    {
+        border.setSize(diameter);
+    }
+
     @Override
     public Location getCenter()
     {
@@ -66,10 +66,38 @@ public abstract class WorldBorder
     public abstract void setDiameter(double diameter);
 
     /**
+     * Changes the diameter of the border progressively, at a constant speed.
+     *
+     * <p>By default, the change is driven by the {@link BorderAnimator}, which calls {@link
+     * #updateDiameter(double)} every tick.</p>
+     *
      * @param diameter The new diameter of the border.
-     * @param time     The ticks used to change the size from the old size to the new one.
+     * @param time     The seconds used to change the size from the old size to the new one.
+     */
+    public void setDiameter(double diameter, long time)
+    {
+        if (time <= 0)
+            setDiameter(diameter);
+        else
+            BorderAnimator.animate(this, diameter, time, true);
+    }
+
+    /**
+     * Updates the diameter of the border during an animation. Unlike {@link #setDiameter(double)},
+     * this must not cancel the running animation.
+     *
+     * @param diameter The current diameter of the animated border.
      */
-    public abstract void setDiameter(double diameter, long time);
+    protected abstract void updateDiameter(double diameter);
+
+    /**
+     * @return The running diameter animation of this border, or {@code null} if the diameter is
+     * not changing.
+     */
+    public BorderAnimation getAnimation()
+    {
+        return BorderAnimator.getAnimation(this);
+    }
 
     /**
      * @return The center of the border.
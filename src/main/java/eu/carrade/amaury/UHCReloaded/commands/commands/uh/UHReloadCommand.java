@@ -0,0 +1,113 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.commands.commands.uh;
+
+import eu.carrade.amaury.UHCReloaded.UHCReloaded;
+import eu.carrade.amaury.UHCReloaded.UHConfigSnapshot;
+import eu.carrade.amaury.UHCReloaded.commands.commands.categories.Category;
+import eu.carrade.amaury.UHCReloaded.commands.core.AbstractCommand;
+import eu.carrade.amaury.UHCReloaded.commands.core.annotations.Command;
+import eu.carrade.amaury.UHCReloaded.commands.core.exceptions.CannotExecuteCommandException;
+import fr.zcraft.zlib.components.i18n.I;
+import org.apache.commons.lang.StringUtils;
+import org.bukkit.command.CommandSender;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * This command reloads the configuration file without restarting the server.
+ *
+ * Usage: /uh reload
+ */
+@Command (name = "reload")
+public class UHReloadCommand extends AbstractCommand
+{
+    private UHCReloaded p;
+
+    public UHReloadCommand(UHCReloaded plugin)
+    {
+        p = plugin;
+    }
+
+    @Override
+    public void run(CommandSender sender, String[] args) throws CannotExecuteCommandException
+    {
+        final Set<String> changed = p.reloadConfiguration();
+
+        if (changed.isEmpty())
+        {
+            sender.sendMessage(I.t("{cs}Configuration reloaded; nothing changed."));
+            return;
+        }
+
+        sender.sendMessage(I.tn("{cs}Configuration reloaded; {0} value changed.", "{cs}Configuration reloaded; {0} values changed.", changed.size(), changed.size()));
+
+        final Set<String> needRestart = new TreeSet<>();
+        for (String key : changed)
+            if (UHConfigSnapshot.requiresRestart(key))
+                needRestart.add(key);
+
+        if (!needRestart.isEmpty())
+        {
+            /// Sent after /uh reload if some changed values are only read at startup. {1} = list of keys (format "key1, key2").
+            sender.sendMessage(I.tn("{ce}{0} change will only be applied after a restart: {1}.", "{ce}{0} changes will only be applied after a restart: {1}.", needRestart.size(), needRestart.size(), StringUtils.join(needRestart, ", ")));
+        }
+    }
+
+    @Override
+    public List<String> tabComplete(CommandSender sender, String[] args)
+    {
+        return null;
+    }
+
+    @Override
+    public List<String> help(CommandSender sender)
+    {
+        return null;
+    }
+
+    @Override
+    public List<String> onListHelp(CommandSender sender)
+    {
+        return Collections.singletonList(I.t("{cc}/uh reload {ci}: reloads the configuration; most changes are applied without restart."));
+    }
+
+    @Override
+    public String getCategory()
+    {
+        return Category.MISC.getTitle();
+    }
+}
@@ -34,9 +34,12 @@ package eu.carrade.amaury.UHCReloaded.commands.commands.uh;
 import eu.carrade.amaury.UHCReloaded.UHCReloaded;
 import eu.carrade.amaury.UHCReloaded.commands.commands.categories.Category;
 import eu.carrade.amaury.UHCReloaded.commands.commands.uh.team.UHTeamAddCommand;
+import eu.carrade.amaury.UHCReloaded.commands.commands.uh.team.UHTeamAutoCommand;
 import eu.carrade.amaury.UHCReloaded.commands.commands.uh.team.UHTeamBannerCommand;
 import eu.carrade.amaury.UHCReloaded.commands.commands.uh.team.UHTeamBannerResetCommand;
+import eu.carrade.amaury.UHCReloaded.commands.commands.uh.team.UHTeamExportCommand;
 import eu.carrade.amaury.UHCReloaded.commands.commands.uh.team.UHTeamGUICommand;
+import eu.carrade.amaury.UHCReloaded.commands.commands.uh.team.UHTeamImportCommand;
 import eu.carrade.amaury.UHCReloaded.commands.commands.uh.team.UHTeamJoinCommand;
 import eu.carrade.amaury.UHCReloaded.commands.commands.uh.team.UHTeamLeaveCommand;
 import eu.carrade.amaury.UHCReloaded.commands.commands.uh.team.UHTeamListCommand;
@@ -57,7 +60,7 @@ import java.util.List;
  * This command is used to manage the teams.
  *
  * Usage: /uh team (for the doc).
- * Usage: /uh team <add|remove|join|leave|banner|list|spy|reset> (see doc for details).
+ * Usage: /uh team <add|remove|join|leave|banner|list|spy|reset|import|export|auto> (see doc for details).
  */
 @Command (name = "team")
 public class UHTeamCommand extends AbstractCommand
@@ -74,6 +77,9 @@ public class UHTeamCommand extends AbstractCommand
         registerSubCommand(new UHTeamSpyCommand(plugin));
         registerSubCommand(new UHTeamResetCommand(plugin));
         registerSubCommand(new UHTeamGUICommand(plugin));
+        registerSubCommand(new UHTeamImportCommand(plugin));
+        registerSubCommand(new UHTeamExportCommand(plugin));
+        registerSubCommand(new UHTeamAutoCommand(plugin));
     }
 
     /**
@@ -0,0 +1,158 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.commands.commands.uh.team;
+
+import eu.carrade.amaury.UHCReloaded.UHCReloaded;
+import eu.carrade.amaury.UHCReloaded.commands.core.AbstractCommand;
+import eu.carrade.amaury.UHCReloaded.commands.core.annotations.Command;
+import eu.carrade.amaury.UHCReloaded.commands.core.exceptions.CannotExecuteCommandException;
+import eu.carrade.amaury.UHCReloaded.teams.UHTeam;
+import fr.zcraft.zlib.components.i18n.I;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+
+@Command (name = "auto")
+public class UHTeamAutoCommand extends AbstractCommand
+{
+    private UHCReloaded p;
+
+    public UHTeamAutoCommand(UHCReloaded plugin)
+    {
+        p = plugin;
+    }
+
+    /**
+     * Runs the command.
+     *
+     * @param sender The sender of the command.
+     * @param args   The arguments passed to the command.
+     *
+     * @throws eu.carrade.amaury.UHCReloaded.commands.core.exceptions.CannotExecuteCommandException If the command cannot be executed.
+     */
+    @Override
+    public void run(CommandSender sender, String[] args) throws CannotExecuteCommandException
+    {
+        // /uh team auto [size]
+        if (args.length > 1)
+        {
+            throw new CannotExecuteCommandException(CannotExecuteCommandException.Reason.BAD_USE, this);
+        }
+
+        if (p.getGameManager().isGameStarted())
+        {
+            sender.sendMessage(I.t("{ce}The teams cannot be generated once the game is started."));
+            return;
+        }
+
+        int teamSize = p.getTeamManager().getMaxPlayersPerTeam();
+
+        if (args.length == 1)
+        {
+            try
+            {
+                teamSize = Integer.parseInt(args[0]);
+            }
+            catch (NumberFormatException e)
+            {
+                teamSize = 0;
+            }
+
+            if (teamSize < 1 || (p.getTeamManager().getMaxPlayersPerTeam() != 0 && teamSize > p.getTeamManager().getMaxPlayersPerTeam()))
+            {
+                sender.sendMessage(I.t("{ce}Invalid teams size: {0}.", args[0]));
+                return;
+            }
+        }
+        else if (teamSize == 0)
+        {
+            sender.sendMessage(I.t("{ce}The teams size is not limited in the configuration; please specify it."));
+            return;
+        }
+
+        // The online players out of any team, spectators excluded.
+        final Set<UUID> playersInTeams = new HashSet<>();
+        for (UHTeam team : p.getTeamManager().getTeams())
+            playersInTeams.addAll(team.getPlayersUUID());
+
+        final List<UUID> players = new ArrayList<>();
+        for (Player player : p.getServer().getOnlinePlayers())
+        {
+            if (!p.getGameManager().isStartupSpectator(player.getUniqueId()) && !playersInTeams.contains(player.getUniqueId()))
+                players.add(player.getUniqueId());
+        }
+
+        if (players.isEmpty())
+        {
+            sender.sendMessage(I.t("{ci}All the players are already in a team."));
+            return;
+        }
+
+        final int createdTeams = p.getTeamManager().autoTeams(players, teamSize);
+
+        sender.sendMessage(I.tn("{cs}{0} player distributed.", "{cs}{0} players distributed.", players.size(), players.size()));
+        sender.sendMessage(I.tn("{cs}{0} team created.", "{cs}{0} teams created.", createdTeams, createdTeams));
+    }
+
+    /**
+     * Tab-completes this command.
+     *
+     * @param sender The sender.
+     * @param args   The arguments passed to the command.
+     *
+     * @return A list of suggestions.
+     */
+    @Override
+    public List<String> tabComplete(CommandSender sender, String[] args)
+    {
+        return null;
+    }
+
+    @Override
+    public List<String> help(CommandSender sender)
+    {
+        return null;
+    }
+
+    @Override
+    public List<String> onListHelp(CommandSender sender)
+    {
+        return Collections.singletonList(I.t("{cc}/uh team auto [size] {ci}: distributes the players out of any team into balanced teams; the incomplete teams are always completed."));
+    }
+}
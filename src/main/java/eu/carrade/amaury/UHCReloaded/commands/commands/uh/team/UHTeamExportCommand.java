@@ -0,0 +1,119 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.commands.commands.uh.team;
+
+import eu.carrade.amaury.UHCReloaded.UHCReloaded;
+import eu.carrade.amaury.UHCReloaded.commands.core.AbstractCommand;
+import eu.carrade.amaury.UHCReloaded.commands.core.annotations.Command;
+import eu.carrade.amaury.UHCReloaded.commands.core.exceptions.CannotExecuteCommandException;
+import fr.zcraft.zlib.components.i18n.I;
+import org.bukkit.command.CommandSender;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+
+@Command (name = "export")
+public class UHTeamExportCommand extends AbstractCommand
+{
+    private UHCReloaded p;
+
+    public UHTeamExportCommand(UHCReloaded plugin)
+    {
+        p = plugin;
+    }
+
+    /**
+     * Runs the command.
+     *
+     * @param sender The sender of the command.
+     * @param args   The arguments passed to the command.
+     *
+     * @throws eu.carrade.amaury.UHCReloaded.commands.core.exceptions.CannotExecuteCommandException If the command cannot be executed.
+     */
+    @Override
+    public void run(CommandSender sender, String[] args) throws CannotExecuteCommandException
+    {
+        // /uh team export <file>
+        if (args.length != 1)
+        {
+            throw new CannotExecuteCommandException(CannotExecuteCommandException.Reason.BAD_USE, this);
+        }
+
+        final File file = UHTeamImportCommand.getRosterFile(args[0]);
+        if (file == null)
+        {
+            sender.sendMessage(I.t("{ce}The teams can only be exported to a .csv or .json file in the plugin directory."));
+            return;
+        }
+
+        try
+        {
+            p.getTeamManager().exportRoster().write(file);
+        }
+        catch (IOException e)
+        {
+            sender.sendMessage(I.t("{ce}Unable to write the teams to {0}: {1}", file.getName(), e.getMessage()));
+            return;
+        }
+
+        sender.sendMessage(I.tn("{cs}{0} team exported to {1}.", "{cs}{0} teams exported to {1}.", p.getTeamManager().getTeams().size(), p.getTeamManager().getTeams().size(), file.getName()));
+    }
+
+    /**
+     * Tab-completes this command.
+     *
+     * @param sender The sender.
+     * @param args   The arguments passed to the command.
+     *
+     * @return A list of suggestions.
+     */
+    @Override
+    public List<String> tabComplete(CommandSender sender, String[] args)
+    {
+        return null;
+    }
+
+    @Override
+    public List<String> help(CommandSender sender)
+    {
+        return null;
+    }
+
+    @Override
+    public List<String> onListHelp(CommandSender sender)
+    {
+        return Collections.singletonList(I.t("{cc}/uh team export <file> {ci}: saves the teams to the given .csv or .json file, in the plugin directory."));
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.commands.commands.uh.team;
+
+import eu.carrade.amaury.UHCReloaded.UHCReloaded;
+import eu.carrade.amaury.UHCReloaded.UHConfig;
+import eu.carrade.amaury.UHCReloaded.commands.core.AbstractCommand;
+import eu.carrade.amaury.UHCReloaded.commands.core.annotations.Command;
+import eu.carrade.amaury.UHCReloaded.commands.core.exceptions.CannotExecuteCommandException;
+import eu.carrade.amaury.UHCReloaded.commands.core.utils.CommandUtils;
+import eu.carrade.amaury.UHCReloaded.teams.TeamsRoster;
+import fr.zcraft.zlib.components.i18n.I;
+import org.bukkit.command.CommandSender;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+
+@Command (name = "import")
+public class UHTeamImportCommand extends AbstractCommand
+{
+    private UHCReloaded p;
+
+    public UHTeamImportCommand(UHCReloaded plugin)
+    {
+        p = plugin;
+    }
+
+    /**
+     * Runs the command.
+     *
+     * @param sender The sender of the command.
+     * @param args   The arguments passed to the command.
+     *
+     * @throws eu.carrade.amaury.UHCReloaded.commands.core.exceptions.CannotExecuteCommandException If the command cannot be executed.
+     */
+    @Override
+    public void run(final CommandSender sender, String[] args) throws CannotExecuteCommandException
+    {
+        // /uh team import <file>
+        if (args.length != 1)
+        {
+            throw new CannotExecuteCommandException(CannotExecuteCommandException.Reason.BAD_USE, this);
+        }
+
+        if (p.getGameManager().isGameStarted())
+        {
+            sender.sendMessage(I.t("{ce}The teams cannot be imported once the game is started."));
+            return;
+        }
+
+        final File file = getRosterFile(args[0]);
+        if (file == null)
+        {
+            sender.sendMessage(I.t("{ce}The teams can only be imported from a .csv or .json file in the plugin directory."));
+            return;
+        }
+
+        if (!file.isFile())
+        {
+            sender.sendMessage(I.t("{ce}The file {0} cannot be found in the plugin directory.", args[0]));
+            return;
+        }
+
+        final TeamsRoster roster;
+        try
+        {
+            roster = TeamsRoster.read(file);
+        }
+        catch (IOException e)
+        {
+            sender.sendMessage(I.t("{ce}Unable to read the teams from {0}: {1}", file.getName(), e.getMessage()));
+            return;
+        }
+
+        /// Message displayed when /uh team import is used, as the names resolution may take some time.
+        sender.sendMessage(I.tn("{cst}Importing {0} team...", "{cst}Importing {0} teams...", roster.getTeams().size(), roster.getTeams().size()));
+
+        p.getTeamManager().importRoster(
+                roster,
+                teamsCount -> sender.sendMessage(I.tn("{cs}{0} team imported.", "{cs}{0} teams imported.", teamsCount, teamsCount)),
+                errors -> {
+                    sender.sendMessage(I.tn("{ce}The teams were not imported, as an error was found:", "{ce}The teams were not imported, as {0} errors were found:", errors.size(), errors.size()));
+                    errors.forEach(error -> sender.sendMessage(I.t("{ce}- {0}", error)));
+                }
+        );
+    }
+
+    /**
+     * Returns the roster file with the given name, in the plugin directory.
+     *
+     * <p>Only {@code .csv} and {@code .json} files are accepted, and the other files of the plugin
+     * (skill ratings, names resolution) are refused, so an export never overwrites them.</p>
+     *
+     * @param name The file name.
+     * @return The file, or {@code null} if the name points outside of the plugin directory or to
+     * a file which is not a roster.
+     */
+    static File getRosterFile(String name)
+    {
+        final String lowerCaseName = name.toLowerCase(Locale.ROOT);
+        if (!lowerCaseName.endsWith(".csv") && !lowerCaseName.endsWith(".json"))
+            return null;
+
+        try
+        {
+            final File dataFolder = UHCReloaded.get().getDataFolder().getCanonicalFile();
+            final File file = new File(dataFolder, name).getCanonicalFile();
+
+            if (!file.toPath().startsWith(dataFolder.toPath()) || file.equals(dataFolder))
+                return null;
+
+            for (String pluginFile : Arrays.asList(UHConfig.TEAMS_OPTIONS.AUTO.RATINGS_FILE.get(), UHConfig.NAMES_RESOLUTION.FILE.get()))
+                if (file.equals(new File(dataFolder, pluginFile).getCanonicalFile()))
+                    return null;
+
+            return file;
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Tab-completes this command.
+     *
+     * @param sender The sender.
+     * @param args   The arguments passed to the command.
+     *
+     * @return A list of suggestions.
+     */
+    @Override
+    public List<String> tabComplete(CommandSender sender, String[] args)
+    {
+        if (args.length == 1)
+        {
+            final List<String> files = new ArrayList<>();
+            final File[] dataFiles = p.getDataFolder().listFiles((dir, fileName) -> fileName.endsWith(".csv") || fileName.endsWith(".json"));
+
+            if (dataFiles != null)
+                for (File file : dataFiles)
+                    files.add(file.getName());
+
+            return CommandUtils.getAutocompleteSuggestions(args[0], files);
+        }
+
+        return null;
+    }
+
+    @Override
+    public List<String> help(CommandSender sender)
+    {
+        return null;
+    }
+
+    @Override
+    public List<String> onListHelp(CommandSender sender)
+    {
+        return Collections.singletonList(I.t("{cc}/uh team import <file> {ci}: replaces the teams by the ones in the given CSV or JSON file."));
+    }
+}
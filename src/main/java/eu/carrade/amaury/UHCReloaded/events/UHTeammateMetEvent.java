@@ -0,0 +1,91 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.events;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+
+/**
+ * Called when two players of the same team meet for the first time during the game, i.e. when
+ * they come closer than the configured distance.
+ * <p>
+ * This event is only called once for each pair of teammates, after the beginning of the damages
+ * (to avoid false meetings while teleporting).
+ */
+public class UHTeammateMetEvent extends Event
+{
+    private final Player player;
+    private final Player teammate;
+
+    public UHTeammateMetEvent(Player player, Player teammate)
+    {
+        this.player = player;
+        this.teammate = teammate;
+    }
+
+    /**
+     * Returns the player who moved closer to his teammate.
+     *
+     * @return The player.
+     */
+    public Player getPlayer()
+    {
+        return player;
+    }
+
+    /**
+     * Returns the teammate met.
+     *
+     * @return The teammate.
+     */
+    public Player getTeammate()
+    {
+        return teammate;
+    }
+
+
+
+    private static final HandlerList handlers = new HandlerList();
+
+    @Override
+    public HandlerList getHandlers()
+    {
+        return handlers;
+    }
+
+    public static HandlerList getHandlerList()
+    {
+        return handlers;
+    }
+}
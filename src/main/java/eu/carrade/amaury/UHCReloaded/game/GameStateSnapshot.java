@@ -0,0 +1,257 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.game;
+
+import eu.carrade.amaury.UHCReloaded.UHCReloaded;
+import eu.carrade.amaury.UHCReloaded.misc.Freezer;
+import eu.carrade.amaury.UHCReloaded.teams.UHTeam;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+
+/**
+ * An immutable copy of the game state (teams, membership, alive players, counters, episode and
+ * freeze state), readable from any thread without locking.
+ *
+ * <p>A new snapshot is captured on the main thread after each change, at most once per tick, and
+ * published atomically (see {@link UHGameManager#getSnapshot()}). It is intended for the
+ * asynchronous readers (sidebar, chat); the main thread should keep using the managers, as the
+ * snapshot can be one tick late.</p>
+ */
+public final class GameStateSnapshot
+{
+    static final GameStateSnapshot EMPTY = new GameStateSnapshot();
+
+    private final boolean gameStarted;
+    private final boolean gameFinished;
+    private final boolean gameWithTeams;
+    private final boolean takingDamage;
+    private final int episode;
+
+    private final int alivePlayersCount;
+    private final int aliveTeamsCount;
+    private final Set<UUID> alivePlayers;
+
+    private final Set<UHTeam> teams;
+    private final Map<UUID, UHTeam> teamsByPlayer;
+    private final Map<UHTeam, Set<UUID>> teamsMembers;
+
+    private final boolean globalFreezeDisplayed;
+    private final Set<UUID> frozenPlayers;
+
+
+    private GameStateSnapshot()
+    {
+        gameStarted = false;
+        gameFinished = false;
+        gameWithTeams = true;
+        takingDamage = false;
+        episode = 0;
+
+        alivePlayersCount = 0;
+        aliveTeamsCount = 0;
+        alivePlayers = Collections.emptySet();
+
+        teams = Collections.emptySet();
+        teamsByPlayer = Collections.emptyMap();
+        teamsMembers = Collections.emptyMap();
+
+        globalFreezeDisplayed = false;
+        frozenPlayers = Collections.emptySet();
+    }
+
+    /**
+     * Captures the current state. Must be called from the main thread.
+     *
+     * @param p The plugin.
+     */
+    GameStateSnapshot(UHCReloaded p)
+    {
+        final UHGameManager gameManager = p.getGameManager();
+        final Freezer freezer = p.getFreezer();
+
+        gameStarted = gameManager.isGameStarted();
+        gameFinished = gameManager.isGameFinished();
+        gameWithTeams = gameManager.isGameWithTeams();
+        takingDamage = gameManager.isTakingDamage();
+        episode = gameManager.getEpisode();
+
+        alivePlayersCount = gameManager.getAlivePlayersCount();
+        aliveTeamsCount = gameManager.getAliveTeamsCount();
+        alivePlayers = Collections.unmodifiableSet(new HashSet<>(gameManager.getAlivePlayersUUID()));
+
+        final Map<UUID, UHTeam> teamsByPlayer = new HashMap<>();
+        final Map<UHTeam, Set<UUID>> teamsMembers = new HashMap<>();
+
+        for (UHTeam team : p.getTeamManager().getTeams())
+        {
+            teamsMembers.put(team, team.getPlayersUUID());
+
+            for (UUID member : team.getPlayersUUID())
+                teamsByPlayer.put(member, team);
+        }
+
+        this.teams = Collections.unmodifiableSet(new HashSet<>(teamsMembers.keySet()));
+        this.teamsByPlayer = Collections.unmodifiableMap(teamsByPlayer);
+        this.teamsMembers = Collections.unmodifiableMap(teamsMembers);
+
+        globalFreezeDisplayed = freezer.getGlobalFreezeState() && !freezer.isHiddenFreeze();
+        frozenPlayers = Collections.unmodifiableSet(new HashSet<>(freezer.getFrozenPlayersUUID()));
+    }
+
+
+    /**
+     * @return true if the game is started.
+     */
+    public boolean isGameStarted()
+    {
+        return gameStarted;
+    }
+
+    /**
+     * @return true if the game is finished.
+     */
+    public boolean isGameFinished()
+    {
+        return gameFinished;
+    }
+
+    /**
+     * @return true if the game is a game with teams, and false if the game is a solo game.
+     */
+    public boolean isGameWithTeams()
+    {
+        return gameWithTeams;
+    }
+
+    /**
+     * @return true if damages are enabled.
+     */
+    public boolean isTakingDamage()
+    {
+        return takingDamage;
+    }
+
+    /**
+     * @return the number of the current episode.
+     */
+    public int getEpisode()
+    {
+        return episode;
+    }
+
+    /**
+     * @return the number of alive players.
+     */
+    public int getAlivePlayersCount()
+    {
+        return alivePlayersCount;
+    }
+
+    /**
+     * @return the number of alive teams.
+     */
+    public int getAliveTeamsCount()
+    {
+        return aliveTeamsCount;
+    }
+
+    /**
+     * Returns true if the given player is dead.
+     *
+     * @param player The UUID of the player.
+     *
+     * @return True if the player is dead.
+     */
+    public boolean isPlayerDead(UUID player)
+    {
+        return !alivePlayers.contains(player);
+    }
+
+    /**
+     * @return the registered teams.
+     */
+    public Set<UHTeam> getTeams()
+    {
+        return teams;
+    }
+
+    /**
+     * Returns the team of a player.
+     *
+     * @param player The UUID of the player.
+     *
+     * @return The team of this player, or {@code null} if he is not in a team.
+     */
+    public UHTeam getTeamForPlayer(UUID player)
+    {
+        return teamsByPlayer.get(player);
+    }
+
+    /**
+     * Returns the members of a team, as they were when this snapshot was captured.
+     *
+     * @param team The team.
+     *
+     * @return The UUIDs of the members (empty if the team was not registered).
+     */
+    public Set<UUID> getTeamMembers(UHTeam team)
+    {
+        final Set<UUID> members = teamsMembers.get(team);
+        return members != null ? members : Collections.emptySet();
+    }
+
+    /**
+     * @return true if the game is globally frozen, and this freeze is not hidden.
+     */
+    public boolean isGlobalFreezeDisplayed()
+    {
+        return globalFreezeDisplayed;
+    }
+
+    /**
+     * Returns true if the given player is frozen.
+     *
+     * @param player The UUID of the player.
+     *
+     * @return true if the given player is frozen.
+     */
+    public boolean isPlayerFrozen(UUID player)
+    {
+        return frozenPlayers.contains(player);
+    }
+}
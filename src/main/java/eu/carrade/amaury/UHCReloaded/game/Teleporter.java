@@ -31,7 +31,7 @@
  */
 package eu.carrade.amaury.UHCReloaded.game;
 
-import eu.carrade.amaury.UHCReloaded.UHConfig;
+import eu.carrade.amaury.UHCReloaded.UHCReloaded;
 import eu.carrade.amaury.UHCReloaded.utils.UHUtils;
 import fr.zcraft.zlib.tools.Callback;
 import fr.zcraft.zlib.tools.runners.RunTask;
@@ -287,7 +287,7 @@ public class Teleporter
                         onTeleportationProcessFinished
                 ),
                 1L,
-                UHConfig.START.SLOW.DELAY_BETWEEN_TP.get() * 20L
+                UHCReloaded.get().getConfigSnapshot().getSlowStartDelayBetweenTeleportations() * 20L
             );
         }
     }
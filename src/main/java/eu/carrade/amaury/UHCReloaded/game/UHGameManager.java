@@ -39,11 +39,13 @@ import eu.carrade.amaury.UHCReloaded.events.UHGameStartsEvent;
 import eu.carrade.amaury.UHCReloaded.events.UHPlayerResurrectedEvent;
 import eu.carrade.amaury.UHCReloaded.misc.OfflinePlayersLoader;
 import eu.carrade.amaury.UHCReloaded.protips.ProTips;
+import eu.carrade.amaury.UHCReloaded.scoreboard.GameSidebar;
 import eu.carrade.amaury.UHCReloaded.task.FireworksOnWinnersTask;
 import eu.carrade.amaury.UHCReloaded.teams.TeamColor;
 import eu.carrade.amaury.UHCReloaded.teams.TeamManager;
 import eu.carrade.amaury.UHCReloaded.teams.UHTeam;
 import eu.carrade.amaury.UHCReloaded.timers.UHTimer;
+import eu.carrade.amaury.UHCReloaded.utils.I18nTemplates;
 import eu.carrade.amaury.UHCReloaded.utils.UHSound;
 import eu.carrade.amaury.UHCReloaded.utils.UHUtils;
 import fr.zcraft.zlib.components.i18n.I;
@@ -74,9 +76,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
-import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 
@@ -95,10 +97,16 @@ public class UHGameManager
 
     private UHCReloaded p;
     private TeamManager tm;
-    private Random random;
 
     private Boolean damagesEnabled = false;
     private Boolean mobsOnSurface = false;
+    private Boolean peacePeriodRunning = false;
+
+    // The ends of the grace, peace and surface-mobs-free periods ({@link System#nanoTime()}
+    // timestamps), saved to resume these periods after a restart.
+    private long gracePeriodEnd = 0L;
+    private long peacePeriodEnd = 0L;
+    private long surfaceMobsFreePeriodEnd = 0L;
 
     private Set<String> players = new HashSet<>(); // Will be converted to UUID when a built-in API for name->UUID conversion will be available
     private Set<UUID> alivePlayers = new HashSet<>();
@@ -123,6 +131,9 @@ public class UHGameManager
 
     private Teleporter teleporter = null;
 
+    private volatile GameStateSnapshot snapshot = GameStateSnapshot.EMPTY;
+    private boolean snapshotPublishScheduled = false;
+
     // Used to send a contextual error message in UHCommandManager, using only one exception,
     // by checking the message. (Used in this.finishGame().)
     public final static String FINISH_ERROR_NOT_STARTED = "Unable to finish the game: the game is not started";
@@ -134,8 +145,6 @@ public class UHGameManager
         this.p = plugin;
         this.tm = p.getTeamManager();
 
-        this.random = new Random();
-
 
         // Loads the config
 
@@ -259,6 +268,7 @@ public class UHGameManager
         if (tm.getTeams().isEmpty())
         {
             gameWithTeams = false;
+            invalidateSnapshot();
 
             Bukkit.getOnlinePlayers().stream().filter(player -> !spectators.contains(player.getUniqueId())).forEach(player ->
             {
@@ -274,6 +284,7 @@ public class UHGameManager
         else
         {
             gameWithTeams = true;
+            invalidateSnapshot();
 
             Bukkit.getOnlinePlayers().stream()
                     .filter(player -> !spectators.contains(player.getUniqueId()))
@@ -282,9 +293,9 @@ public class UHGameManager
                     {
                         // We need an unique name for the team.
                         String teamName = player.getName();
-                        while (tm.isTeamRegistered(teamName))
+                        for (int suffix = 2; tm.isTeamRegistered(teamName); suffix++)
                         {
-                            teamName = player.getName() + " " + random.nextInt(1000000);
+                            teamName = player.getName() + " " + suffix;
                         }
 
                         final UHTeam team = new UHTeam(teamName, RANDOM_COLORS_IN_SOLO ? TeamColor.RANDOM : null);
@@ -428,7 +439,7 @@ public class UHGameManager
                     if (BROADCAST_SLOW_START_PROGRESS)
                     {
                         /// Displayed in the action bar while the slow teleportation occurs.
-                        final String message = I.t("{lightpurple}Teleporting... {gray}({0}/{1})", teleported, total);
+                        final String message = I18nTemplates.t("{lightpurple}Teleporting... {gray}({0}/{1})", teleported, total);
                         for (Player player : Bukkit.getOnlinePlayers())
                         {
                             ActionBar.sendPermanentMessage(player, message);
@@ -588,6 +599,7 @@ public class UHGameManager
         if (UHConfig.EPISODES.ENABLED.get())
         {
             this.episode = 1;
+            invalidateSnapshot();
 
             // An empty string is used for the name of the main timer, because
             // such a name can't be used by players.
@@ -605,30 +617,112 @@ public class UHGameManager
      */
     private void scheduleDamages()
     {
+        scheduleDamages(GRACE_PERIOD, PEACE_PERIOD, SURFACE_MOBS_FREE_PERIOD);
+    }
+
+    /**
+     * Enables the damages, the PvP and the mobs spawns on the surface after the given delays.
+     *
+     * @param gracePeriod           The ticks before the damages are enabled; zero if the grace
+     *                              period is already over.
+     * @param peacePeriod           The ticks before the PvP is enabled; zero if there isn't any
+     *                              peace period, or if it is already over.
+     * @param surfaceMobsFreePeriod The ticks before the mobs can spawn on the surface; zero if
+     *                              this period is already over.
+     */
+    private void scheduleDamages(long gracePeriod, long peacePeriod, long surfaceMobsFreePeriod)
+    {
+        final long now = System.nanoTime();
+
         // When the grace period is over, damages are enabled.
-        RunTask.later(() -> {
-            damagesEnabled = true;
+        if (gracePeriod > 0)
+        {
+            gracePeriodEnd = now + ticksToNanos(gracePeriod);
 
-            if (UHConfig.START.BROADCAST_GRACE_END.get())
-            {
-                Bukkit.broadcastMessage(I.t("{red}{bold}Warning!{white} The grace period ended, you are now vulnerable."));
-            }
-        }, GRACE_PERIOD);
+            RunTask.later(() -> {
+                damagesEnabled = true;
+                invalidateSnapshot();
+
+                if (UHConfig.START.BROADCAST_GRACE_END.get())
+                {
+                    Bukkit.broadcastMessage(I.t("{red}{bold}Warning!{white} The grace period ended, you are now vulnerable."));
+                }
+            }, gracePeriod);
+        }
+        else
+        {
+            damagesEnabled = true;
+            invalidateSnapshot();
+        }
 
         // When the peace period is over, PVP is enabled
-        if (PEACE_PERIOD > 0)
+        if (peacePeriod > 0)
         {
+            peacePeriodRunning = true;
+            peacePeriodEnd = now + ticksToNanos(peacePeriod);
+
             Bukkit.getWorlds().forEach(world -> world.setPVP(false));
 
             RunTask.later(() ->
             {
+                peacePeriodRunning = false;
+
                 Bukkit.getWorlds().forEach(world -> world.setPVP(true));
                 Bukkit.broadcastMessage(I.t("{red}{bold}Warning!{white} PvP is now enabled."));
-            }, PEACE_PERIOD);
+            }, peacePeriod);
         }
 
         // Allows mobs to spawn on the surface after the mobs-free period
-        RunTask.later(() -> mobsOnSurface = true, SURFACE_MOBS_FREE_PERIOD);
+        if (surfaceMobsFreePeriod > 0)
+        {
+            surfaceMobsFreePeriodEnd = now + ticksToNanos(surfaceMobsFreePeriod);
+            RunTask.later(() -> mobsOnSurface = true, surfaceMobsFreePeriod);
+        }
+        else
+        {
+            mobsOnSurface = true;
+        }
+    }
+
+    private static long ticksToNanos(long ticks)
+    {
+        return TimeUnit.MILLISECONDS.toNanos(ticks * 50L);
+    }
+
+    /**
+     * Returns the time left before the end of a period, at least one millisecond as the period
+     * is not over until its task ran.
+     */
+    private static long getPeriodLeft(long periodEnd)
+    {
+        return Math.max(TimeUnit.NANOSECONDS.toMillis(periodEnd - System.nanoTime()), 1L);
+    }
+
+    /**
+     * @return the time left before the end of the grace period, in milliseconds; zero if the
+     * damages are enabled.
+     */
+    public long getGracePeriodLeft()
+    {
+        return damagesEnabled ? 0L : getPeriodLeft(gracePeriodEnd);
+    }
+
+    /**
+     * @return the time left before the end of the peace period, in milliseconds; zero if there
+     * isn't any running peace period.
+     */
+    public long getPeacePeriodLeft()
+    {
+        return peacePeriodRunning ? getPeriodLeft(peacePeriodEnd) : 0L;
+    }
+
+    /**
+     * @return the time left before the mobs can spawn on the surface, in milliseconds; zero if
+     * they already can.
+     */
+    public long getSurfaceMobsFreePeriodLeft()
+    {
+        return mobsOnSurface ? 0L : getPeriodLeft(surfaceMobsFreePeriodEnd);
     }
 
     /**
@@ -721,6 +815,8 @@ public class UHGameManager
         this.alivePlayersCount = alivePlayers.size();
         this.aliveTeamsCount = aliveTeams.size();
 
+        invalidateSnapshot();
+
         if (isGameRunning())
             p.getMOTDManager().updateMOTDDuringGame();
     }
@@ -745,6 +841,7 @@ public class UHGameManager
         if (UHConfig.EPISODES.ENABLED.get())
         {
             this.episode++;
+            invalidateSnapshot();
 
             final EpisodeChangedCause cause;
             if (shifter == null || shifter.equals("")) cause = EpisodeChangedCause.FINISHED;
@@ -925,6 +1022,25 @@ public class UHGameManager
         spectators.remove(player.getUniqueId());
     }
 
+    /**
+     * Checks if the given player is registered as a spectator.
+     *
+     * @param id The player's UUID.
+     * @return {@code true} if this player will be a spectator when the game starts.
+     */
+    public boolean isStartupSpectator(UUID id)
+    {
+        return spectators.contains(id);
+    }
+
+    /**
+     * @return the UUIDs of the registered spectators (see {@link #getStartupSpectators()}).
+     */
+    public Set<UUID> getStartupSpectatorsUUID()
+    {
+        return Collections.unmodifiableSet(spectators);
+    }
+
     /**
      * Returns a list of the current registered spectators.
      *
@@ -985,6 +1101,7 @@ public class UHGameManager
     public void setGameFinished(boolean finished)
     {
         gameFinished = finished;
+        invalidateSnapshot();
     }
 
     /**
@@ -1174,6 +1291,16 @@ public class UHGameManager
                 .collect(Collectors.toCollection(HashSet::new));
     }
 
+    /**
+     * Returns the UUIDs of the currently alive players.
+     *
+     * @return An unmodifiable view of the set.
+     */
+    public Set<UUID> getAlivePlayersUUID()
+    {
+        return Collections.unmodifiableSet(alivePlayers);
+    }
+
     /**
      * Returns a list of the currently alive and online players.
      *
@@ -1201,7 +1328,7 @@ public class UHGameManager
      */
     public Integer getEpisodeLength()
     {
-        return UHUtils.string2Time(UHConfig.EPISODES.LENGTH.get(), 20*60);
+        return p.getConfigSnapshot().getEpisodeLength();
     }
 
     /**
@@ -1228,6 +1355,108 @@ public class UHGameManager
         return episode;
     }
 
+    /**
+     * Resumes a game running before a restart.
+     *
+     * <p>Restored: the episode, the alive players and their teams, the startup spectators (the
+     * online dead players and spectators are put back in spectator mode), and the time left in
+     * the grace, peace and surface-mobs-free periods, re-scheduled like at the start of the game.
+     * The timers and the border are restored by the {@link eu.carrade.amaury.UHCReloaded.timers.TimerManager}.</p>
+     *
+     * <p>Not restored: the death locations, the dead players waiting for their resurrection, the
+     * kills displayed in the sidebar, and the freeze state. The environment (difficulty, game
+     * rules) is saved with the worlds.</p>
+     *
+     * @param episode                   The episode.
+     * @param withTeams                 {@code true} if the game is played with teams.
+     * @param alivePlayers              The alive players, with the name of their team (empty if
+     *                                  none). The missing teams (e.g. created on-the-fly at the
+     *                                  start) are re-created.
+     * @param spectators                The startup spectators.
+     * @param gracePeriodLeft           The time left in the grace period, in milliseconds.
+     * @param peacePeriodLeft           The time left in the peace period, in milliseconds.
+     * @param surfaceMobsFreePeriodLeft The time left before the mobs can spawn on the surface,
+     *                                  in milliseconds.
+     */
+    public void restoreRunningGame(int episode, boolean withTeams, Map<UUID, String> alivePlayers, Set<UUID> spectators,
+                                   long gracePeriodLeft, long peacePeriodLeft, long surfaceMobsFreePeriodLeft)
+    {
+        this.episode = episode;
+        this.gameWithTeams = withTeams;
+
+        this.alivePlayers.clear();
+        this.alivePlayers.addAll(alivePlayers.keySet());
+
+        this.spectators.clear();
+        this.spectators.addAll(spectators);
+
+        for (Map.Entry<UUID, String> alivePlayer : alivePlayers.entrySet())
+        {
+            if (alivePlayer.getValue().isEmpty()) continue;
+
+            final OfflinePlayer player = Bukkit.getOfflinePlayer(alivePlayer.getKey());
+            if (tm.getTeamForPlayer(player) != null) continue;
+
+            UHTeam team = tm.getTeam(alivePlayer.getValue());
+            if (team == null)
+                team = tm.addTeam(new UHTeam(alivePlayer.getValue(), RANDOM_COLORS_IN_SOLO ? TeamColor.RANDOM : null));
+
+            team.addPlayer(player, true);
+        }
+
+        // Rounded up, so a period is never considered over before its end.
+        scheduleDamages((gracePeriodLeft + 49L) / 50L, (peacePeriodLeft + 49L) / 50L, (surfaceMobsFreePeriodLeft + 49L) / 50L);
+
+        gameStarted = true;
+        gameFinished = false;
+
+        updateAliveCache();
+
+        Bukkit.getOnlinePlayers().stream()
+                .filter(player -> !this.alivePlayers.contains(player.getUniqueId()))
+                .filter(player -> this.spectators.contains(player.getUniqueId()) || UHConfig.SPECTATOR_MODE_WHEN_NEW_PLAYER_JOIN_AFTER_START.get())
+                .forEach(player -> p.getSpectatorsManager().setSpectating(player, true));
+
+        p.getBorderManager().getChunksTrimmer().start();
+    }
+
+    /**
+     * Returns the last published snapshot of the game state.
+     *
+     * <p>This can be called from any thread, without locking. The snapshot may be one tick late:
+     * the main thread should use this manager directly.</p>
+     *
+     * @return The snapshot.
+     */
+    public GameStateSnapshot getSnapshot()
+    {
+        return snapshot;
+    }
+
+    /**
+     * Requests a new snapshot of the game state, to be captured and published at the next tick.
+     * The changes of the same tick are published at once.
+     *
+     * Must be called from the main thread after any change of the data stored in the snapshot.
+     */
+    public void invalidateSnapshot()
+    {
+        if (snapshotPublishScheduled) return;
+        snapshotPublishScheduled = true;
+
+        RunTask.nextTick(() -> {
+            snapshotPublishScheduled = false;
+            snapshot = new GameStateSnapshot(p);
+
+            // The sidebar renders from the snapshot.
+            if (p.getScoreboardManager() != null)
+            {
+                p.getScoreboardManager().markSidebarDirty(GameSidebar.Section.TOP);
+                p.getScoreboardManager().markSidebarDirty(GameSidebar.Section.PLAYERS);
+            }
+        });
+    }
+
 
     /**
      * @return the teleporter instance used to start the game, containing the spawn points of each
@@ -33,7 +33,6 @@
 package eu.carrade.amaury.UHCReloaded.integration;
 
 import eu.carrade.amaury.UHCReloaded.UHCReloaded;
-import eu.carrade.amaury.UHCReloaded.UHConfig;
 import eu.carrade.amaury.UHCReloaded.teams.TeamColor;
 import eu.carrade.amaury.UHCReloaded.teams.UHTeam;
 import fr.zcraft.zlib.components.i18n.I;
@@ -133,7 +132,7 @@ public class UHDynmapIntegration
             return;
         }
 
-        if (!UHConfig.DYNMAP.SHOW_DEATH_LOCATIONS.get())
+        if (!UHCReloaded.get().getConfigSnapshot().isDynmapShowDeathLocations())
         {
             return;
         }
@@ -169,7 +168,7 @@ public class UHDynmapIntegration
             return;
         }
 
-        if (!UHCReloaded.get().getConfig().getBoolean("dynmap.showDeathLocations"))
+        if (!UHCReloaded.get().getConfigSnapshot().isDynmapShowDeathLocations())
         {
             return;
         }
@@ -208,7 +207,7 @@ public class UHDynmapIntegration
             return;
         }
 
-        if (!UHConfig.DYNMAP.SHOW_SPAWN_LOCATIONS.get())
+        if (!UHCReloaded.get().getConfigSnapshot().isDynmapShowSpawnLocations())
         {
             return;
         }
@@ -274,7 +273,7 @@ public class UHDynmapIntegration
             return;
         }
 
-        if (!UHConfig.DYNMAP.SHOW_SPAWN_LOCATIONS.get())
+        if (!UHCReloaded.get().getConfigSnapshot().isDynmapShowSpawnLocations())
         {
             return;
         }
@@ -32,15 +32,37 @@
 
 package eu.carrade.amaury.UHCReloaded.integration;
 
+import com.comphenix.protocol.PacketType;
 import com.comphenix.protocol.ProtocolLibrary;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.wrappers.EnumWrappers;
 import eu.carrade.amaury.UHCReloaded.UHCReloaded;
 import eu.carrade.amaury.UHCReloaded.UHConfig;
 import eu.carrade.amaury.UHCReloaded.listeners.PacketsListener;
 import fr.zcraft.zlib.tools.PluginLogger;
+import fr.zcraft.zlib.tools.runners.RunTask;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 
 public class UHProtocolLibIntegration
 {
+    private final ProtocolManager pm = ProtocolLibrary.getProtocolManager();
+
+    private final Set<UUID> pendingHealthScores = new HashSet<>();
+    private final Set<UUID> pendingHealthScoresSyncs = new HashSet<>();
+    private String healthObjective = null;
+    private boolean healthScoresFlushScheduled = false;
+
+
     public UHProtocolLibIntegration(UHCReloaded p)
     {
         PacketsListener packetsListener = new PacketsListener(p);
@@ -57,4 +79,105 @@ public class UHProtocolLibIntegration
 
         PluginLogger.info("Successfully hooked into ProtocolLib.");
     }
+
+    /**
+     * Sends the health score of the given player to everyone, directly through scoreboard packets
+     * (without touching the actual health).
+     *
+     * <p>The updates requested during a tick are sent at once, at the next tick.</p>
+     *
+     * @param player    The player.
+     * @param objective The name of the health objective.
+     */
+    public void queueHealthScoreUpdate(Player player, String objective)
+    {
+        pendingHealthScores.add(player.getUniqueId());
+        scheduleHealthScoresFlush(objective);
+    }
+
+    /**
+     * Sends the health scores of everyone to the given player, e.g. when they just received the
+     * scoreboard, without the right scores.
+     *
+     * <p>The updates requested during a tick are sent at once, at the next tick.</p>
+     *
+     * @param viewer    The player.
+     * @param objective The name of the health objective.
+     */
+    public void queueHealthScoresSync(Player viewer, String objective)
+    {
+        pendingHealthScoresSyncs.add(viewer.getUniqueId());
+        scheduleHealthScoresFlush(objective);
+    }
+
+    private void scheduleHealthScoresFlush(String objective)
+    {
+        healthObjective = objective;
+
+        if (!healthScoresFlushScheduled)
+        {
+            healthScoresFlushScheduled = true;
+            RunTask.nextTick(this::flushHealthScores);
+        }
+    }
+
+    private void flushHealthScores()
+    {
+        healthScoresFlushScheduled = false;
+
+        final List<PacketContainer> updatedScores = new ArrayList<>();
+        List<PacketContainer> allScores = null;
+
+        for (UUID id : pendingHealthScores)
+        {
+            final Player player = Bukkit.getPlayer(id);
+            if (player != null) updatedScores.add(createHealthScorePacket(player));
+        }
+
+        for (Player viewer : Bukkit.getOnlinePlayers())
+        {
+            if (pendingHealthScoresSyncs.contains(viewer.getUniqueId()))
+            {
+                if (allScores == null)
+                {
+                    allScores = new ArrayList<>();
+                    for (Player player : Bukkit.getOnlinePlayers())
+                        allScores.add(createHealthScorePacket(player));
+                }
+
+                sendPackets(viewer, allScores);
+            }
+            else if (!updatedScores.isEmpty())
+            {
+                sendPackets(viewer, updatedScores);
+            }
+        }
+
+        pendingHealthScores.clear();
+        pendingHealthScoresSyncs.clear();
+    }
+
+    private PacketContainer createHealthScorePacket(Player player)
+    {
+        final PacketContainer packet = pm.createPacket(PacketType.Play.Server.SCOREBOARD_SCORE);
+
+        packet.getStrings().write(0, player.getName()).write(1, healthObjective);
+        packet.getIntegers().write(0, (int) Math.ceil(player.getHealth()));
+        packet.getScoreboardActions().write(0, EnumWrappers.ScoreboardAction.CHANGE);
+
+        return packet;
+    }
+
+    private void sendPackets(Player viewer, List<PacketContainer> packets)
+    {
+        try
+        {
+            for (PacketContainer packet : packets)
+                pm.sendServerPacket(viewer, packet);
+        }
+        catch (InvocationTargetException e)
+        {
+            PluginLogger.error("Unable to send the health scores to {0}", e, viewer.getName());
+        }
+    }
 }
@@ -32,7 +32,7 @@
 package eu.carrade.amaury.UHCReloaded.listeners;
 
 import eu.carrade.amaury.UHCReloaded.UHCReloaded;
-import eu.carrade.amaury.UHCReloaded.UHConfig;
+import eu.carrade.amaury.UHCReloaded.UHConfigSnapshot;
 import eu.carrade.amaury.UHCReloaded.events.UHGameStartsEvent;
 import eu.carrade.amaury.UHCReloaded.gui.teams.TeamsSelectorGUI;
 import fr.zcraft.zlib.components.gui.Gui;
@@ -65,7 +65,7 @@ public class BeforeGameListener implements Listener
      */
     private boolean excludeBuilder(Permissible player)
     {
-        return UHConfig.BEFORE_START.INVENTORY.ALLOW_FOR_BUILDERS.get() && player.hasPermission("uh.build");
+        return UHCReloaded.get().getConfigSnapshot().isBeforeStartAllowInventoryForBuilders() && player.hasPermission("uh.build");
     }
 
     /**
@@ -80,9 +80,11 @@ public class BeforeGameListener implements Listener
     {
         if (UHCReloaded.get().getGameManager().isGameStarted()) return;
 
-        if (UHConfig.BEFORE_START.TEAM_SELECTOR.ENABLED.get()
+        final UHConfigSnapshot config = UHCReloaded.get().getConfigSnapshot();
+
+        if (config.isTeamSelectorEnabled()
                 && item != null
-                && item.getType() == UHConfig.BEFORE_START.TEAM_SELECTOR.ITEM.get())
+                && item.getType() == config.getTeamSelectorItem())
         {
             Gui.open(player, new TeamsSelectorGUI());
         }
@@ -93,17 +95,18 @@ public class BeforeGameListener implements Listener
     {
         if (UHCReloaded.get().getGameManager().isGameStarted()) return;
 
+        final UHConfigSnapshot config = UHCReloaded.get().getConfigSnapshot();
         final boolean builder = excludeBuilder(ev.getPlayer());
 
-        if (!builder && UHConfig.BEFORE_START.INVENTORY.CLEAR.get())
+        if (!builder && config.isBeforeStartClearInventory())
         {
             ev.getPlayer().getInventory().clear();
             ev.getPlayer().getInventory().setArmorContents(null);
         }
 
-        if (UHConfig.BEFORE_START.TEAM_SELECTOR.ENABLED.get())
+        if (config.isTeamSelectorEnabled())
         {
-            Material itemType = UHConfig.BEFORE_START.TEAM_SELECTOR.ITEM.get();
+            Material itemType = config.getTeamSelectorItem();
 
             ItemStack item = new ItemStackBuilder(itemType)
                     /// The title of the item given before the game to select a team
@@ -118,7 +121,7 @@ public class BeforeGameListener implements Listener
                 ev.getPlayer().getInventory().setItem(4, item);
         }
 
-        if (UHConfig.BEFORE_START.TEAM_IN_ACTION_BAR.get())
+        if (config.isTeamInActionBar())
         {
             UHCReloaded.get().getTeamManager().displayTeamInActionBar(ev.getPlayer());
         }
@@ -140,7 +143,7 @@ public class BeforeGameListener implements Listener
     @EventHandler
     public void onPlayerClick(InventoryClickEvent ev)
     {
-        if (UHConfig.BEFORE_START.INVENTORY.PREVENT_USAGE.get())
+        if (UHCReloaded.get().getConfigSnapshot().isBeforeStartPreventInventoryUsage())
         {
             if (UHCReloaded.get().getGameManager().isGameStarted()) return;
             if (excludeBuilder(ev.getWhoClicked())) return;
@@ -153,7 +156,7 @@ public class BeforeGameListener implements Listener
     @EventHandler
     public void onPlayerDrag(InventoryDragEvent ev)
     {
-        if (UHConfig.BEFORE_START.INVENTORY.PREVENT_USAGE.get())
+        if (UHCReloaded.get().getConfigSnapshot().isBeforeStartPreventInventoryUsage())
         {
             if (UHCReloaded.get().getGameManager().isGameStarted()) return;
             if (excludeBuilder(ev.getWhoClicked())) return;
@@ -166,7 +169,7 @@ public class BeforeGameListener implements Listener
     @EventHandler
     public void onPlayerDrop(PlayerDropItemEvent ev)
     {
-        if (UHConfig.BEFORE_START.INVENTORY.PREVENT_USAGE.get())
+        if (UHCReloaded.get().getConfigSnapshot().isBeforeStartPreventInventoryUsage())
         {
             if (UHCReloaded.get().getGameManager().isGameStarted()) return;
             if (excludeBuilder(ev.getPlayer())) return;
@@ -181,7 +184,7 @@ public class BeforeGameListener implements Listener
         if (UHCReloaded.get().getGameManager().isGameStarted()) return;
         if (excludeBuilder(ev.getPlayer())) return;
 
-        if (UHConfig.BEFORE_START.INVENTORY.PREVENT_USAGE.get())
+        if (UHCReloaded.get().getConfigSnapshot().isBeforeStartPreventInventoryUsage())
         {
             ev.setCancelled(true);
         }
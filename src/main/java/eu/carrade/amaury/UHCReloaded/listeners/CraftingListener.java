@@ -33,8 +33,8 @@
 package eu.carrade.amaury.UHCReloaded.listeners;
 
 import eu.carrade.amaury.UHCReloaded.UHCReloaded;
-import eu.carrade.amaury.UHCReloaded.UHConfig;
 import eu.carrade.amaury.UHCReloaded.protips.ProTips;
+import eu.carrade.amaury.UHCReloaded.recipes.RecipeVerdict;
 import eu.carrade.amaury.UHCReloaded.recipes.RecipesManager;
 import eu.carrade.amaury.UHCReloaded.teams.UHTeam;
 import fr.zcraft.zlib.components.i18n.I;
@@ -43,13 +43,14 @@ import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.block.Banner;
 import org.bukkit.entity.Player;
-import org.bukkit.event.Event.Result;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.event.inventory.InventoryType.SlotType;
 import org.bukkit.event.inventory.PrepareItemCraftEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.AnvilInventory;
 import org.bukkit.inventory.CraftingInventory;
 import org.bukkit.inventory.Inventory;
@@ -60,14 +61,21 @@ import org.bukkit.inventory.meta.BannerMeta;
 import org.bukkit.inventory.meta.BlockStateMeta;
 import org.bukkit.inventory.meta.ItemMeta;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 
 public class CraftingListener implements Listener
 {
     private UHCReloaded p = null;
 
+    // The state of the crafting grids opened, by player.
+    private final Map<UUID, CraftingGridState> craftingGrids = new HashMap<>();
+
     public CraftingListener(UHCReloaded p)
     {
         this.p = p;
@@ -91,14 +99,16 @@ public class CraftingListener implements Listener
             return;
         }
 
+        final RecipeVerdict verdict = p.getRecipesManager().getVerdict(recipe);
+
         /* *** Prevents items to be crafted *** */
 
-        if (!p.getRecipesManager().isRecipeAllowed(recipe))
+        if (!verdict.isAllowed())
         {
             ev.getInventory().setResult(new ItemStack(Material.AIR));
 
             // ProTips
-            final String failedRecipe = p.getRecipesManager().getLastFailedRecipe();
+            final String failedRecipe = verdict.getFailedRecipe();
             final Player player = (Player) ev.getViewers().get(0); // crafting inventory: only one viewer in all cases.
 
             RunTask.later(() ->
@@ -137,7 +147,7 @@ public class CraftingListener implements Listener
 
         /* *** Adds a lore to the golden apples crafted from a head *** */
 
-        ItemStack loreResult = p.getRecipesManager().addLore(recipe, ev.getInventory());
+        ItemStack loreResult = p.getRecipesManager().addLore(verdict, recipe, ev.getInventory());
         if (loreResult != null)
         {
             ev.getInventory().setResult(loreResult);
@@ -147,7 +157,7 @@ public class CraftingListener implements Listener
 
         /* *** The lore remover don't change the name of the item *** */
 
-        ItemStack keepNameResult = p.getRecipesManager().keepNameOnLoreRemover(recipe, ev.getInventory());
+        ItemStack keepNameResult = p.getRecipesManager().keepNameOnLoreRemover(verdict, recipe, ev.getInventory());
         if (keepNameResult != null)
         {
             ev.getInventory().setResult(keepNameResult);
@@ -177,69 +187,15 @@ public class CraftingListener implements Listener
         {
             final Inventory inventory = ev.getInventory();
 
-            // Workaround to fix the crafting grid being not updated when the item is taken
-            // from the grid.
-            if (inventory instanceof CraftingInventory && ev.getSlotType() == SlotType.RESULT)
-            {
-                RunTask.later(
-                    () -> ev.getViewers().stream()
-                            .filter(viewer -> viewer instanceof Player)
-                            .forEach(viewer -> ((Player) viewer).updateInventory()),
-                    1L
-                );
-            }
-
-
             /* *** Allows any shape for the loots in the compass recipe. *** */
 
             if (inventory instanceof CraftingInventory)
             {
-                // This is ran one tick after the click because when the event is fired, the inventory
-                // object is not updated, and so the result of the isValidCompassResult is invalid.
-
-                RunTask.later(() ->
-                {
-                    if (p.getRecipesManager().isValidCompassRecipe(((CraftingInventory) inventory).getMatrix()))
-                    {
-
-                        // Puts the compass in the result slot
-                        if (ev.getSlotType() == SlotType.CRAFTING)
-                        {
-                            ((CraftingInventory) inventory).setResult(new ItemStack(Material.COMPASS));
-                            ev.setResult(Result.ALLOW);
-
-                            ((Player) ev.getWhoClicked()).updateInventory(); // deprecated but needed
-                        }
-
-                        // Consumes the materials in the crafting grid.
-                        // Because this is not an "official" recipe, we need to do that manually.
-                        else if (ev.getSlotType() == SlotType.RESULT)
-                        {
-                            int index = 1;
-                            for (ItemStack stack : ((CraftingInventory) inventory).getMatrix())
-                            {
-                                if (stack == null) continue;
-
-                                if (stack.getAmount() != 1)
-                                {
-                                    stack.setAmount(stack.getAmount() - 1);
-                                    inventory.setItem(index, stack);
-                                }
-                                else
-                                {
-                                    inventory.setItem(index, new ItemStack(Material.AIR));
-                                }
-
-                                index++;
-                            }
+                final CraftingGridState state = scheduleGridCheck((Player) ev.getWhoClicked(), (CraftingInventory) inventory);
 
-                            ev.setCurrentItem(new ItemStack(Material.COMPASS));
-                            ev.setResult(Result.ALLOW);
-
-                            ((Player) ev.getWhoClicked()).updateInventory(); // deprecated but needed
-                        }
-                    }
-                }, 1L);
+                // The crafting grid is not updated when the item is taken from the grid; see checkGrid.
+                if (ev.getSlotType() == SlotType.RESULT)
+                    state.resultTaken = true;
             }
 
 
@@ -312,17 +268,122 @@ public class CraftingListener implements Listener
     @EventHandler (ignoreCancelled = true)
     public void onInventoryDrag(final InventoryDragEvent ev)
     {
-        if (ev.getInventory() instanceof CraftingInventory)
+        if (ev.getInventory() instanceof CraftingInventory && ev.getWhoClicked() instanceof Player)
         {
-            RunTask.later(() ->
+            scheduleGridCheck((Player) ev.getWhoClicked(), (CraftingInventory) ev.getInventory());
+        }
+    }
+
+    /**
+     * Forgets the state of the crafting grid of a player closing it.
+     *
+     * @param ev
+     */
+    @EventHandler
+    public void onInventoryClose(final InventoryCloseEvent ev)
+    {
+        craftingGrids.remove(ev.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Forgets the state of the crafting grid of a player leaving.
+     *
+     * @param ev
+     */
+    @EventHandler
+    public void onPlayerQuit(final PlayerQuitEvent ev)
+    {
+        craftingGrids.remove(ev.getPlayer().getUniqueId());
+    }
+
+
+    /**
+     * Schedules the check of a crafting grid at the next tick, once even if the grid is clicked
+     * several times during this tick.
+     *
+     * <p>The check is ran one tick after the click because when the event is fired, the inventory
+     * object is not updated yet.</p>
+     *
+     * @param player The player using the grid.
+     * @param inventory The crafting inventory.
+     * @return The state of this grid.
+     */
+    private CraftingGridState scheduleGridCheck(final Player player, final CraftingInventory inventory)
+    {
+        final CraftingGridState state = craftingGrids.computeIfAbsent(player.getUniqueId(), id -> new CraftingGridState());
+        state.inventory = inventory;
+
+        if (!state.checkScheduled)
+        {
+            state.checkScheduled = true;
+            RunTask.later(() -> checkGrid(player, state), 1L);
+        }
+
+        return state;
+    }
+
+    /**
+     * Checks a crafting grid: the compass recipe is only evaluated again if the items in the grid
+     * changed; if a compass was taken from the result slot, the ingredients are consumed.
+     *
+     * @param player The player using the grid.
+     * @param state The state of this grid.
+     */
+    private void checkGrid(final Player player, final CraftingGridState state)
+    {
+        state.checkScheduled = false;
+
+        // The grid was closed meanwhile.
+        if (craftingGrids.get(player.getUniqueId()) != state) return;
+
+        final CraftingInventory inventory = state.inventory;
+        final ItemStack[] matrix = inventory.getMatrix();
+
+        // Workaround to fix the crafting grid being not updated when the item is taken
+        // from the grid.
+        boolean update = state.resultTaken;
+
+        if (state.updateMatrix(matrix))
+        {
+            state.validCompass = p.getRecipesManager().isValidCompassRecipe(matrix);
+
+            // Puts the compass in the result slot
+            if (state.validCompass && !state.resultTaken)
             {
-                if (p.getRecipesManager().isValidCompassRecipe(((CraftingInventory) ev.getInventory()).getMatrix()))
-                {
-                    ((CraftingInventory) ev.getInventory()).setResult(new ItemStack(Material.COMPASS));
-                    ((Player) ev.getWhoClicked()).updateInventory(); // deprecated but needed
-                }
-            }, 1L);
+                inventory.setResult(new ItemStack(Material.COMPASS));
+                update = true;
+            }
         }
+
+        // Consumes the materials in the crafting grid.
+        // Because this is not an "official" recipe, we need to do that manually.
+        if (state.resultTaken && state.validCompass)
+        {
+            for (int slot = 0; slot < matrix.length; slot++)
+            {
+                final ItemStack stack = matrix[slot];
+                if (stack == null || stack.getType() == Material.AIR) continue;
+
+                if (stack.getAmount() != 1)
+                    stack.setAmount(stack.getAmount() - 1);
+                else
+                    matrix[slot] = new ItemStack(Material.AIR);
+            }
+
+            inventory.setMatrix(matrix);
+
+            state.updateMatrix(matrix);
+            state.validCompass = p.getRecipesManager().isValidCompassRecipe(matrix);
+
+            if (state.validCompass)
+                inventory.setResult(new ItemStack(Material.COMPASS));
+        }
+
+        state.resultTaken = false;
+
+        // Once per tick at most, and only if the grid was changed.
+        if (update && player.isOnline())
+            player.updateInventory(); // deprecated but needed
     }
 
 
@@ -335,7 +396,7 @@ public class CraftingListener implements Listener
     @EventHandler (ignoreCancelled = true)
     public void onShieldPreCraft(PrepareItemCraftEvent ev)
     {
-        if (!UHConfig.TEAMS_OPTIONS.BANNER.SHIELDS.ADD_ON_SHIELDS.get()) return;
+        if (!UHCReloaded.get().getConfigSnapshot().isAddBannersOnShields()) return;
 
         final Player player = (Player) ev.getViewers().get(0);
         final UHTeam team = UHCReloaded.get().getTeamManager().getTeamForPlayer(player);
@@ -372,4 +433,40 @@ public class CraftingListener implements Listener
             }
         }
     }
+
+
+    /**
+     * The state of a crafting grid, used to check the compass recipe only when the grid changes.
+     */
+    private static final class CraftingGridState
+    {
+        private CraftingInventory inventory = null;
+
+        // The fingerprint of the grid (type and amount of each item) when the compass recipe was
+        // last checked. Amounts are included as the server clears the result when they change.
+        private int[] matrix = null;
+        private boolean validCompass = false;
+
+        private boolean resultTaken = false;
+        private boolean checkScheduled = false;
+
+        /**
+         * Updates the fingerprint of the grid.
+         *
+         * @param items The content of the grid.
+         * @return {@code true} if the fingerprint changed.
+         */
+        private boolean updateMatrix(ItemStack[] items)
+        {
+            final int[] fingerprint = new int[items.length];
+            for (int slot = 0; slot < items.length; slot++)
+                if (items[slot] != null)
+                    fingerprint[slot] = (items[slot].getType().ordinal() << 8) | (items[slot].getAmount() & 0xFF);
+
+            if (Arrays.equals(fingerprint, matrix)) return false;
+
+            matrix = fingerprint;
+            return true;
+        }
+    }
 }
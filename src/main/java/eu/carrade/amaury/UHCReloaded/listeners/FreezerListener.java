@@ -36,6 +36,7 @@ import eu.carrade.amaury.UHCReloaded.UHCReloaded;
 import org.bukkit.entity.Creature;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
@@ -44,7 +45,8 @@ import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.EntityShootBowEvent;
 import org.bukkit.event.entity.FoodLevelChangeEvent;
 import org.bukkit.event.entity.ItemDespawnEvent;
-import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
 
 
 public class FreezerListener implements Listener
@@ -88,18 +90,6 @@ public class FreezerListener implements Listener
     }
 
 
-    /**
-     * Used to freeze the players.
-     *
-     * @param ev
-     */
-    @EventHandler
-    public void onPlayerMove(PlayerMoveEvent ev)
-    {
-        p.getFreezer().freezePlayerIfNeeded(ev.getPlayer(), ev.getFrom(), ev.getTo());
-    }
-
-
     /**
      * Used to prevent the bows to be used while in global freeze mode.
      *
@@ -154,6 +144,33 @@ public class FreezerListener implements Listener
     }
 
 
+    /**
+     * Used to freeze the mobs of the chunks loaded while the game is frozen.
+     *
+     * @param ev
+     */
+    @EventHandler
+    public void onChunkLoad(ChunkLoadEvent ev)
+    {
+        if (p.getFreezer().getGlobalFreezeState())
+        {
+            p.getFreezer().queueChunk(ev.getChunk());
+        }
+    }
+
+
+    /**
+     * Used to unfreeze the mobs before they are saved with their chunk.
+     *
+     * @param ev
+     */
+    @EventHandler (priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onChunkUnload(ChunkUnloadEvent ev)
+    {
+        p.getFreezer().releaseChunk(ev.getChunk());
+    }
+
+
     /**
      * Used to disable any damages if the player is frozen.
      *
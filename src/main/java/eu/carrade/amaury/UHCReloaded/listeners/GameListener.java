@@ -34,6 +34,7 @@ package eu.carrade.amaury.UHCReloaded.listeners;
 
 import eu.carrade.amaury.UHCReloaded.UHCReloaded;
 import eu.carrade.amaury.UHCReloaded.UHConfig;
+import eu.carrade.amaury.UHCReloaded.UHConfigSnapshot;
 import eu.carrade.amaury.UHCReloaded.events.EpisodeChangedCause;
 import eu.carrade.amaury.UHCReloaded.events.TimerEndsEvent;
 import eu.carrade.amaury.UHCReloaded.events.TimerStartsEvent;
@@ -43,6 +44,7 @@ import eu.carrade.amaury.UHCReloaded.events.UHGameStartsEvent;
 import eu.carrade.amaury.UHCReloaded.events.UHPlayerDeathEvent;
 import eu.carrade.amaury.UHCReloaded.events.UHPlayerResurrectedEvent;
 import eu.carrade.amaury.UHCReloaded.events.UHTeamDeathEvent;
+import eu.carrade.amaury.UHCReloaded.misc.OfflinePlayersLoader;
 import eu.carrade.amaury.UHCReloaded.misc.RuntimeCommandsExecutor;
 import eu.carrade.amaury.UHCReloaded.protips.ProTips;
 import eu.carrade.amaury.UHCReloaded.teams.UHTeam;
@@ -132,11 +134,13 @@ public class GameListener implements Listener
 
         p.getServer().getPluginManager().callEvent(new UHPlayerDeathEvent(ev.getEntity(), ev));
 
+        final UHConfigSnapshot config = p.getConfigSnapshot();
+
         // Plays sound.
         p.getGameManager().getDeathSound().broadcast();
 
         // Send lightning strike if needed.
-        if (UHConfig.DEATH.ANNOUNCEMENTS.LIGHTNING_STRIKE.get())
+        if (config.isDeathLightningStrike())
         {
             ev.getEntity().getLocation().getWorld().strikeLightningEffect(ev.getEntity().getLocation());
         }
@@ -148,19 +152,19 @@ public class GameListener implements Listener
         enableSpectatorModeOnRespawn.add(ev.getEntity().getUniqueId());
 
         // Kicks the player if needed.
-        if (UHConfig.DEATH.KICK.DO.get())
+        if (config.isDeathKick())
         {
             RunTask.later(() ->
             {
                 /// The kick message of a player when death.kick.do = true in config
                 ev.getEntity().kickPlayer(I.t("jayjay"));
-            }, 20L * UHConfig.DEATH.KICK.TIME.get());
+            }, 20L * config.getDeathKickDelay());
         }
 
         // Drops the skull of the player.
-        if (UHConfig.DEATH.HEAD.DROP.get())
+        if (config.isDeathHeadDrop())
         {
-            if (!UHConfig.DEATH.HEAD.PVP_ONLY.get() || (UHConfig.DEATH.HEAD.PVP_ONLY.get() && ev.getEntity().getKiller() != null))
+            if (!config.isDeathHeadPvPOnly() || ev.getEntity().getKiller() != null)
             {
                 Location l = ev.getEntity().getLocation();
                 ItemStack skull = new ItemStack(Material.SKULL_ITEM, 1, (short) SkullType.PLAYER.ordinal());
@@ -180,17 +184,17 @@ public class GameListener implements Listener
         }
 
         // Give XP to the killer (if needed)
-        if (UHConfig.DEATH.GIVE_XP_TO_KILLER.LEVELS.get() > 0)
+        if (config.getDeathXPLevelsToKiller() > 0)
         {
             Player killer = ev.getEntity().getKiller();
             if (killer != null)
             {
                 boolean inSameTeam = p.getTeamManager().inSameTeam(ev.getEntity(), killer);
-                boolean onlyOtherTeam = UHConfig.DEATH.GIVE_XP_TO_KILLER.ONLY_OTHER_TEAM.get();
+                boolean onlyOtherTeam = config.isDeathXPOnlyOtherTeam();
 
                 if (!onlyOtherTeam || !inSameTeam)
                 {
-                    killer.giveExpLevels(UHConfig.DEATH.GIVE_XP_TO_KILLER.LEVELS.get());
+                    killer.giveExpLevels(config.getDeathXPLevelsToKiller());
                 }
             }
         }
@@ -214,11 +218,11 @@ public class GameListener implements Listener
             {
                 p.getServer().getPluginManager().callEvent(new UHTeamDeathEvent(team));
 
-                if (UHConfig.DEATH.MESSAGES.NOTIFY_IF_TEAM_HAS_FALLEN.get())
+                if (config.isDeathNotifyTeamFallen())
                 {
                     // Used to display this message after the death message.
                     RunTask.later(() -> {
-                        String format = ChatColor.translateAlternateColorCodes('&', UHConfig.DEATH.MESSAGES.TEAM_DEATH_MESSAGES_FORMAT.get());
+                        String format = config.getTeamDeathMessagesFormat();
                         p.getServer().broadcastMessage(I.t("{0}The team {1} has fallen!", format, team.getDisplayName() + format));
                     }, 1L);
                 }
@@ -229,7 +233,7 @@ public class GameListener implements Listener
         p.getServer().getConsoleSender().sendMessage(ChatColor.GOLD + "-- Death of " + ev.getEntity().getDisplayName() + ChatColor.GOLD + " (" + ev.getDeathMessage() + ") --");
 
         // Customizes the death message
-        String dmFormat = ChatColor.translateAlternateColorCodes('&', UHConfig.DEATH.MESSAGES.DEATH_MESSAGES_FORMAT.get());
+        String dmFormat = config.getDeathMessagesFormat();
         String deathMessage = dmFormat + ev.getDeathMessage();
         deathMessage = deathMessage.replace(ev.getEntity().getName(), ev.getEntity().getDisplayName() + dmFormat);
         if (ev.getEntity().getKiller() != null)
@@ -254,7 +258,7 @@ public class GameListener implements Listener
         }
 
         // Notifies the player about the possibility of respawn if hardcore hearts are enabled
-        if (UHConfig.HARDCORE_HEARTS.DISPLAY.get() && p.getProtocolLibIntegrationWrapper().isProtocolLibIntegrationEnabled() && UHConfig.HARDCORE_HEARTS.RESPAWN_MESSAGE.get())
+        if (config.isHardcoreHeartsRespawnMessage() && p.getProtocolLibIntegrationWrapper().isProtocolLibIntegrationEnabled())
         {
             RunTask.later(() -> {
                 /// A message displayed to the players under the death screen, about the respawn possibility even if the death screen says the opposite (in hardcore mode)
@@ -263,7 +267,7 @@ public class GameListener implements Listener
         }
 
         // Disables the team-chat-lock if needed
-        if (UHConfig.TEAMS_OPTIONS.TEAM_CHAT.DISABLE_LOCK_ON_DEATH.get())
+        if (config.isTeamChatDisableLockOnDeath())
         {
             if (p.getTeamChatManager().isTeamChatEnabled(ev.getEntity()))
             {
@@ -299,7 +303,7 @@ public class GameListener implements Listener
     {
         if (ev.getEntity() instanceof Player)
         {
-            if (p.getGameManager().isSlowStartInProgress() || (!p.getGameManager().isGameRunning() && !UHConfig.BEFORE_START.ENABLE_PVP.get()) || (p.getGameManager().isGameRunning() && !p.getGameManager().isTakingDamage()))
+            if (p.getGameManager().isSlowStartInProgress() || (!p.getGameManager().isGameRunning() && !p.getConfigSnapshot().isPvPBeforeStart()) || (p.getGameManager().isGameRunning() && !p.getGameManager().isTakingDamage()))
             {
                 ev.setCancelled(true);
             }
@@ -351,7 +355,7 @@ public class GameListener implements Listener
                 && p.getGameManager().isPlayerDead(ev.getPlayer())
                 && !p.getGameManager().isDeadPlayersToBeResurrected(ev.getPlayer())
                 && !p.getGameManager().getStartupSpectators().contains(ev.getPlayer().getName())
-                && !UHConfig.DEATH.KICK.ALLOW_RECONNECT.get())
+                && !p.getConfigSnapshot().isDeathKickAllowReconnect())
         {
 
             ev.setResult(Result.KICK_OTHER);
@@ -372,6 +376,9 @@ public class GameListener implements Listener
     @EventHandler (priority = EventPriority.HIGHEST)
     public void onPlayerJoin(final PlayerJoinEvent ev)
     {
+        // The name may have changed since the last login.
+        OfflinePlayersLoader.rememberPlayer(ev.getPlayer());
+
         if (!this.p.getGameManager().isGameStarted())
         {
             if (!p.getGameManager().isSlowStartInProgress())
@@ -553,19 +560,23 @@ public class GameListener implements Listener
 
     /**
      * Used to:
-     *  - update the internal list of running timers;
      *  - shift the episode if the main timer is up (and restart this main timer);
-     *  - hide an other timer when it is up.
+     *  - hide an other timer when it is up;
+     *  - start the border reduction when its countdown is up.
      */
     @EventHandler
     public void onTimerEnds(final TimerEndsEvent ev)
     {
-        p.getTimerManager().updateStartedTimersList();
-
         if (ev.getTimer().equals(p.getTimerManager().getMainTimer()))
         {
             // If this timer is the main one, we shifts an episode.
             p.getGameManager().shiftEpisode();
+
+            // The episodes length may have been changed by a configuration reload.
+            final int episodeLength = p.getGameManager().getEpisodeLength();
+            if (ev.getTimer().getDuration() != episodeLength)
+                ev.getTimer().setDuration(episodeLength);
+
             ev.setRestart(true);
         }
         else
@@ -573,7 +584,12 @@ public class GameListener implements Listener
             ev.getTimer().setDisplayed(false);
         }
 
-        if (ev.getTimer().equals(p.getBorderManager().getWarningTimer()) && ev.wasTimerUp())
+        if (ev.getTimer().equals(p.getBorderManager().getReductionTimer()) && ev.wasTimerUp())
+        {
+            p.getBorderManager().startBorderReduction();
+        }
+
+        if (ev.getTimer().equals(p.getBorderManager().getWarningTimer()) && ev.wasTimerUp() && p.getBorderManager().getWarningSender() != null)
         {
             p.getBorderManager().getWarningSender().sendMessage(I.t("{cs}The timer before the new border is up!"));
             p.getBorderManager().sendCheckMessage(p.getBorderManager().getWarningSender(), p.getBorderManager().getWarningSize());
@@ -581,15 +597,11 @@ public class GameListener implements Listener
     }
 
     /**
-     * Used to:
-     *  - update the internal list of running timers;
-     *  - display a timer when it is started.
+     * Used to display a timer when it is started.
      */
     @EventHandler
     public void onTimerStarts(final TimerStartsEvent ev)
     {
-        p.getTimerManager().updateStartedTimersList();
-
         if (!ev.getTimer().equals(p.getTimerManager().getMainTimer()))
         {
             ev.getTimer().setDisplayed(true);
@@ -664,8 +676,12 @@ public class GameListener implements Listener
         // Commands
         p.getRuntimeCommandsExecutor().registerCommandsInScheduler(RuntimeCommandsExecutor.AFTER_GAME_START);
 
+        // The timers of a previous game are never restored.
+        p.getTimerManager().discardSavedTimers();
+
         // Border shrinking
         p.getBorderManager().scheduleBorderReduction();
+        p.getBorderManager().getChunksTrimmer().start();
 
         // MOTD
         p.getMOTDManager().updateMOTDDuringGame();
@@ -729,7 +745,8 @@ public class GameListener implements Listener
     /**
      * Used to:
      *  - broadcast the winner(s) and launch some fireworks if needed, a few seconds later;
-     *  - schedule the commands executed after the end of the game.
+     *  - schedule the commands executed after the end of the game;
+     *  - stop the trimming of the chunks outside of the border.
      */
     @EventHandler (priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onGameEnd(final UHGameEndsEvent ev)
@@ -755,6 +772,12 @@ public class GameListener implements Listener
 
         // Updates the MOTD.
         p.getMOTDManager().updateMOTDAfterGame(ev.getWinnerTeam());
+
+        // Nothing to resume after a restart.
+        p.getTimerManager().discardSavedTimers();
+
+        // The border doesn't shrink anymore.
+        p.getBorderManager().getChunksTrimmer().stop();
     }
 
 
@@ -33,7 +33,6 @@
 package eu.carrade.amaury.UHCReloaded.listeners;
 
 import eu.carrade.amaury.UHCReloaded.UHCReloaded;
-import eu.carrade.amaury.UHCReloaded.UHConfig;
 import eu.carrade.amaury.UHCReloaded.task.CancelBrewTask;
 import fr.zcraft.zlib.components.i18n.I;
 import fr.zcraft.zlib.tools.runners.RunTask;
@@ -84,7 +83,7 @@ public class GameplayListener implements Listener
     @EventHandler (ignoreCancelled = true)
     public void onEntityDeath(EntityDeathEvent ev)
     {
-        if (ev.getEntity() instanceof Ghast && UHConfig.GAMEPLAY_CHANGES.REPLACE_GHAST_TEARS_WITH_GOLD.get())
+        if (ev.getEntity() instanceof Ghast && p.getConfigSnapshot().isReplaceGhastTearsWithGold())
         {
             final List<ItemStack> drops = new ArrayList<ItemStack>(ev.getDrops());
             ev.getDrops().clear();
@@ -111,7 +110,7 @@ public class GameplayListener implements Listener
     {
         if (ev.getItem().getItemStack().getType() == Material.GHAST_TEAR
                 && ev.getPlayer().getGameMode().equals(GameMode.SURVIVAL)
-                && UHConfig.GAMEPLAY_CHANGES.REPLACE_GHAST_TEARS_WITH_GOLD.get())
+                && p.getConfigSnapshot().isReplaceGhastTearsWithGold())
         {
             ev.setCancelled(true);
         }
@@ -124,7 +123,7 @@ public class GameplayListener implements Listener
     @EventHandler
     public void onInventoryDrag(InventoryDragEvent ev)
     {
-        if (UHConfig.GAMEPLAY_CHANGES.DISABLE_LEVEL_II_POTIONS.get() && ev.getInventory() instanceof BrewerInventory)
+        if (p.getConfigSnapshot().isDisableLevelIIPotions() && ev.getInventory() instanceof BrewerInventory)
         {
             RunTask.later(new CancelBrewTask((BrewerInventory) ev.getInventory(), ev.getWhoClicked()), 1L);
         }
@@ -136,7 +135,7 @@ public class GameplayListener implements Listener
     @EventHandler
     public void onInventoryClick(InventoryClickEvent ev)
     {
-        if (UHConfig.GAMEPLAY_CHANGES.DISABLE_LEVEL_II_POTIONS.get() && ev.getInventory() instanceof BrewerInventory)
+        if (p.getConfigSnapshot().isDisableLevelIIPotions() && ev.getInventory() instanceof BrewerInventory)
         {
            RunTask.later(new CancelBrewTask((BrewerInventory) ev.getInventory(), ev.getWhoClicked()), 1L);
         }
@@ -149,7 +148,7 @@ public class GameplayListener implements Listener
     @EventHandler (ignoreCancelled = true)
     public void onPlayerTeleport(final PlayerTeleportEvent ev)
     {
-        if (UHConfig.GAMEPLAY_CHANGES.DISABLE_ENDERPEARLS_DAMAGES.get())
+        if (p.getConfigSnapshot().isDisableEnderpearlsDamages())
         {
             if (ev.getCause() == TeleportCause.ENDER_PEARL)
             {
@@ -170,11 +169,11 @@ public class GameplayListener implements Listener
     {
         if (ev.getEntityType().equals(EntityType.WITCH))
         {
-            if (UHConfig.GAMEPLAY_CHANGES.WITCH.DISABLE_NATURAL_SPAWN.get() && ev.getSpawnReason().equals(SpawnReason.NATURAL))
+            if (p.getConfigSnapshot().isDisableWitchNaturalSpawn() && ev.getSpawnReason().equals(SpawnReason.NATURAL))
             {
                 ev.setCancelled(true);
             }
-            if (UHConfig.GAMEPLAY_CHANGES.WITCH.DISABLE_LIGHTNING_SPAWN.get() && ev.getSpawnReason().equals(SpawnReason.LIGHTNING))
+            if (p.getConfigSnapshot().isDisableWitchLightningSpawn() && ev.getSpawnReason().equals(SpawnReason.LIGHTNING))
             {
                 ev.setCancelled(true);
             }
@@ -208,26 +207,26 @@ public class GameplayListener implements Listener
                 // Normal golden apple from a head
                 if (dataValue == 0)
                 {
-                    halfHearts = UHConfig.GAMEPLAY_CHANGES.GOLDEN_APPLE.REGENERATION.FROM_NORMAL_HEAD.get();
+                    halfHearts = p.getConfigSnapshot().getGoldenHeadRegeneration();
                     level = REGENERATION_LEVEL_GOLDEN_APPLE;
                 }
                 // Notch golden apple from a head
                 else
                 {
-                    halfHearts = UHConfig.GAMEPLAY_CHANGES.GOLDEN_APPLE.REGENERATION.FROM_NOTCH_HEAD.get();
+                    halfHearts = p.getConfigSnapshot().getNotchHeadRegeneration();
                     level = REGENERATION_LEVEL_NOTCH_GOLDEN_APPLE;
                 }
             }
             // Normal golden apple from an apple
             else if (dataValue == 0)
             {
-                halfHearts = UHConfig.GAMEPLAY_CHANGES.GOLDEN_APPLE.REGENERATION.NORMAL.get();
+                halfHearts = p.getConfigSnapshot().getGoldenAppleRegeneration();
                 level = REGENERATION_LEVEL_GOLDEN_APPLE;
             }
             // Notch golden apple from an apple
             else
             {
-                halfHearts = UHConfig.GAMEPLAY_CHANGES.GOLDEN_APPLE.REGENERATION.NOTCH.get();
+                halfHearts = p.getConfigSnapshot().getNotchAppleRegeneration();
                 level = REGENERATION_LEVEL_NOTCH_GOLDEN_APPLE;
             }
 
@@ -280,7 +279,7 @@ public class GameplayListener implements Listener
     {
         if ((ev.getAction() == Action.RIGHT_CLICK_AIR || ev.getAction() == Action.RIGHT_CLICK_BLOCK)
                 && ev.getPlayer().getItemInHand().getType() == Material.COMPASS
-                && p.getConfig().getBoolean("gameplay-changes.compass.enabled")
+                && p.getConfigSnapshot().isCompassEnabled()
                 && !p.getGameManager().isPlayerDead(ev.getPlayer()))
         {
             Player player1 = ev.getPlayer();
@@ -313,28 +312,7 @@ public class GameplayListener implements Listener
                 return;
             }
 
-            Player nearest = null;
-            Double distance = 99999D;
-            for (Player player2 : p.getGameManager().getOnlineAlivePlayers())
-            {
-                try
-                {
-                    Double calc = player1.getLocation().distanceSquared(player2.getLocation());
-
-                    if (calc > 1 && calc < distance)
-                    {
-                        distance = calc;
-                        if (!player2.getUniqueId().equals(player1.getUniqueId()) && !p.getTeamManager().inSameTeam(player1, player2))
-                        {
-                            nearest = player2.getPlayer();
-                        }
-                    }
-                }
-                catch (Exception ignored)
-                {
-
-                }
-            }
+            Player nearest = p.getPlayersSpatialHash().getNearestEnemy(player1);
 
             if (nearest == null)
             {
@@ -361,7 +339,7 @@ public class GameplayListener implements Listener
     @EventHandler
     public void onWeatherChange(WeatherChangeEvent ev)
     {
-        if (!UHConfig.GAMEPLAY_CHANGES.WEATHER.get())
+        if (!p.getConfigSnapshot().isWeather())
         {
             ev.setCancelled(true);
         }
@@ -33,22 +33,38 @@ package eu.carrade.amaury.UHCReloaded.misc;
 
 import eu.carrade.amaury.UHCReloaded.UHCReloaded;
 import eu.carrade.amaury.UHCReloaded.listeners.FreezerListener;
+import eu.carrade.amaury.UHCReloaded.movement.BlockMove;
+import fr.zcraft.zlib.tools.runners.RunTask;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Creature;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.HandlerList;
-import org.bukkit.event.player.PlayerTeleportEvent.TeleportCause;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
+import org.bukkit.scheduler.BukkitTask;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 
 public class Freezer
 {
+    /**
+     * The maximal time spent each tick to (un)freeze the creatures of the queued chunks.
+     */
+    private static final long CREATURES_TICK_BUDGET = TimeUnit.MILLISECONDS.toNanos(2);
+
     private UHCReloaded p = null;
 
     private boolean isListenerRegistered = false;
@@ -61,12 +77,26 @@ public class Freezer
 
     private boolean hiddenFreeze = false;
 
+    /**
+     * The IDs of the creatures currently frozen. Entity IDs are sequential, so a bit set is the
+     * most compact way to store them.
+     */
+    private final BitSet frozenCreatures = new BitSet();
+
+    /**
+     * The loaded chunks whose creatures have to be (un)frozen, processed a few per tick.
+     */
+    private final Deque<Chunk> creaturesChunksQueue = new ArrayDeque<>();
+    private BukkitTask creaturesTask = null;
+
 
     public Freezer(UHCReloaded plugin)
     {
         this.p = plugin;
 
         this.freezerListener = new FreezerListener();
+
+        p.getMovementDispatcher().registerImmediateHandler(this::freezePlayerIfNeeded);
     }
 
 
@@ -74,23 +104,19 @@ public class Freezer
      * Freezes a player, if needed.
      * The player is blocked inside the block he is currently.
      *
-     * This method is intended to be executed when a player moves.
+     * This method is called by the movement dispatcher when a player changes of block.
      *
-     * @param player The player to freeze
-     * @param from The old position from the PlayerMoveEvent
-     * @param to The new position from the PlayerMoveEvent
+     * @param move The movement.
      */
-    public void freezePlayerIfNeeded(Player player, Location from, Location to)
+    private void freezePlayerIfNeeded(BlockMove move)
     {
-        if (frozenPlayers.contains(player.getUniqueId()))
-        {
-            // If the X, Y or Z coordinate of the player change, he needs to be teleported inside the old block.
-            // The yaw and pitch are conserved, to teleport more smoothly.
-            if (from.getBlockX() != to.getBlockX() || from.getBlockY() != to.getBlockY() || from.getBlockZ() != to.getBlockZ())
-            {
-                player.teleport(new Location(from.getWorld(), from.getBlockX() + 0.5, from.getBlockY(), from.getBlockZ() + 0.5, to.getYaw(), to.getPitch()), TeleportCause.PLUGIN);
-            }
-        }
+        if (frozenPlayers.isEmpty() || !frozenPlayers.contains(move.getPlayer().getUniqueId()))
+            return;
+
+        // The player is sent back inside the old block.
+        // The yaw and pitch are conserved, to teleport more smoothly.
+        final Location to = move.getEvent().getTo();
+        move.getEvent().setTo(new Location(move.getFromWorld(), move.getFromX() + 0.5, move.getFromY(), move.getFromZ() + 0.5, to.getYaw(), to.getPitch()));
     }
 
 
@@ -112,10 +138,9 @@ public class Freezer
                     .forEach(player -> this.setPlayerFreezeState(player, true));
 
             // Freezes the mobs by applying a Slowness effect. There isn't any EntityMoveEvent, so...
-            p.getServer().getWorlds().stream()
-                    .flatMap(world -> world.getLivingEntities().stream())
-                    .filter(entity -> entity instanceof Creature)
-                    .forEach(entity -> freezeCreature((Creature) entity, true));
+            // The loaded chunks are processed a few per tick; the chunks loaded later are frozen
+            // when loaded (see FreezerListener).
+            queueLoadedChunks();
 
             // Freezes the timers.
             p.getTimerManager().pauseAllRunning(true);
@@ -129,17 +154,15 @@ public class Freezer
                     .filter(this::isPlayerFrozen)
                     .forEach(player -> this.setPlayerFreezeState(player, false));
 
-            // Removes the slowness effect
-            p.getServer().getWorlds().stream()
-                    .flatMap(world -> world.getLivingEntities().stream())
-                    .filter(entity -> entity instanceof Creature)
-                    .forEach(entity -> freezeCreature((Creature) entity, false));
+            // Removes the slowness effect, incrementally too.
+            queueLoadedChunks();
 
             // Unfreezes the timers.
             p.getTimerManager().pauseAllRunning(false);
         }
 
         updateListenerRegistration();
+        p.getGameManager().invalidateSnapshot();
     }
 
     /**
@@ -194,6 +217,7 @@ public class Freezer
         }
 
         updateListenerRegistration();
+        p.getGameManager().invalidateSnapshot();
     }
 
     /**
@@ -227,12 +251,123 @@ public class Freezer
     {
         if (frozen)
         {
-            // Freezes the creature for about 68 years.
-            creature.addPotionEffect(new PotionEffect(PotionEffectType.SLOW, Integer.MAX_VALUE, 100, true));
+            if (!frozenCreatures.get(creature.getEntityId()))
+            {
+                // Freezes the creature for about 68 years.
+                creature.addPotionEffect(new PotionEffect(PotionEffectType.SLOW, Integer.MAX_VALUE, 100, true));
+                frozenCreatures.set(creature.getEntityId());
+            }
         }
         else
         {
-            creature.removePotionEffect(PotionEffectType.SLOW);
+            if (frozenCreatures.get(creature.getEntityId()))
+            {
+                creature.removePotionEffect(PotionEffectType.SLOW);
+                frozenCreatures.clear(creature.getEntityId());
+            }
+        }
+    }
+
+    /**
+     * Checks if a creature is frozen.
+     *
+     * @param creature The creature.
+     * @return {@code true} if frozen.
+     */
+    public boolean isCreatureFrozen(Creature creature)
+    {
+        return frozenCreatures.get(creature.getEntityId());
+    }
+
+    /**
+     * Queues a chunk, to (un)freeze its creatures following the global freeze state in a next
+     * tick.
+     *
+     * @param chunk The chunk.
+     */
+    public void queueChunk(Chunk chunk)
+    {
+        creaturesChunksQueue.add(chunk);
+        startCreaturesTask();
+    }
+
+    /**
+     * Unfreezes the creatures of a chunk being unloaded, so they are never saved with the freeze
+     * effect. They will be frozen again when the chunk is loaded, if needed.
+     *
+     * @param chunk The chunk.
+     */
+    public void releaseChunk(Chunk chunk)
+    {
+        if (frozenCreatures.isEmpty()) return;
+
+        for (Entity entity : chunk.getEntities())
+        {
+            if (entity instanceof Creature)
+            {
+                freezeCreature((Creature) entity, false);
+            }
+        }
+    }
+
+    /**
+     * Queues all the loaded chunks.
+     */
+    private void queueLoadedChunks()
+    {
+        creaturesChunksQueue.clear();
+
+        for (World world : p.getServer().getWorlds())
+        {
+            Collections.addAll(creaturesChunksQueue, world.getLoadedChunks());
+        }
+
+        startCreaturesTask();
+    }
+
+    /**
+     * Starts the task processing the queued chunks, if not already running.
+     */
+    private void startCreaturesTask()
+    {
+        if (creaturesTask == null && !creaturesChunksQueue.isEmpty())
+        {
+            creaturesTask = RunTask.timer(this::processCreaturesQueue, 1L, 1L);
+        }
+    }
+
+    /**
+     * (Un)freezes the creatures of the queued chunks, within the tick budget.
+     */
+    private void processCreaturesQueue()
+    {
+        final long deadline = System.nanoTime() + CREATURES_TICK_BUDGET;
+
+        while (!creaturesChunksQueue.isEmpty() && System.nanoTime() < deadline)
+        {
+            final Chunk chunk = creaturesChunksQueue.poll();
+            if (!chunk.isLoaded()) continue;
+
+            for (Entity entity : chunk.getEntities())
+            {
+                if (entity instanceof Creature)
+                {
+                    freezeCreature((Creature) entity, globalFreeze);
+                }
+            }
+        }
+
+        if (creaturesChunksQueue.isEmpty())
+        {
+            creaturesTask.cancel();
+            creaturesTask = null;
+
+            // The remaining IDs are the ones of dead creatures.
+            if (!globalFreeze)
+            {
+                frozenCreatures.clear();
+                updateListenerRegistration();
+            }
         }
     }
 
@@ -246,10 +381,10 @@ public class Freezer
     private void updateListenerRegistration()
     {
         // Registers the listener if needed
-        // (i.e if there isn't any frozen player, or if the global freeze is enabled).
+        // (i.e if there is any frozen player or creature, or if the global freeze is enabled).
         if (!this.isListenerRegistered)
         {
-            if (!this.frozenPlayers.isEmpty() || this.getGlobalFreezeState())
+            if (!this.frozenPlayers.isEmpty() || this.getGlobalFreezeState() || !this.frozenCreatures.isEmpty())
             {
                 p.getServer().getPluginManager().registerEvents(freezerListener, p);
                 this.isListenerRegistered = true;
@@ -259,7 +394,7 @@ public class Freezer
         // Unregisters the listener if needed
         else
         {
-            if (this.frozenPlayers.isEmpty() && !this.getGlobalFreezeState())
+            if (this.frozenPlayers.isEmpty() && !this.getGlobalFreezeState() && this.frozenCreatures.isEmpty())
             {
                 HandlerList.unregisterAll(freezerListener);
                 this.isListenerRegistered = false;
@@ -280,4 +415,14 @@ public class Freezer
                 .map(id -> p.getServer().getPlayer(id))
                 .collect(Collectors.toCollection(ArrayList::new));
     }
+
+    /**
+     * Returns the UUIDs of the currently frozen players.
+     *
+     * @return An unmodifiable view of the list.
+     */
+    public List<UUID> getFrozenPlayersUUID()
+    {
+        return Collections.unmodifiableList(frozenPlayers);
+    }
 }
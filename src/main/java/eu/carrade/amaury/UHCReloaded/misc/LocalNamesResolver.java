@@ -0,0 +1,128 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.misc;
+
+import fr.zcraft.zlib.tools.PluginLogger;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * Resolves the names from a fixed list, without any network access; useful for offline servers
+ * or tests.
+ *
+ * <p>The list can be loaded from a YAML file, with one {@code name: uuid} entry per line.</p>
+ */
+public class LocalNamesResolver implements NamesResolver
+{
+    private final Map<String, UUID> uuids = new HashMap<>();
+
+
+    /**
+     * @param uuids The UUIDs, keyed by name (case-insensitive).
+     */
+    public LocalNamesResolver(Map<String, UUID> uuids)
+    {
+        for (Map.Entry<String, UUID> entry : uuids.entrySet())
+            this.uuids.put(entry.getKey().toLowerCase(Locale.ROOT), entry.getValue());
+    }
+
+    /**
+     * @param file The YAML file containing the UUIDs, keyed by name.
+     */
+    public LocalNamesResolver(File file)
+    {
+        if (!file.exists())
+        {
+            PluginLogger.warning("The names file {0} does not exist; no name will be resolved.", file.getName());
+            return;
+        }
+
+        final YamlConfiguration names = YamlConfiguration.loadConfiguration(file);
+
+        for (String name : names.getKeys(false))
+        {
+            try
+            {
+                uuids.put(name.toLowerCase(Locale.ROOT), UUID.fromString(names.getString(name)));
+            }
+            catch (IllegalArgumentException | NullPointerException e)
+            {
+                PluginLogger.warning("Invalid UUID for {0} in {1}, skipping.", name, file.getName());
+            }
+        }
+    }
+
+    @Override
+    public int getMaxBatchSize()
+    {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean isOnlineModeOnly()
+    {
+        return false;
+    }
+
+    @Override
+    public Map<String, UUID> resolve(final List<String> names)
+    {
+        final Map<String, UUID> resolved = new HashMap<>();
+
+        for (String name : names)
+        {
+            final UUID id = uuids.get(name.toLowerCase(Locale.ROOT));
+            if (id != null) resolved.put(name, id);
+        }
+
+        return resolved;
+    }
+
+    @Override
+    public boolean hasFallbackLookup()
+    {
+        return false;
+    }
+
+    @Override
+    public UUID lookup(final String name)
+    {
+        return uuids.get(name.toLowerCase(Locale.ROOT));
+    }
+}
@@ -35,7 +35,7 @@ package eu.carrade.amaury.UHCReloaded.misc;
 import eu.carrade.amaury.UHCReloaded.UHCReloaded;
 import eu.carrade.amaury.UHCReloaded.UHConfig;
 import eu.carrade.amaury.UHCReloaded.teams.UHTeam;
-import fr.zcraft.zlib.components.i18n.I;
+import eu.carrade.amaury.UHCReloaded.utils.I18nTemplates;
 import org.bukkit.ChatColor;
 
 
@@ -52,6 +52,14 @@ public class MOTDManager
     {
         p = plugin;
 
+        configure();
+    }
+
+    /**
+     * Reads the MOTD settings from the configuration.
+     */
+    private void configure()
+    {
         enabled = UHConfig.MOTD.ENABLED.get();
 
         if (enabled && UHConfig.MOTD.DISPLAY_MATCH_NAME.get())
@@ -60,6 +68,36 @@ public class MOTDManager
                     + p.getScoreboardManager().getScoreboardName()
                     + ChatColor.RESET + "\n";
         }
+        else
+        {
+            matchName = "";
+        }
+    }
+
+    /**
+     * Called after a reload of the configuration: the current MOTD is updated with the new
+     * match name, or computed from the game state if the MOTDs were just enabled.
+     */
+    public void onConfigurationReloaded()
+    {
+        final String oldMatchName = matchName;
+
+        configure();
+
+        if (!enabled) return;
+
+        if (currentMOTD != null && currentMOTD.startsWith(oldMatchName))
+        {
+            currentMOTD = matchName + currentMOTD.substring(oldMatchName.length());
+        }
+        else if (!p.getGameManager().isGameStarted())
+        {
+            updateMOTDBeforeStart();
+        }
+        else if (p.getGameManager().isGameRunning())
+        {
+            updateMOTDDuringGame();
+        }
     }
 
     /**
@@ -89,7 +127,7 @@ public class MOTDManager
     public void updateMOTDBeforeStart()
     {
         /// MOTD when the game is not started.
-        if (enabled) currentMOTD = matchName + I.t("Waiting for players...");
+        if (enabled) currentMOTD = matchName + I18nTemplates.t("Waiting for players...");
     }
 
     /**
@@ -98,7 +136,7 @@ public class MOTDManager
     public void updateMOTDDuringStart()
     {
         /// MOTD when the game is starting (slow TP in progress).
-        if (enabled) currentMOTD = matchName + I.t("Starting in progress...");
+        if (enabled) currentMOTD = matchName + I18nTemplates.t("Starting in progress...");
     }
 
     /**
@@ -113,12 +151,12 @@ public class MOTDManager
             if (!p.getGameManager().isGameWithTeams())
             {
                 /// Solo game running MOTD. {0} = players alive count.
-                currentMOTD = matchName + I.tn("Game running! {0} player alive.", "Game running! {0} players alive.", p.getGameManager().getAlivePlayersCount(), p.getGameManager().getAlivePlayersCount());
+                currentMOTD = matchName + I18nTemplates.tn("Game running! {0} player alive.", "Game running! {0} players alive.", p.getGameManager().getAlivePlayersCount(), p.getGameManager().getAlivePlayersCount());
             }
             else
             {
                 /// Teams game running MOTD. {0} = players alive count. {1} = teams alive count. Plural based on players count.
-                currentMOTD = matchName + I.tn("Game running! {0} player alive in {1} team.", "Game running! {0} players alive in {1} teams.", p.getGameManager().getAlivePlayersCount(), p.getGameManager().getAlivePlayersCount(), p.getGameManager().getAliveTeamsCount());
+                currentMOTD = matchName + I18nTemplates.tn("Game running! {0} player alive in {1} team.", "Game running! {0} players alive in {1} teams.", p.getGameManager().getAlivePlayersCount(), p.getGameManager().getAlivePlayersCount(), p.getGameManager().getAliveTeamsCount());
             }
         }
     }
@@ -135,12 +173,12 @@ public class MOTDManager
             if (!p.getGameManager().isGameWithTeams())
             {
                 /// Game finished MOTD with solo winner ({0} = winner raw name).
-                currentMOTD = matchName + I.t("Game finished; congratulation to {0} for his victory!", winner.getName());
+                currentMOTD = matchName + I18nTemplates.t("Game finished; congratulation to {0} for his victory!", winner.getName());
             }
             else
             {
                 /// Game finished MOTD with team winner ({0} = team display name).
-                currentMOTD = matchName + I.t("Game finished; the team {0} wins this match!", winner.getDisplayName());
+                currentMOTD = matchName + I18nTemplates.t("Game finished; the team {0} wins this match!", winner.getDisplayName());
             }
         }
     }
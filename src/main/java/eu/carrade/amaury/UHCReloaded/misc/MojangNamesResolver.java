@@ -0,0 +1,85 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.misc;
+
+import fr.zcraft.zlib.tools.mojang.UUIDFetcher;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * Resolves the names using the Mojang API.
+ */
+public class MojangNamesResolver implements NamesResolver
+{
+    // The maximal amount of names per request accepted by the Mojang profiles API.
+    private static final int PROFILES_PER_REQUEST = 100;
+
+    @Override
+    public int getMaxBatchSize()
+    {
+        return PROFILES_PER_REQUEST;
+    }
+
+    @Override
+    public boolean isOnlineModeOnly()
+    {
+        return true;
+    }
+
+    @Override
+    public Map<String, UUID> resolve(final List<String> names) throws Throwable
+    {
+        return UUIDFetcher.fetch(names);
+    }
+
+    @Override
+    public boolean hasFallbackLookup()
+    {
+        return true;
+    }
+
+    @Override
+    public UUID lookup(final String name) throws Throwable
+    {
+        // The names not found by the profiles API (e.g. changed since) are looked up through the
+        // names history, with one request per name.
+        final Map<String, UUID> uuids = new HashMap<>();
+        UUIDFetcher.fetchRemaining(Collections.singletonList(name), uuids);
+
+        return uuids.isEmpty() ? null : uuids.values().iterator().next();
+    }
+}
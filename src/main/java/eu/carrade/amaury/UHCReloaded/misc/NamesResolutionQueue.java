@@ -0,0 +1,343 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.misc;
+
+import fr.zcraft.zlib.components.worker.WorkerCallback;
+import fr.zcraft.zlib.components.worker.WorkerRunnable;
+import fr.zcraft.zlib.tools.Callback;
+import fr.zcraft.zlib.tools.PluginLogger;
+import fr.zcraft.zlib.tools.runners.RunTask;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+
+/**
+ * Resolves names to UUIDs through a {@link NamesResolver}, one request at a time.
+ *
+ * <p>The names requested while already queued or being resolved are not looked up twice: every
+ * requester is notified when the name is resolved. The queued names are merged into batches as
+ * large as the resolver allows; the names not found in a batch are then looked up one by one,
+ * if the resolver can (see {@link NamesResolver#lookup(String)}). Each batch and each single
+ * lookup is a request, and the requests are sent no faster than the configured rate.</p>
+ *
+ * <p>Must be used from the main thread; the callbacks are called from the main thread too.</p>
+ */
+public class NamesResolutionQueue
+{
+    private final NamesResolver resolver;
+    private final long minInterval;
+
+    // Keyed by lower-cased name.
+    private final Map<String, String> queued = new LinkedHashMap<>();
+    private final Map<String, String> queuedLookups = new LinkedHashMap<>();
+    private final Map<String, List<Request>> waiting = new HashMap<>();
+
+    private boolean resolving = false;
+    private boolean scheduled = false;
+    private long lastRequest = 0L;
+
+
+    /**
+     * @param resolver The resolver used to resolve the names.
+     * @param maxRequestsPerMinute The maximal number of requests (batches and single lookups)
+     *                             sent to the resolver per minute ({@code 0} for no limit).
+     */
+    public NamesResolutionQueue(NamesResolver resolver, int maxRequestsPerMinute)
+    {
+        this.resolver = resolver;
+        this.minInterval = maxRequestsPerMinute > 0 ? 60000L / maxRequestsPerMinute : 0L;
+    }
+
+    /**
+     * @return The resolver used.
+     */
+    public NamesResolver getResolver()
+    {
+        return resolver;
+    }
+
+    /**
+     * Resolves the given names.
+     *
+     * @param names The names.
+     * @param callback Called with the UUIDs of the resolved names, and the names which could not
+     *                 be looked up because the resolver failed.
+     */
+    public void resolve(Collection<String> names, Callback<Result> callback)
+    {
+        final Request request = new Request(names, callback);
+
+        if (request.remaining.isEmpty())
+        {
+            request.complete();
+            return;
+        }
+
+        for (String key : new ArrayList<>(request.remaining.keySet()))
+        {
+            final List<Request> requests = waiting.get(key);
+
+            // Not queued nor being resolved.
+            if (requests == null)
+            {
+                final List<Request> newRequests = new ArrayList<>();
+                newRequests.add(request);
+
+                waiting.put(key, newRequests);
+                queued.put(key, request.remaining.get(key));
+            }
+            else
+            {
+                requests.add(request);
+            }
+        }
+
+        schedule();
+    }
+
+    /**
+     * Schedules the next request, if there are queued names and the previous request is done, as
+     * soon as the rate limit allows it. The batches are sent before the single lookups.
+     */
+    private void schedule()
+    {
+        if (resolving || scheduled || (queued.isEmpty() && queuedLookups.isEmpty())) return;
+
+        final long delay = Math.max(0L, lastRequest + minInterval - System.currentTimeMillis());
+
+        scheduled = true;
+        RunTask.later(this::sendRequest, (delay + 49L) / 50L);
+    }
+
+    private void sendRequest()
+    {
+        scheduled = false;
+
+        if (!queued.isEmpty())
+            sendBatch();
+        else if (!queuedLookups.isEmpty())
+            sendLookup();
+    }
+
+    private void sendBatch()
+    {
+        final Map<String, String> batch = new LinkedHashMap<>();
+        final Iterator<Map.Entry<String, String>> iterator = queued.entrySet().iterator();
+
+        while (iterator.hasNext() && batch.size() < resolver.getMaxBatchSize())
+        {
+            final Map.Entry<String, String> name = iterator.next();
+
+            batch.put(name.getKey(), name.getValue());
+            iterator.remove();
+        }
+
+        resolving = true;
+        lastRequest = System.currentTimeMillis();
+
+        final List<String> names = new ArrayList<>(batch.values());
+
+        OfflinePlayersLoader.submitResolution(new WorkerRunnable<Map<String, UUID>>()
+        {
+            @Override
+            public Map<String, UUID> run() throws Throwable
+            {
+                return resolver.resolve(names);
+            }
+        }, new WorkerCallback<Map<String, UUID>>()
+        {
+            @Override
+            public void finished(Map<String, UUID> result)
+            {
+                final Map<String, UUID> resolved = new HashMap<>();
+                for (Map.Entry<String, UUID> entry : result.entrySet())
+                    if (entry.getValue() != null)
+                        resolved.put(key(entry.getKey()), entry.getValue());
+
+                // The names not found are looked up one by one, as separate requests.
+                final Set<String> completed = new HashSet<>();
+                for (Map.Entry<String, String> name : batch.entrySet())
+                {
+                    if (resolved.containsKey(name.getKey()) || !resolver.hasFallbackLookup())
+                        completed.add(name.getKey());
+                    else
+                        queuedLookups.put(name.getKey(), name.getValue());
+                }
+
+                done(completed, resolved, false);
+            }
+
+            @Override
+            public void errored(Throwable exception)
+            {
+                PluginLogger.error("Unable to resolve the names {0}", exception, names);
+                done(batch.keySet(), Collections.emptyMap(), true);
+            }
+        });
+    }
+
+    private void sendLookup()
+    {
+        final Iterator<Map.Entry<String, String>> iterator = queuedLookups.entrySet().iterator();
+        final Map.Entry<String, String> entry = iterator.next();
+        iterator.remove();
+
+        final String key = entry.getKey();
+        final String name = entry.getValue();
+
+        resolving = true;
+        lastRequest = System.currentTimeMillis();
+
+        OfflinePlayersLoader.submitResolution(new WorkerRunnable<UUID>()
+        {
+            @Override
+            public UUID run() throws Throwable
+            {
+                return resolver.lookup(name);
+            }
+        }, new WorkerCallback<UUID>()
+        {
+            @Override
+            public void finished(UUID id)
+            {
+                done(Collections.singleton(key), id != null ? Collections.singletonMap(key, id) : Collections.emptyMap(), false);
+            }
+
+            @Override
+            public void errored(Throwable exception)
+            {
+                PluginLogger.error("Unable to resolve the name {0}", exception, name);
+                done(Collections.singleton(key), Collections.emptyMap(), true);
+            }
+        });
+    }
+
+    /**
+     * @param keys     The names looked up by the request, not to be looked up again.
+     * @param resolved The UUIDs of the names resolved.
+     * @param failed   {@code true} if the resolver failed: these names are not known to be
+     *                 unresolvable.
+     */
+    private void done(Collection<String> keys, Map<String, UUID> resolved, boolean failed)
+    {
+        resolving = false;
+
+        for (String key : keys)
+        {
+            final List<Request> requests = waiting.remove(key);
+            if (requests == null) continue;
+
+            for (Request request : requests)
+                request.resolved(key, resolved.get(key), failed);
+        }
+
+        schedule();
+    }
+
+    private static String key(String name)
+    {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+
+    /**
+     * The result of a resolution.
+     */
+    public static final class Result
+    {
+        private final Map<String, UUID> ids = new HashMap<>();
+        private final Set<String> failed = new HashSet<>();
+
+        /**
+         * @return The UUIDs of the resolved names, keyed by name as given. The names which cannot
+         * be resolved are missing.
+         */
+        public Map<String, UUID> getIds()
+        {
+            return Collections.unmodifiableMap(ids);
+        }
+
+        /**
+         * @return The names, as given, which could not be looked up because the resolver failed
+         * (e.g. network error or rate limit). These names may exist.
+         */
+        public Set<String> getFailedNames()
+        {
+            return Collections.unmodifiableSet(failed);
+        }
+    }
+
+    private static final class Request
+    {
+        private final Callback<Result> callback;
+
+        // Names not resolved yet, as given, keyed by lower-cased name.
+        private final Map<String, String> remaining = new HashMap<>();
+        private final Result result = new Result();
+
+        private Request(Collection<String> names, Callback<Result> callback)
+        {
+            this.callback = callback;
+
+            for (String name : names)
+                remaining.put(key(name), name);
+        }
+
+        private void resolved(String key, UUID id, boolean failed)
+        {
+            final String name = remaining.remove(key);
+            if (name != null)
+            {
+                if (id != null) result.ids.put(name, id);
+                else if (failed) result.failed.add(name);
+            }
+
+            if (remaining.isEmpty()) complete();
+        }
+
+        private void complete()
+        {
+            if (callback != null) callback.call(result);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.misc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * Resolves players names to UUIDs, used by the {@link NamesResolutionQueue}.
+ *
+ * <p>
+ *     The resolution is always called from a worker thread, one batch at a time.
+ * </p>
+ */
+public interface NamesResolver
+{
+    /**
+     * @return The maximal number of names resolved in one call.
+     */
+    int getMaxBatchSize();
+
+    /**
+     * @return {@code true} if this resolver returns Mojang's UUIDs, only usable by an online-mode server.
+     */
+    boolean isOnlineModeOnly();
+
+    /**
+     * Resolves the given names, with one request.
+     *
+     * @param names The names to resolve (at most {@link #getMaxBatchSize()}).
+     *
+     * @return The UUIDs of the resolved names, keyed by name. The names which cannot be resolved
+     * may be missing or associated with {@code null}.
+     *
+     * @throws Throwable If the resolution failed.
+     */
+    Map<String, UUID> resolve(final List<String> names) throws Throwable;
+
+    /**
+     * @return {@code true} if the names not found by {@link #resolve(List)} can still be looked up
+     * one by one with {@link #lookup(String)}.
+     */
+    boolean hasFallbackLookup();
+
+    /**
+     * Looks up a name not found by {@link #resolve(List)}, with one request.
+     *
+     * @param name The name.
+     *
+     * @return The UUID, or {@code null} if the name cannot be resolved.
+     *
+     * @throws Throwable If the lookup failed.
+     */
+    UUID lookup(final String name) throws Throwable;
+}
@@ -31,6 +31,8 @@
  */
 package eu.carrade.amaury.UHCReloaded.misc;
 
+import eu.carrade.amaury.UHCReloaded.UHCReloaded;
+import eu.carrade.amaury.UHCReloaded.UHConfig;
 import fr.zcraft.zlib.components.worker.Worker;
 import fr.zcraft.zlib.components.worker.WorkerCallback;
 import fr.zcraft.zlib.components.worker.WorkerRunnable;
@@ -42,9 +44,9 @@ import org.apache.commons.lang.StringUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 
+import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -52,12 +54,94 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 
 public class OfflinePlayersLoader extends Worker
 {
-    private static Map<UUID, OfflinePlayer> offlinePlayers = new HashMap<>();
+    private static Map<UUID, OfflinePlayer> offlinePlayers = new ConcurrentHashMap<>();
+    private static PlayerNamesCache namesCache = new PlayerNamesCache(new File(UHCReloaded.get().getDataFolder(), "names.dat"));
+
+    private static NamesResolutionQueue resolutionQueue = null;
+
+    private static Class<?> gameProfileClass = null;
+
+    /**
+     * Loads the names cache from the disk, and warms it with the players who logged in the server.
+     */
+    public static void loadNamesCache()
+    {
+        namesCache.load();
+
+        for (OfflinePlayer player : Bukkit.getOfflinePlayers())
+            rememberPlayer(player);
+
+        for (OfflinePlayer player : Bukkit.getOnlinePlayers())
+            rememberPlayer(player);
+
+        PluginLogger.info("{0} player name(s) in the names cache.", namesCache.size());
+    }
+
+    /**
+     * Saves the names cache to the disk.
+     */
+    public static void saveNamesCache()
+    {
+        namesCache.save();
+    }
+
+    /**
+     * Returns the queue used to resolve the names of the players never seen, created on first use
+     * with the resolver set in the configuration.
+     *
+     * @return The queue.
+     */
+    public static NamesResolutionQueue getResolutionQueue()
+    {
+        if (resolutionQueue == null)
+        {
+            final NamesResolver resolver;
+
+            if (UHConfig.NAMES_RESOLUTION.RESOLVER.get().equalsIgnoreCase("file"))
+                resolver = new LocalNamesResolver(new File(UHCReloaded.get().getDataFolder(), UHConfig.NAMES_RESOLUTION.FILE.get()));
+            else
+                resolver = new MojangNamesResolver();
+
+            setNamesResolver(resolver);
+        }
+
+        return resolutionQueue;
+    }
+
+    /**
+     * Replaces the resolver used to resolve the names of the players never seen (e.g. with a
+     * {@link LocalNamesResolver} for tests). The names being resolved are resolved by the previous one.
+     *
+     * @param resolver The new resolver.
+     */
+    public static void setNamesResolver(NamesResolver resolver)
+    {
+        resolutionQueue = new NamesResolutionQueue(resolver, UHConfig.NAMES_RESOLUTION.MAX_REQUESTS_PER_MINUTE.get());
+    }
+
+    /**
+     * Submits a names resolution to the worker thread.
+     */
+    static <T> void submitResolution(WorkerRunnable<T> runnable, WorkerCallback<T> callback)
+    {
+        submitQuery(runnable, callback);
+    }
+
+    /**
+     * Remembers the name of this player (e.g. when they log in, as the name may have changed).
+     *
+     * @param player The player.
+     */
+    public static void rememberPlayer(OfflinePlayer player)
+    {
+        namesCache.putKnown(player.getUniqueId(), player.getName());
+    }
 
     /**
      * Returns a list of offline players, including the players who logged in the server and the explicitly
@@ -96,33 +180,61 @@ public class OfflinePlayersLoader extends Worker
     /**
      * Retrieves an OfflinePlayer by name.
      *
-     * Tries to load a logged-in player, then an explicitly loaded player, then
-     * a server-wide OfflinePlayer.
+     * Tries to load a logged-in player, then a player from the names cache (containing the
+     * players who logged in the server and the explicitly loaded players).
      *
      * @param name The player's name.
      * @return An OfflinePlayer. {@code null} if no player was found with this name.
      */
     public static OfflinePlayer getOfflinePlayer(String name)
     {
-        OfflinePlayer player = Bukkit.getOnlinePlayers().stream()
-                .filter(onlinePlayer -> onlinePlayer.getName().equalsIgnoreCase(name))
-                .findFirst().orElse(null);
+        final OfflinePlayer onlinePlayer = Bukkit.getPlayerExact(name);
+        if (onlinePlayer != null) return onlinePlayer;
+
+        final UUID id = namesCache.getId(name);
+        if (id == null) return null;
 
+        OfflinePlayer player = offlinePlayers.get(id);
         if (player == null)
         {
-            player = Arrays.stream(Bukkit.getOfflinePlayers())
-                    .filter(offlinePlayer -> offlinePlayer.getName().equalsIgnoreCase(name))
-                    .findFirst().orElse(null);
+            player = Bukkit.getOfflinePlayer(id);
+
+            // Not known by the server (loaded during a previous session): rebuilt from the cached profile.
+            if (player.getName() == null)
+            {
+                final OfflinePlayer loaded = createOfflinePlayer(id, namesCache.getName(id));
+                if (loaded != null)
+                {
+                    offlinePlayers.put(id, loaded);
+                    player = loaded;
+                }
+            }
         }
 
-        if (player == null)
+        return player;
+    }
+
+    /**
+     * Retrieves the name of a player, from the names cache if possible.
+     *
+     * Can be called from any thread.
+     *
+     * @param id The player's UUID.
+     * @return The name, or {@code null} if unknown.
+     */
+    public static String getName(UUID id)
+    {
+        final String cachedName = namesCache.getName(id);
+        if (cachedName != null) return cachedName;
+
+        final OfflinePlayer player = getOfflinePlayer(id);
+        if (player.getName() != null && !player.getName().isEmpty())
         {
-            player = offlinePlayers.values().stream()
-                    .filter(offlinePlayer -> offlinePlayer.getName().equalsIgnoreCase(name))
-                    .findFirst().orElse(null);
+            rememberPlayer(player);
+            return player.getName();
         }
 
-        return player;
+        return null;
     }
 
     /**
@@ -164,9 +276,10 @@ public class OfflinePlayersLoader extends Worker
      * Loads the given players list in the system, making it available in the players list
      * and to be added in teams.
      *
-     * Only works in online mode. In offline mode, the already known players will be sent
-     * to the success callback and the others to the errors one. Use {@link UUIDFetcher}
-     * directly if needed.
+     * The unknown names are resolved through the {@link #getResolutionQueue() resolution queue}.
+     * With the Mojang resolver, only works in online mode. In offline mode, the already known
+     * players will be sent to the success callback and the others to the errors one. Use
+     * {@link UUIDFetcher} directly if needed.
      *
      * @param pseudonyms A list of pseudonyms.
      * @param callbackSuccess A callback called when the process ended.
@@ -174,6 +287,7 @@ public class OfflinePlayersLoader extends Worker
     public static void loadPlayers(final List<String> pseudonyms, final Callback<Map<UUID, OfflinePlayer>> callbackSuccess, final Callback<List<String>> callbackErrors)
     {
         final List<String> toRetrieve = new ArrayList<>(pseudonyms);
+        final List<String> knownUnknown = new ArrayList<>();
         final Map<UUID, OfflinePlayer> alreadyKnown = new HashMap<>();
 
         for (String pseudonym : pseudonyms)
@@ -184,94 +298,95 @@ public class OfflinePlayersLoader extends Worker
                 alreadyKnown.put(player.getUniqueId(), player);
                 toRetrieve.remove(pseudonym);
             }
+
+            // Recently looked up without success: not fetched again.
+            else if (namesCache.isUnknown(pseudonym))
+            {
+                knownUnknown.add(pseudonym);
+                toRetrieve.remove(pseudonym);
+            }
         }
 
         if (toRetrieve.size() == 0)
         {
             if (callbackSuccess != null) callbackSuccess.call(alreadyKnown);
+            if (callbackErrors != null && knownUnknown.size() > 0) callbackErrors.call(knownUnknown);
             return;
         }
 
-        // If the server is in offline mode, we don't even try to load the players, as they will
-        // not be valid and be unusable.
-        if (!Bukkit.getOnlineMode())
+        // If the resolver only returns Mojang's UUIDs and the server is in offline mode, we don't
+        // even try to load the players, as they will not be valid and be unusable.
+        if (!Bukkit.getOnlineMode() && getResolutionQueue().getResolver().isOnlineModeOnly())
         {
+            toRetrieve.addAll(knownUnknown);
+
             if (callbackSuccess != null) callbackSuccess.call(alreadyKnown);
             if (callbackErrors != null && toRetrieve.size() > 0) callbackErrors.call(toRetrieve);
 
             return;
         }
 
-        submitQuery(new WorkerRunnable<Map<String, UUID>>()
+        getResolutionQueue().resolve(toRetrieve, result ->
         {
-            @Override
-            public Map<String, UUID> run() throws Throwable
-            {
-                final Map<String, UUID> uuids = UUIDFetcher.fetch(toRetrieve);
-                UUIDFetcher.fetchRemaining(toRetrieve, uuids);
+            final Map<UUID, OfflinePlayer> added = new HashMap<>(alreadyKnown);
 
-                return uuids;
-            }
-        }, new WorkerCallback<Map<String, UUID>>()
-        {
-            @Override
-            public void finished(final Map<String, UUID> result)
+            for (Map.Entry<String, UUID> playerProfile : result.getIds().entrySet())
             {
-                final Map<UUID, OfflinePlayer> added = new HashMap<>(alreadyKnown);
-                final Class<?> gameProfileClass;
-
-                try
-                {
-                    gameProfileClass = Class.forName("com.mojang.authlib.GameProfile");
-                }
-                catch (ClassNotFoundException e)
-                {
-                    PluginLogger.error("Cannot load GameProfile class required to load OfflinePlayers.", e);
-                    return;
-                }
+                final String name = playerProfile.getKey();
+                final UUID uuid = playerProfile.getValue();
 
-                for (Map.Entry<String, UUID> playerProfile : result.entrySet())
+                final OfflinePlayer player = createOfflinePlayer(uuid, name);
+                if (player != null)
                 {
-                    final String name = playerProfile.getKey();
-                    final UUID uuid = playerProfile.getValue();
-
-                    if (uuid == null)
-                    {
-                        PluginLogger.error("Unable to load the player {0}, skipping.", name);
-                        continue;
-                    }
-
-                    try
-                    {
-                        final Object profile = Reflection.instantiate(gameProfileClass, uuid, name);
-                        final OfflinePlayer player = (OfflinePlayer) Reflection.call(Bukkit.getServer(), "getOfflinePlayer", profile);
-
-                        offlinePlayers.put(uuid, player);
-                        added.put(uuid, player);
-                    }
-                    catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | InstantiationException e)
-                    {
-                        PluginLogger.error("Unable to load the player {0}, skipping.", e, playerProfile.getKey());
-                    }
+                    offlinePlayers.put(uuid, player);
+                    namesCache.put(uuid, name);
+                    added.put(uuid, player);
                 }
+            }
 
-                if (callbackSuccess != null) callbackSuccess.call(added);
+            final List<String> notRetrieved = toRetrieve.stream()
+                    .filter(pseudonym -> !result.getIds().containsKey(pseudonym))
+                    .collect(Collectors.toList());
 
-                if (callbackErrors != null)
-                {
-                    final List<String> notRetrieved = toRetrieve.stream()
-                            .filter(pseudonym -> !result.keySet().contains(pseudonym))
-                            .collect(Collectors.toList());
+            // Only the names really not found are remembered; if the resolver failed, they may
+            // exist and will be looked up again next time.
+            notRetrieved.stream()
+                    .filter(pseudonym -> !result.getFailedNames().contains(pseudonym))
+                    .forEach(namesCache::putUnknown);
 
-                    if (notRetrieved.size() > 0) callbackErrors.call(notRetrieved);
-                }
-            }
+            notRetrieved.addAll(knownUnknown);
 
-            @Override
-            public void errored(Throwable exception)
-            {
-                PluginLogger.error("Unable to load players", exception);
-            }
+            if (callbackSuccess != null) callbackSuccess.call(added);
+            if (callbackErrors != null && notRetrieved.size() > 0) callbackErrors.call(notRetrieved);
         });
     }
+
+    /**
+     * Creates an OfflinePlayer from its profile, even if this player never logged in the server.
+     *
+     * @param id The player's UUID.
+     * @param name The player's name.
+     * @return The OfflinePlayer, or {@code null} if it cannot be created.
+     */
+    private static OfflinePlayer createOfflinePlayer(UUID id, String name)
+    {
+        try
+        {
+            if (gameProfileClass == null)
+                gameProfileClass = Class.forName("com.mojang.authlib.GameProfile");
+
+            final Object profile = Reflection.instantiate(gameProfileClass, id, name);
+            return (OfflinePlayer) Reflection.call(Bukkit.getServer(), "getOfflinePlayer", profile);
+        }
+        catch (ClassNotFoundException e)
+        {
+            PluginLogger.error("Cannot load GameProfile class required to load OfflinePlayers.", e);
+            return null;
+        }
+        catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | InstantiationException e)
+        {
+            PluginLogger.error("Unable to load the player {0}, skipping.", e, name);
+            return null;
+        }
+    }
 }
@@ -33,38 +33,59 @@ package eu.carrade.amaury.UHCReloaded.misc;
 
 import eu.carrade.amaury.UHCReloaded.UHCReloaded;
 import eu.carrade.amaury.UHCReloaded.UHConfig;
-import fr.zcraft.zlib.components.i18n.I;
+import eu.carrade.amaury.UHCReloaded.game.UHGameManager;
+import eu.carrade.amaury.UHCReloaded.utils.I18nTemplates;
+import fr.zcraft.zlib.tools.runners.RunTask;
 import fr.zcraft.zlib.tools.text.ListHeaderFooter;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayList;
+import java.util.List;
+
 
 public class PlayerListHeaderFooterManager
 {
-    private final String WAITING_HEADER_PATTERN;
-    private final String WAITING_FOOTER_PATTERN;
-    private final String IN_GAME_HEADER_PATTERN;
-    private final String IN_GAME_FOOTER_PATTERN;
+    private final Object[] WAITING_HEADER_PATTERN;
+    private final Object[] WAITING_FOOTER_PATTERN;
+    private final Object[] IN_GAME_HEADER_PATTERN;
+    private final Object[] IN_GAME_FOOTER_PATTERN;
+    private final String TITLE;
 
     private String currentHeader = "";
     private String currentFooter = "";
 
+    private boolean updateScheduled = false;
+
 
     public PlayerListHeaderFooterManager()
     {
-        WAITING_HEADER_PATTERN = UHConfig.PLAYERS_LIST.WAITING_TIME.HEADER.get();
-        WAITING_FOOTER_PATTERN = UHConfig.PLAYERS_LIST.WAITING_TIME.FOOTER.get();
-        IN_GAME_HEADER_PATTERN = UHConfig.PLAYERS_LIST.IN_GAME_TIME.HEADER.get();
-        IN_GAME_FOOTER_PATTERN = UHConfig.PLAYERS_LIST.IN_GAME_TIME.FOOTER.get();
+        // The color codes are translated and the patterns compiled once here, not at each update.
+        WAITING_HEADER_PATTERN = compile(UHConfig.PLAYERS_LIST.WAITING_TIME.HEADER.get());
+        WAITING_FOOTER_PATTERN = compile(UHConfig.PLAYERS_LIST.WAITING_TIME.FOOTER.get());
+        IN_GAME_HEADER_PATTERN = compile(UHConfig.PLAYERS_LIST.IN_GAME_TIME.HEADER.get());
+        IN_GAME_FOOTER_PATTERN = compile(UHConfig.PLAYERS_LIST.IN_GAME_TIME.FOOTER.get());
+        TITLE = ChatColor.translateAlternateColorCodes('&', UHConfig.SCOREBOARD.TITLE.get());
 
         updateHeadersFooters();
     }
 
 
+    /**
+     * Updates the headers and footers at the next tick. They are sent to the players only if they
+     * changed; all the updates requested during a tick are sent at once.
+     */
     public void updateHeadersFooters()
     {
-        computeHeadersFooter();
-        send();
+        if (updateScheduled) return;
+        updateScheduled = true;
+
+        RunTask.nextTick(() -> {
+            updateScheduled = false;
+
+            if (computeHeadersFooter())
+                send();
+        });
     }
 
     public void sendTo(Player player)
@@ -74,54 +95,146 @@ public class PlayerListHeaderFooterManager
     }
 
 
-    private void computeHeadersFooter()
+    /**
+     * Computes the headers and footers.
+     *
+     * @return {@code true} if they changed since the last computation.
+     */
+    private boolean computeHeadersFooter()
     {
+        final String header;
+        final String footer;
+
         if (UHCReloaded.get().getGameManager().isGameStarted())
         {
-            currentHeader = computeText(IN_GAME_HEADER_PATTERN);
-            currentFooter = computeText(IN_GAME_FOOTER_PATTERN);
+            header = render(IN_GAME_HEADER_PATTERN);
+            footer = render(IN_GAME_FOOTER_PATTERN);
         }
         else
         {
-            currentHeader = computeText(WAITING_HEADER_PATTERN);
-            currentFooter = computeText(WAITING_FOOTER_PATTERN);
+            header = render(WAITING_HEADER_PATTERN);
+            footer = render(WAITING_FOOTER_PATTERN);
         }
+
+        if (header.equals(currentHeader) && footer.equals(currentFooter))
+            return false;
+
+        currentHeader = header;
+        currentFooter = footer;
+
+        return true;
     }
 
-    private String computeText(String pattern)
+    /**
+     * Compiles a pattern into a list of tokens: literal strings, and {@link Tag tags}.
+     *
+     * @param raw The raw pattern, from the configuration.
+     * @return The tokens.
+     */
+    private static Object[] compile(String raw)
     {
-        return pattern.isEmpty() ? "" : ChatColor.translateAlternateColorCodes('&', replaceTags(pattern));
+        final String pattern = ChatColor.translateAlternateColorCodes('&', raw);
+        final List<Object> tokens = new ArrayList<>();
+
+        final StringBuilder literal = new StringBuilder();
+        int i = 0;
+
+        while (i < pattern.length())
+        {
+            Tag tag = null;
+
+            if (pattern.charAt(i) == '{')
+            {
+                for (Tag candidate : Tag.values())
+                {
+                    if (pattern.startsWith(candidate.getTag(), i))
+                    {
+                        tag = candidate;
+                        break;
+                    }
+                }
+            }
+
+            if (tag != null)
+            {
+                if (literal.length() > 0)
+                {
+                    tokens.add(literal.toString());
+                    literal.setLength(0);
+                }
+
+                tokens.add(tag);
+                i += tag.getTag().length();
+            }
+            else
+            {
+                literal.append(pattern.charAt(i));
+                i++;
+            }
+        }
+
+        if (literal.length() > 0)
+            tokens.add(literal.toString());
+
+        return tokens.toArray();
     }
 
     /**
-     * Tags:
-     * - {title}: contains the scoreboard title (key scoreboard.title).
-     * - {episodeText}: contains the localized “Episode x” text.
-     * - {playersText}: contains the localized “x players left” text.
-     * - {teamsText}: contains the localized “x teams left” text.
-     * - {episodeNumber}: contains the raw episode number (e.g. “2”).
-     * - {playersCount}: contains the raw alive players count (e.g. “18”).
-     * - {teamsCount}: contains the raw alive teams count (e.g. “6”).
+     * Renders a compiled pattern, replacing the tags (see {@link Tag}).
      *
-     * @param raw The raw text.
+     * @param tokens The compiled pattern.
      * @return The text, with tags replaced.
      */
-    private String replaceTags(String raw)
+    private String render(Object[] tokens)
+    {
+        if (tokens.length == 0) return "";
+
+        final StringBuilder text = new StringBuilder();
+
+        for (Object token : tokens)
+        {
+            if (token instanceof Tag)
+                text.append(getTagValue((Tag) token));
+            else
+                text.append((String) token);
+        }
+
+        return text.toString();
+    }
+
+    private String getTagValue(Tag tag)
     {
-        return raw
-                .replace("{title}", UHConfig.SCOREBOARD.TITLE.get())
+        final UHGameManager gameManager = UHCReloaded.get().getGameManager();
+
+        switch (tag)
+        {
+            case TITLE:
+                return TITLE;
 
+            case EPISODE_TEXT:
                 /// Episode in the player list ({episodeText} replacement). {0} = current episode number.
-                .replace("{episodeText}", I.t("Episode {0}", String.valueOf(UHCReloaded.get().getGameManager().getEpisode())))
+                return I18nTemplates.t("Episode {0}", String.valueOf(gameManager.getEpisode()));
+
+            case PLAYERS_TEXT:
                 /// Players in the player list ({playersText} replacement). {0} = current alive players count.
-                .replace("{playersText}", I.tn("{0} player", "{0} players", UHCReloaded.get().getGameManager().getAlivePlayersCount(), UHCReloaded.get().getGameManager().getAlivePlayersCount()))
+                return I18nTemplates.tn("{0} player", "{0} players", gameManager.getAlivePlayersCount(), gameManager.getAlivePlayersCount());
+
+            case TEAMS_TEXT:
                 /// Teams in the player list ({teamsText} replacement). {0} = current alive teams count.
-                .replace("{teamsText}", I.tn("{0} team", "{0} teams", UHCReloaded.get().getGameManager().getAliveTeamsCount(), UHCReloaded.get().getGameManager().getAliveTeamsCount()))
+                return I18nTemplates.tn("{0} team", "{0} teams", gameManager.getAliveTeamsCount(), gameManager.getAliveTeamsCount());
+
+            case EPISODE_NUMBER:
+                return String.valueOf(gameManager.getEpisode());
+
+            case PLAYERS_COUNT:
+                return String.valueOf(gameManager.getAlivePlayersCount());
 
-                .replace("{episodeNumber}", String.valueOf(UHCReloaded.get().getGameManager().getEpisode()))
-                .replace("{playersCount}", String.valueOf(UHCReloaded.get().getGameManager().getAlivePlayersCount()))
-                .replace("{teamsCount}", String.valueOf(UHCReloaded.get().getGameManager().getAliveTeamsCount()))
-                ;
+            case TEAMS_COUNT:
+                return String.valueOf(gameManager.getAliveTeamsCount());
+
+            default:
+                return "";
+        }
     }
 
     private void send()
@@ -129,4 +242,38 @@ public class PlayerListHeaderFooterManager
         if (!currentHeader.isEmpty() || !currentFooter.isEmpty())
             ListHeaderFooter.sendListHeaderFooter(currentHeader, currentFooter);
     }
+
+
+    /**
+     * Tags:
+     * - {title}: contains the scoreboard title (key scoreboard.title).
+     * - {episodeText}: contains the localized “Episode x” text.
+     * - {playersText}: contains the localized “x players left” text.
+     * - {teamsText}: contains the localized “x teams left” text.
+     * - {episodeNumber}: contains the raw episode number (e.g. “2”).
+     * - {playersCount}: contains the raw alive players count (e.g. “18”).
+     * - {teamsCount}: contains the raw alive teams count (e.g. “6”).
+     */
+    private enum Tag
+    {
+        TITLE("{title}"),
+        EPISODE_TEXT("{episodeText}"),
+        PLAYERS_TEXT("{playersText}"),
+        TEAMS_TEXT("{teamsText}"),
+        EPISODE_NUMBER("{episodeNumber}"),
+        PLAYERS_COUNT("{playersCount}"),
+        TEAMS_COUNT("{teamsCount}");
+
+        private final String tag;
+
+        Tag(String tag)
+        {
+            this.tag = tag;
+        }
+
+        public String getTag()
+        {
+            return tag;
+        }
+    }
 }
@@ -0,0 +1,365 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.misc;
+
+import fr.zcraft.zlib.tools.PluginLogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A case-insensitive index of the known names and UUIDs, stored on disk between sessions.
+ *
+ * <p>The entries expire after some time (as names can change), and the least recently used entries
+ * are evicted when the cache is full. The names which cannot be resolved are remembered for a
+ * shorter time (and not saved), so they are not looked up again and again.</p>
+ *
+ * <p>The players known by the server (see {@link #putKnown(UUID, String)}) are kept apart: they
+ * never expire nor are evicted, and are not saved, as the server stores them already.</p>
+ *
+ * <p>All the methods are thread-safe, as the names are read from the asynchronous sidebar.</p>
+ */
+public class PlayerNamesCache
+{
+    private static final int MAGIC = 0x55484e43; // "UHNC"
+    private static final byte VERSION = 1;
+
+    private static final int MAX_ENTRIES = 4096;
+    private static final long ENTRY_TTL = TimeUnit.DAYS.toMillis(30);
+    private static final long UNKNOWN_TTL = TimeUnit.HOURS.toMillis(1);
+
+    private final File file;
+
+    // Guarded by this. Keyed by lower-cased name; the players resolved from elsewhere than the
+    // server, in access order.
+    private final Map<String, Entry> byName = new LinkedHashMap<String, Entry>(256, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+        {
+            if (size() <= MAX_ENTRIES) return false;
+
+            final Entry entry = byId.get(eldest.getValue().id);
+            if (entry == eldest.getValue()) byId.remove(entry.id);
+
+            return true;
+        }
+    };
+
+    private final Map<String, Entry> knownByName = new HashMap<>();
+    private final Map<UUID, Entry> byId = new HashMap<>();
+    private final Map<String, Long> unknownNames = new HashMap<>();
+
+
+    /**
+     * @param file The file the cache is stored into.
+     */
+    public PlayerNamesCache(File file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * Remembers a name and the associated UUID, resolved from elsewhere than the server.
+     *
+     * @param id The UUID.
+     * @param name The name.
+     */
+    public void put(UUID id, String name)
+    {
+        put(id, name, System.currentTimeMillis(), false);
+    }
+
+    /**
+     * Remembers a name and the associated UUID of a player known by the server (e.g. who logged
+     * in). This entry is never evicted.
+     *
+     * @param id The UUID.
+     * @param name The name.
+     */
+    public void putKnown(UUID id, String name)
+    {
+        put(id, name, System.currentTimeMillis(), true);
+    }
+
+    private synchronized void put(UUID id, String name, long timestamp, boolean known)
+    {
+        if (id == null || name == null || name.isEmpty()) return;
+
+        final String key = key(name);
+
+        // If this UUID had another name before, this one is outdated.
+        final Entry previous = byId.get(id);
+        if (previous != null && !previous.name.equalsIgnoreCase(name))
+            remove(previous);
+
+        // Known by the server: kept as such.
+        else if (previous != null && previous.known && !known)
+            return;
+
+        // If this name belonged to another UUID, the other player changed their name.
+        final Entry displaced = getEntry(key);
+        if (displaced != null && !displaced.id.equals(id))
+            remove(displaced);
+
+        final Entry entry = new Entry(id, name, timestamp, known);
+
+        if (known)
+        {
+            byName.remove(key);
+            knownByName.put(key, entry);
+        }
+        else
+        {
+            byName.put(key, entry);
+        }
+
+        byId.put(id, entry);
+        unknownNames.remove(key);
+    }
+
+    private Entry getEntry(String key)
+    {
+        final Entry known = knownByName.get(key);
+        return known != null ? known : byName.get(key);
+    }
+
+    private void remove(Entry entry)
+    {
+        final String key = key(entry.name);
+
+        if (knownByName.get(key) == entry) knownByName.remove(key);
+        if (byName.get(key) == entry) byName.remove(key);
+        if (byId.get(entry.id) == entry) byId.remove(entry.id);
+    }
+
+    /**
+     * Remembers that a name cannot be resolved to an UUID.
+     *
+     * @param name The name.
+     */
+    public synchronized void putUnknown(String name)
+    {
+        unknownNames.put(key(name), System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the UUID associated with this name (case-insensitive).
+     *
+     * @param name The name.
+     * @return The UUID, or {@code null} if unknown or expired.
+     */
+    public synchronized UUID getId(String name)
+    {
+        final String key = key(name);
+
+        final Entry known = knownByName.get(key);
+        if (known != null) return known.id;
+
+        final Entry entry = byName.get(key);
+        if (entry == null) return null;
+
+        if (entry.isExpired())
+        {
+            byName.remove(key);
+            if (byId.get(entry.id) == entry) byId.remove(entry.id);
+
+            return null;
+        }
+
+        return entry.id;
+    }
+
+    /**
+     * Returns the name associated with this UUID.
+     *
+     * @param id The UUID.
+     * @return The name, or {@code null} if unknown or expired.
+     */
+    public synchronized String getName(UUID id)
+    {
+        final Entry entry = byId.get(id);
+        return entry != null && !entry.isExpired() ? entry.name : null;
+    }
+
+    /**
+     * Checks if this name was recently looked up without result.
+     *
+     * @param name The name.
+     * @return {@code true} if the name is known to be unresolvable.
+     */
+    public synchronized boolean isUnknown(String name)
+    {
+        final String key = key(name);
+        final Long since = unknownNames.get(key);
+
+        if (since == null) return false;
+
+        if (System.currentTimeMillis() - since > UNKNOWN_TTL)
+        {
+            unknownNames.remove(key);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return The number of names cached.
+     */
+    public synchronized int size()
+    {
+        return byName.size() + knownByName.size();
+    }
+
+    /**
+     * Loads the cache from the file. The expired entries are skipped.
+     */
+    public void load()
+    {
+        if (!file.exists()) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION)
+            {
+                PluginLogger.warning("Ignoring the names cache {0}: unknown format.", file.getName());
+                return;
+            }
+
+            final int count = in.readInt();
+
+            for (int i = 0; i < count; i++)
+            {
+                final UUID id = new UUID(in.readLong(), in.readLong());
+                final String name = in.readUTF();
+                final long timestamp = in.readLong();
+
+                if (System.currentTimeMillis() - timestamp <= ENTRY_TTL)
+                    put(id, name, timestamp, false);
+            }
+        }
+        catch (IOException e)
+        {
+            PluginLogger.error("Unable to load the names cache from {0}", e, file.getName());
+        }
+    }
+
+    /**
+     * Writes the cache into the file, least recently used entries first. The players known by the
+     * server are not written. The file is replaced atomically.
+     */
+    public void save()
+    {
+        final List<Entry> entries;
+
+        synchronized (this)
+        {
+            entries = new ArrayList<>(byName.size());
+            for (Entry entry : byName.values())
+                if (!entry.isExpired()) entries.add(entry);
+        }
+
+        final File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try
+        {
+            if (!file.getParentFile().exists() && !file.getParentFile().mkdirs())
+                throw new IOException("Unable to create the directory " + file.getParentFile());
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+            {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeInt(entries.size());
+
+                for (Entry entry : entries)
+                {
+                    out.writeLong(entry.id.getMostSignificantBits());
+                    out.writeLong(entry.id.getLeastSignificantBits());
+                    out.writeUTF(entry.name);
+                    out.writeLong(entry.timestamp);
+                }
+            }
+
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            PluginLogger.error("Unable to save the names cache to {0}", e, file.getName());
+        }
+    }
+
+    private static String key(String name)
+    {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+
+    private static final class Entry
+    {
+        private final UUID id;
+        private final String name;
+        private final long timestamp;
+        private final boolean known;
+
+        private Entry(UUID id, String name, long timestamp, boolean known)
+        {
+            this.id = id;
+            this.name = name;
+            this.timestamp = timestamp;
+            this.known = known;
+        }
+
+        private boolean isExpired()
+        {
+            return !known && System.currentTimeMillis() - timestamp > ENTRY_TTL;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.movement;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerMoveEvent;
+
+
+/**
+ * A movement of a player from a block to another.
+ *
+ * <p>Instances are reused by the {@link MovementDispatcher} to avoid allocations: a handler must
+ * not keep a reference to it after the call.</p>
+ */
+public final class BlockMove
+{
+    private Player player;
+    private World fromWorld;
+    private World toWorld;
+    private int fromX, fromY, fromZ;
+    private int toX, toY, toZ;
+    private PlayerMoveEvent event;
+
+
+    BlockMove() {}
+
+    void set(Player player, World fromWorld, int fromX, int fromY, int fromZ, World toWorld, int toX, int toY, int toZ, PlayerMoveEvent event)
+    {
+        this.player = player;
+        this.fromWorld = fromWorld;
+        this.fromX = fromX;
+        this.fromY = fromY;
+        this.fromZ = fromZ;
+        this.toWorld = toWorld;
+        this.toX = toX;
+        this.toY = toY;
+        this.toZ = toZ;
+        this.event = event;
+    }
+
+    /**
+     * @return The moving player.
+     */
+    public Player getPlayer()
+    {
+        return player;
+    }
+
+    /**
+     * @return The world the player comes from.
+     */
+    public World getFromWorld()
+    {
+        return fromWorld;
+    }
+
+    public int getFromX()
+    {
+        return fromX;
+    }
+
+    public int getFromY()
+    {
+        return fromY;
+    }
+
+    public int getFromZ()
+    {
+        return fromZ;
+    }
+
+    /**
+     * @return The world the player is now in.
+     */
+    public World getToWorld()
+    {
+        return toWorld;
+    }
+
+    public int getToX()
+    {
+        return toX;
+    }
+
+    public int getToY()
+    {
+        return toY;
+    }
+
+    public int getToZ()
+    {
+        return toZ;
+    }
+
+    /**
+     * @return {@code true} if the player changed of world.
+     */
+    public boolean isWorldChange()
+    {
+        return fromWorld != toWorld;
+    }
+
+    /**
+     * @return {@code true} if the player changed of chunk (or of world).
+     */
+    public boolean isChunkChange()
+    {
+        return isWorldChange() || fromX >> 4 != toX >> 4 || fromZ >> 4 != toZ >> 4;
+    }
+
+    /**
+     * @return The underlying move event for immediate handlers, or {@code null} for coalesced
+     * ones.
+     */
+    public PlayerMoveEvent getEvent()
+    {
+        return event;
+    }
+}
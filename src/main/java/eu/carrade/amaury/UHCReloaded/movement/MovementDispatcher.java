@@ -0,0 +1,268 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.movement;
+
+import fr.zcraft.zlib.tools.runners.RunTask;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerMoveEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+/**
+ * Dispatches the movements of the players to the subsystems needing them, at the block
+ * granularity.
+ *
+ * <p>The moves only changing the head rotation or staying in the same block are filtered out, and
+ * the block coordinates are computed once for all the handlers.</p>
+ *
+ * <p>Two kinds of handlers can be registered:</p>
+ * <ul>
+ *     <li><strong>immediate handlers</strong> are called during the {@link PlayerMoveEvent}, for
+ *     each block change (as example, to cancel a movement);</li>
+ *     <li><strong>coalesced handlers</strong> are called at most once per player and per tick,
+ *     with the whole movement of the player during this tick (including teleportations).</li>
+ * </ul>
+ */
+public class MovementDispatcher
+{
+    private final List<BlockMoveHandler> immediateHandlers = new CopyOnWriteArrayList<>();
+    private final List<BlockMoveHandler> coalescedHandlers = new CopyOnWriteArrayList<>();
+
+    private final Map<UUID, PlayerPosition> positions = new HashMap<>();
+    private final List<PlayerPosition> moved = new ArrayList<>();
+
+    private final BlockMove immediateMove = new BlockMove();
+    private final BlockMove coalescedMove = new BlockMove();
+
+
+    public MovementDispatcher()
+    {
+        RunTask.timer(this::flush, 1L, 1L);
+    }
+
+    /**
+     * Registers a handler called during the move event, each time a player changes of block.
+     *
+     * @param handler The handler.
+     */
+    public void registerImmediateHandler(BlockMoveHandler handler)
+    {
+        immediateHandlers.add(handler);
+    }
+
+    /**
+     * Registers a handler called at most once per player and per tick, at the end of the tick,
+     * if the player changed of block during this tick.
+     *
+     * @param handler The handler.
+     */
+    public void registerCoalescedHandler(BlockMoveHandler handler)
+    {
+        coalescedHandlers.add(handler);
+    }
+
+    /**
+     * Unregisters a handler, whatever its kind.
+     *
+     * @param handler The handler.
+     */
+    public void unregisterHandler(BlockMoveHandler handler)
+    {
+        immediateHandlers.remove(handler);
+        coalescedHandlers.remove(handler);
+    }
+
+    /**
+     * Handles a move event.
+     *
+     * @param ev The event.
+     */
+    public void handleMove(PlayerMoveEvent ev)
+    {
+        final Location from = ev.getFrom();
+        final Location to = ev.getTo();
+
+        if (to == null) return;
+
+        final int fromX = from.getBlockX(), fromY = from.getBlockY(), fromZ = from.getBlockZ();
+        final int toX = to.getBlockX(), toY = to.getBlockY(), toZ = to.getBlockZ();
+
+        final World fromWorld = from.getWorld();
+        final World toWorld = to.getWorld();
+
+        // Head rotation, or movement inside the same block.
+        if (fromX == toX && fromY == toY && fromZ == toZ && fromWorld == toWorld) return;
+
+        if (!immediateHandlers.isEmpty())
+        {
+            immediateMove.set(ev.getPlayer(), fromWorld, fromX, fromY, fromZ, toWorld, toX, toY, toZ, ev);
+            for (BlockMoveHandler handler : immediateHandlers)
+            {
+                handler.onBlockMove(immediateMove);
+            }
+            immediateMove.set(null, null, 0, 0, 0, null, 0, 0, 0, null);
+        }
+
+        if (!ev.isCancelled())
+        {
+            // The destination may have been altered by an immediate handler.
+            final Location finalTo = ev.getTo();
+            if (finalTo != to) markMoved(ev.getPlayer(), finalTo);
+            else markMoved(ev.getPlayer(), toWorld, toX, toY, toZ);
+        }
+    }
+
+    /**
+     * Records the new position of a player (after a teleportation, as example), to be dispatched
+     * to the coalesced handlers at the end of the tick.
+     *
+     * @param player   The player.
+     * @param location The new location.
+     */
+    public void markMoved(Player player, Location location)
+    {
+        markMoved(player, location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    /**
+     * Starts tracking a player (on join, as example). No movement is dispatched.
+     *
+     * @param player The player.
+     */
+    public void track(Player player)
+    {
+        final Location location = player.getLocation();
+        positions.put(player.getUniqueId(), new PlayerPosition(player, location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+    }
+
+    /**
+     * Stops tracking a player (on quit, as example). A movement pending for this tick is dropped.
+     *
+     * @param player The player.
+     */
+    public void untrack(Player player)
+    {
+        final PlayerPosition position = positions.remove(player.getUniqueId());
+        if (position != null) position.pending = false;
+    }
+
+    private void markMoved(Player player, World world, int x, int y, int z)
+    {
+        PlayerPosition position = positions.get(player.getUniqueId());
+        if (position == null)
+        {
+            // Player not tracked yet (as example, after a reload): the first known position is
+            // the origin.
+            track(player);
+            position = positions.get(player.getUniqueId());
+        }
+
+        position.pendingWorld = world;
+        position.pendingX = x;
+        position.pendingY = y;
+        position.pendingZ = z;
+
+        if (!position.pending)
+        {
+            position.pending = true;
+            moved.add(position);
+        }
+    }
+
+    /**
+     * Dispatches the coalesced movements of this tick.
+     */
+    private void flush()
+    {
+        if (moved.isEmpty()) return;
+
+        for (int i = 0; i < moved.size(); i++)
+        {
+            final PlayerPosition position = moved.get(i);
+            if (!position.pending) continue;
+
+            position.pending = false;
+
+            // Back to the original block during the tick.
+            if (position.pendingWorld == position.world && position.pendingX == position.x && position.pendingY == position.y && position.pendingZ == position.z)
+                continue;
+
+            coalescedMove.set(position.player, position.world, position.x, position.y, position.z, position.pendingWorld, position.pendingX, position.pendingY, position.pendingZ, null);
+
+            position.world = position.pendingWorld;
+            position.x = position.pendingX;
+            position.y = position.pendingY;
+            position.z = position.pendingZ;
+
+            for (BlockMoveHandler handler : coalescedHandlers)
+            {
+                handler.onBlockMove(coalescedMove);
+            }
+        }
+
+        coalescedMove.set(null, null, 0, 0, 0, null, 0, 0, 0, null);
+        moved.clear();
+    }
+
+
+    /**
+     * The last dispatched and the pending block positions of a player.
+     */
+    private static final class PlayerPosition
+    {
+        private final Player player;
+
+        private World world;
+        private int x, y, z;
+
+        private boolean pending = false;
+        private World pendingWorld;
+        private int pendingX, pendingY, pendingZ;
+
+        private PlayerPosition(Player player, World world, int x, int y, int z)
+        {
+            this.player = player;
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+}
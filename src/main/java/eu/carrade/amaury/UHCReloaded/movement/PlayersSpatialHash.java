@@ -0,0 +1,399 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.movement;
+
+import eu.carrade.amaury.UHCReloaded.UHCReloaded;
+import eu.carrade.amaury.UHCReloaded.teams.UHTeam;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+
+/**
+ * A per-world spatial hash of the alive players, updated from their movements.
+ *
+ * <p>The players are stored in cells of 16×16 blocks (columns), so the proximity queries only
+ * look at the cells around the reference point: they run in O(nearby players) instead of
+ * scanning all the players.</p>
+ *
+ * <p>The queries must be called from the main thread, except {@link #getDistanceSquared(UUID,
+ * UUID)} which can be called from any thread.</p>
+ */
+public class PlayersSpatialHash
+{
+    private static final int CELL_SHIFT = 4;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    private final Map<World, Map<Long, List<Entry>>> cells = new HashMap<>();
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+
+    public PlayersSpatialHash()
+    {
+        UHCReloaded.get().getMovementDispatcher().registerCoalescedHandler(this::onBlockMove);
+    }
+
+    /**
+     * Adds (or moves) a player into the index, if alive.
+     *
+     * @param player The player.
+     */
+    public void update(Player player)
+    {
+        final Location location = player.getLocation();
+        update(player, location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    /**
+     * Removes a player from the index.
+     *
+     * @param id The UUID of the player.
+     */
+    public void remove(UUID id)
+    {
+        final Entry entry = entries.remove(id);
+        if (entry != null) removeFromCell(entry);
+    }
+
+    /**
+     * Removes all the players from the index.
+     */
+    public void clear()
+    {
+        cells.clear();
+        entries.clear();
+    }
+
+    /**
+     * Checks if a player is indexed.
+     *
+     * @param id The UUID of the player.
+     * @return {@code true} if indexed.
+     */
+    public boolean contains(UUID id)
+    {
+        return entries.containsKey(id);
+    }
+
+    /**
+     * Returns the squared distance between two indexed players, at the block precision. Can be
+     * called from any thread.
+     *
+     * @param first  The first player.
+     * @param second The second player.
+     *
+     * @return The squared distance, or {@code -1} if one of them is not indexed or if they are not
+     * in the same world.
+     */
+    public double getDistanceSquared(UUID first, UUID second)
+    {
+        final Entry a = entries.get(first);
+        final Entry b = entries.get(second);
+
+        if (a == null || b == null || a.world != b.world) return -1;
+
+        return a.distanceSquared(b.x, b.y, b.z);
+    }
+
+    /**
+     * Returns the nearest alive player not in the team of the given player.
+     *
+     * @param player The reference player.
+     * @return The nearest enemy, or {@code null} if there isn't any in this world.
+     */
+    public Player getNearestEnemy(Player player)
+    {
+        final List<Player> nearest = getNearestEnemies(player, 1);
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+    /**
+     * Returns the {@code k} nearest alive players not in the team of the given player, sorted by
+     * distance.
+     *
+     * @param player The reference player.
+     * @param k      The maximal amount of players returned.
+     *
+     * @return The nearest enemies (maybe less than {@code k}, or none).
+     */
+    public List<Player> getNearestEnemies(Player player, int k)
+    {
+        final Location location = player.getLocation();
+        final Map<Long, List<Entry>> worldCells = cells.get(location.getWorld());
+
+        if (worldCells == null || k <= 0) return Collections.emptyList();
+
+        final UHTeam team = UHCReloaded.get().getTeamManager().getTeamForPlayer(player);
+
+        final int x = location.getBlockX(), y = location.getBlockY(), z = location.getBlockZ();
+        final int cellX = x >> CELL_SHIFT, cellZ = z >> CELL_SHIFT;
+
+        final List<Entry> nearest = new ArrayList<>(k + 1);
+        final List<Double> distances = new ArrayList<>(k + 1);
+
+        for (int ring = 0; ; ring++)
+        {
+            // Rings bigger than the population: cheaper to scan everyone left.
+            if (ring > 0 && 8 * ring > entries.size())
+            {
+                for (List<Entry> cell : worldCells.values())
+                    for (Entry entry : cell)
+                        if (Math.max(Math.abs(entry.cellX() - cellX), Math.abs(entry.cellZ() - cellZ)) >= ring)
+                            offer(entry, player, team, x, y, z, k, nearest, distances);
+                break;
+            }
+
+            for (int dx = -ring; dx <= ring; dx++)
+            {
+                for (int dz = -ring; dz <= ring; dz++)
+                {
+                    if (Math.abs(dx) != ring && Math.abs(dz) != ring) continue; // Inner cell, already seen
+
+                    final List<Entry> cell = worldCells.get(key(cellX + dx, cellZ + dz));
+                    if (cell == null) continue;
+
+                    for (Entry entry : cell)
+                        offer(entry, player, team, x, y, z, k, nearest, distances);
+                }
+            }
+
+            // The players in the next rings are at least this far.
+            final double nextRingDistance = (double) ring * CELL_SIZE;
+            if (nearest.size() == k && distances.get(k - 1) <= nextRingDistance * nextRingDistance)
+                break;
+        }
+
+        final List<Player> players = new ArrayList<>(nearest.size());
+        for (Entry entry : nearest) players.add(entry.player);
+
+        return players;
+    }
+
+    /**
+     * Returns the alive players not in the team of the given player, within the given radius.
+     *
+     * @param player The reference player.
+     * @param radius The radius.
+     *
+     * @return The enemies within this radius, unsorted.
+     */
+    public List<Player> getEnemiesWithin(Player player, double radius)
+    {
+        final UHTeam team = UHCReloaded.get().getTeamManager().getTeamForPlayer(player);
+        final List<Player> players = new ArrayList<>();
+
+        forEachWithin(player.getLocation(), radius, entry -> {
+            if (!entry.id.equals(player.getUniqueId()) && (team == null || !team.containsPlayer(entry.id)))
+                players.add(entry.player);
+        });
+
+        return players;
+    }
+
+    /**
+     * Returns the alive players within the given radius around a location.
+     *
+     * @param center The center.
+     * @param radius The radius.
+     *
+     * @return The players within this radius, unsorted.
+     */
+    public List<Player> getPlayersWithin(Location center, double radius)
+    {
+        final List<Player> players = new ArrayList<>();
+        forEachWithin(center, radius, entry -> players.add(entry.player));
+
+        return players;
+    }
+
+
+    private void onBlockMove(BlockMove move)
+    {
+        update(move.getPlayer(), move.getToWorld(), move.getToX(), move.getToY(), move.getToZ());
+    }
+
+    private void update(Player player, World world, int x, int y, int z)
+    {
+        Entry entry = entries.get(player.getUniqueId());
+
+        if (UHCReloaded.get().getGameManager().isPlayerDead(player.getUniqueId()))
+        {
+            if (entry != null) remove(player.getUniqueId());
+            return;
+        }
+
+        if (entry == null)
+        {
+            entry = new Entry(player.getUniqueId());
+            entries.put(entry.id, entry);
+        }
+        else if (entry.world == world && entry.cellX() == x >> CELL_SHIFT && entry.cellZ() == z >> CELL_SHIFT)
+        {
+            // Same cell: only the coordinates change.
+            entry.player = player;
+            entry.x = x;
+            entry.y = y;
+            entry.z = z;
+            return;
+        }
+        else
+        {
+            removeFromCell(entry);
+        }
+
+        entry.player = player;
+        entry.world = world;
+        entry.x = x;
+        entry.y = y;
+        entry.z = z;
+
+        cells.computeIfAbsent(world, w -> new HashMap<>())
+                .computeIfAbsent(key(x >> CELL_SHIFT, z >> CELL_SHIFT), k -> new ArrayList<>(4))
+                .add(entry);
+    }
+
+    private void removeFromCell(Entry entry)
+    {
+        final Map<Long, List<Entry>> worldCells = cells.get(entry.world);
+        if (worldCells == null) return;
+
+        final long key = key(entry.cellX(), entry.cellZ());
+        final List<Entry> cell = worldCells.get(key);
+
+        if (cell != null)
+        {
+            cell.remove(entry);
+            if (cell.isEmpty()) worldCells.remove(key);
+        }
+    }
+
+    private void forEachWithin(Location center, double radius, Consumer<Entry> consumer)
+    {
+        final Map<Long, List<Entry>> worldCells = cells.get(center.getWorld());
+        if (worldCells == null) return;
+
+        final int x = center.getBlockX(), y = center.getBlockY(), z = center.getBlockZ();
+        final int r = (int) Math.ceil(radius);
+        final double radiusSquared = radius * radius;
+
+        final int minCellX = (x - r) >> CELL_SHIFT, maxCellX = (x + r) >> CELL_SHIFT;
+        final int minCellZ = (z - r) >> CELL_SHIFT, maxCellZ = (z + r) >> CELL_SHIFT;
+
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++)
+        {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++)
+            {
+                final List<Entry> cell = worldCells.get(key(cellX, cellZ));
+                if (cell == null) continue;
+
+                for (Entry entry : cell)
+                {
+                    if (entry.distanceSquared(x, y, z) <= radiusSquared && isAlive(entry))
+                        consumer.accept(entry);
+                }
+            }
+        }
+    }
+
+    private void offer(Entry entry, Player player, UHTeam team, int x, int y, int z, int k, List<Entry> nearest, List<Double> distances)
+    {
+        if (entry.id.equals(player.getUniqueId()) || (team != null && team.containsPlayer(entry.id)) || !isAlive(entry))
+            return;
+
+        final double distance = entry.distanceSquared(x, y, z);
+        if (nearest.size() == k && distance >= distances.get(k - 1))
+            return;
+
+        // Insertion sort: k is small.
+        int index = nearest.size();
+        while (index > 0 && distances.get(index - 1) > distance) index--;
+
+        nearest.add(index, entry);
+        distances.add(index, distance);
+
+        if (nearest.size() > k)
+        {
+            nearest.remove(k);
+            distances.remove(k);
+        }
+    }
+
+    private boolean isAlive(Entry entry)
+    {
+        return !UHCReloaded.get().getGameManager().isPlayerDead(entry.id) && entry.player.isOnline();
+    }
+
+    private static long key(int cellX, int cellZ)
+    {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+
+    private static final class Entry
+    {
+        private final UUID id;
+
+        private volatile Player player;
+        private volatile World world;
+        private volatile int x, y, z;
+
+        private Entry(UUID id)
+        {
+            this.id = id;
+        }
+
+        private int cellX()
+        {
+            return x >> CELL_SHIFT;
+        }
+
+        private int cellZ()
+        {
+            return z >> CELL_SHIFT;
+        }
+
+        private double distanceSquared(int otherX, int otherY, int otherZ)
+        {
+            final double dx = x - otherX, dy = y - otherY, dz = z - otherZ;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.movement;
+
+import eu.carrade.amaury.UHCReloaded.UHCReloaded;
+import eu.carrade.amaury.UHCReloaded.events.UHGameStartsEvent;
+import eu.carrade.amaury.UHCReloaded.events.UHPlayerDeathEvent;
+import eu.carrade.amaury.UHCReloaded.events.UHPlayerResurrectedEvent;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+
+/**
+ * Keeps the players spatial hash in sync with the alive players.
+ *
+ * <p>The movements are received from the {@link MovementDispatcher}.</p>
+ */
+public class PlayersSpatialHashListener implements Listener
+{
+    private final PlayersSpatialHash spatialHash;
+
+    public PlayersSpatialHashListener(PlayersSpatialHash spatialHash)
+    {
+        this.spatialHash = spatialHash;
+    }
+
+
+    @EventHandler (priority = EventPriority.MONITOR)
+    public void onGameStarts(UHGameStartsEvent ev)
+    {
+        spatialHash.clear();
+
+        for (Player player : UHCReloaded.get().getGameManager().getOnlineAlivePlayers())
+        {
+            spatialHash.update(player);
+        }
+    }
+
+    @EventHandler (priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent ev)
+    {
+        spatialHash.update(ev.getPlayer());
+    }
+
+    @EventHandler (priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent ev)
+    {
+        spatialHash.remove(ev.getPlayer().getUniqueId());
+    }
+
+    @EventHandler (priority = EventPriority.MONITOR)
+    public void onPlayerDeath(UHPlayerDeathEvent ev)
+    {
+        spatialHash.remove(ev.getPlayer().getUniqueId());
+    }
+
+    @EventHandler (priority = EventPriority.MONITOR)
+    public void onPlayerResurrected(UHPlayerResurrectedEvent ev)
+    {
+        spatialHash.update(ev.getPlayer());
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.movement;
+
+import eu.carrade.amaury.UHCReloaded.UHCReloaded;
+import eu.carrade.amaury.UHCReloaded.UHConfig;
+import eu.carrade.amaury.UHCReloaded.events.UHEnemyNearbyEvent;
+import eu.carrade.amaury.UHCReloaded.events.UHTeammateMetEvent;
+import eu.carrade.amaury.UHCReloaded.game.UHGameManager;
+import eu.carrade.amaury.UHCReloaded.scoreboard.ScoreboardManager;
+import eu.carrade.amaury.UHCReloaded.scoreboard.SidebarPlayerCache;
+import eu.carrade.amaury.UHCReloaded.teams.UHTeam;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+
+/**
+ * Detects the proximity transitions between players, when they move.
+ *
+ * <ul>
+ *     <li>When two teammates come close for the first time, they are marked as met (in the sidebar
+ *     cache, so the sidebar only reads this precomputed state), and an {@link UHTeammateMetEvent}
+ *     is fired.</li>
+ *     <li>When two enemies come close, an {@link UHEnemyNearbyEvent} is fired. They are considered
+ *     apart again only when farther than the distance plus an hysteresis, to avoid firing this
+ *     event repeatedly when a player moves back and forth around the limit.</li>
+ * </ul>
+ *
+ * <p>The distances are computed using the {@link PlayersSpatialHash}, updated before this engine
+ * for each movement.</p>
+ */
+public class ProximityEngine
+{
+    private final double TEAMMATE_MET_DISTANCE_SQUARED;
+    private final double ENEMY_NEARBY_DISTANCE;
+    private final double ENEMY_APART_DISTANCE_SQUARED;
+
+    private final UHGameManager gameManager;
+    private final PlayersSpatialHash spatialHash;
+
+    private final Map<UUID, Set<UUID>> enemiesNearby = new HashMap<>();
+
+
+    public ProximityEngine()
+    {
+        final UHCReloaded p = UHCReloaded.get();
+
+        gameManager = p.getGameManager();
+        spatialHash = p.getPlayersSpatialHash();
+
+        TEAMMATE_MET_DISTANCE_SQUARED = Math.pow(UHConfig.SCOREBOARD.OWN_TEAM.CONTENT.DISPLAY_MET_PLAYERS_ONLY.DISPLAYED_WHEN_CLOSER_THAN.get(), 2);
+        ENEMY_NEARBY_DISTANCE = UHConfig.PROXIMITY.ENEMY_NEARBY.DISTANCE.get();
+        ENEMY_APART_DISTANCE_SQUARED = Math.pow(ENEMY_NEARBY_DISTANCE + Math.max(UHConfig.PROXIMITY.ENEMY_NEARBY.HYSTERESIS.get(), 0), 2);
+
+        p.getMovementDispatcher().registerCoalescedHandler(this::onBlockMove);
+    }
+
+    /**
+     * Checks if a player has met a teammate.
+     *
+     * @param player   The player.
+     * @param teammate The teammate.
+     *
+     * @return {@code true} if they met during the game.
+     */
+    public boolean haveMet(UUID player, UUID teammate)
+    {
+        final ScoreboardManager scoreboardManager = UHCReloaded.get().getScoreboardManager();
+        return scoreboardManager.getSidebarPlayerCache(player).hasMet(scoreboardManager.getSidebarPlayerCache(teammate));
+    }
+
+    /**
+     * Checks if two enemies are currently considered close.
+     *
+     * @param player The player.
+     * @param enemy  The enemy.
+     *
+     * @return {@code true} if they are close.
+     */
+    public boolean areNearby(UUID player, UUID enemy)
+    {
+        final Set<UUID> nearby = enemiesNearby.get(player);
+        return nearby != null && nearby.contains(enemy);
+    }
+
+    /**
+     * Forgets the enemies close to the given player (if he dies or logs out, as example).
+     *
+     * @param player The player.
+     */
+    public void forget(UUID player)
+    {
+        final Set<UUID> nearby = enemiesNearby.remove(player);
+        if (nearby == null) return;
+
+        for (UUID enemy : nearby)
+        {
+            final Set<UUID> reverse = enemiesNearby.get(enemy);
+            if (reverse != null) reverse.remove(player);
+        }
+    }
+
+
+    private void onBlockMove(BlockMove move)
+    {
+        // Before the damages, players are teleported and very close: that's not a meeting.
+        if (!gameManager.isGameStarted() || !gameManager.isTakingDamage()) return;
+
+        final Player player = move.getPlayer();
+        if (!spatialHash.contains(player.getUniqueId())) return;
+
+        final UHTeam team = UHCReloaded.get().getTeamManager().getTeamForPlayer(player);
+
+        if (team != null && team.getSize() > 1)
+            checkTeammates(player, team);
+
+        checkEnemies(player);
+    }
+
+    private void checkTeammates(Player player, UHTeam team)
+    {
+        for (UUID teammateId : team.getPlayersUUID())
+        {
+            if (teammateId.equals(player.getUniqueId()) || haveMet(player.getUniqueId(), teammateId))
+                continue;
+
+            final double distanceSquared = spatialHash.getDistanceSquared(player.getUniqueId(), teammateId);
+            if (distanceSquared < 0 || distanceSquared > TEAMMATE_MET_DISTANCE_SQUARED)
+                continue;
+
+            final Player teammate = Bukkit.getPlayer(teammateId);
+            if (teammate == null) continue;
+
+            final SidebarPlayerCache playerCache = UHCReloaded.get().getScoreboardManager().getSidebarPlayerCache(player.getUniqueId());
+            final SidebarPlayerCache teammateCache = UHCReloaded.get().getScoreboardManager().getSidebarPlayerCache(teammateId);
+
+            playerCache.markMet(teammateCache);
+            teammateCache.markMet(playerCache);
+
+            Bukkit.getPluginManager().callEvent(new UHTeammateMetEvent(player, teammate));
+        }
+    }
+
+    private void checkEnemies(Player player)
+    {
+        final UUID id = player.getUniqueId();
+
+        // Enemies moving away
+        final Set<UUID> nearby = enemiesNearby.get(id);
+        if (nearby != null)
+        {
+            final Iterator<UUID> iterator = nearby.iterator();
+            while (iterator.hasNext())
+            {
+                final UUID enemy = iterator.next();
+                final double distanceSquared = spatialHash.getDistanceSquared(id, enemy);
+
+                if (distanceSquared < 0 || distanceSquared > ENEMY_APART_DISTANCE_SQUARED)
+                {
+                    iterator.remove();
+
+                    final Set<UUID> reverse = enemiesNearby.get(enemy);
+                    if (reverse != null) reverse.remove(id);
+                }
+            }
+        }
+
+        // Enemies coming closer
+        for (Player enemy : spatialHash.getEnemiesWithin(player, ENEMY_NEARBY_DISTANCE))
+        {
+            if (areNearby(id, enemy.getUniqueId())) continue;
+
+            enemiesNearby.computeIfAbsent(id, uuid -> new HashSet<>()).add(enemy.getUniqueId());
+            enemiesNearby.computeIfAbsent(enemy.getUniqueId(), uuid -> new HashSet<>()).add(id);
+
+            final double distance = Math.sqrt(spatialHash.getDistanceSquared(id, enemy.getUniqueId()));
+
+            Bukkit.getPluginManager().callEvent(new UHEnemyNearbyEvent(player, enemy, distance));
+            Bukkit.getPluginManager().callEvent(new UHEnemyNearbyEvent(enemy, player, distance));
+        }
+    }
+}
@@ -51,6 +51,7 @@ public class ProTip
 {
     private static final UHSound proTipsSound = new UHSound(UHConfig.PROTIPS.SOUND);
 
+    private final String name;
     private String text;
     private Boolean enabled;
 
@@ -63,8 +64,7 @@ public class ProTip
      */
     public ProTip(Boolean enabled, String text)
     {
-        this.text = text;
-        this.enabled = enabled;
+        this(null, enabled, text);
     }
 
     /**
@@ -73,7 +73,14 @@ public class ProTip
      */
     public ProTip(String name, String text)
     {
-        this(UHCReloaded.get().getConfig().getBoolean("protips." + name), text);
+        this(name, UHCReloaded.get().getConfigSnapshot().isProTipEnabled(name), text);
+    }
+
+    private ProTip(String name, Boolean enabled, String text)
+    {
+        this.name = name;
+        this.text = text;
+        this.enabled = enabled;
     }
 
 
@@ -82,6 +89,14 @@ public class ProTip
         this.enabled = enabled;
     }
 
+    /**
+     * @return The name of this ProTip in the config file, or {@code null} if not configurable.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
     public String getText()
     {
         return text;
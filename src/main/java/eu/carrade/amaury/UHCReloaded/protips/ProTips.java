@@ -31,6 +31,7 @@
  */
 package eu.carrade.amaury.UHCReloaded.protips;
 
+import eu.carrade.amaury.UHCReloaded.UHConfigSnapshot;
 import fr.zcraft.zlib.components.i18n.I;
 import org.bukkit.entity.Player;
 
@@ -66,6 +67,20 @@ public enum ProTips
         return proTip;
     }
 
+    /**
+     * Enables or disables the ProTips following the given configuration (after a reload).
+     *
+     * @param config The configuration.
+     */
+    public static void applyConfiguration(UHConfigSnapshot config)
+    {
+        for (ProTips tip : values())
+        {
+            if (tip.proTip.getName() != null)
+                tip.proTip.setEnabled(config.isProTipEnabled(tip.proTip.getName()));
+        }
+    }
+
 
     /**
      * Sends this ProTip, if it wasn't sent before to this player.
@@ -0,0 +1,133 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.recipes;
+
+import org.bukkit.inventory.FurnaceRecipe;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.Recipe;
+import org.bukkit.inventory.ShapedRecipe;
+import org.bukkit.inventory.ShapelessRecipe;
+
+import java.util.Arrays;
+import java.util.Map;
+
+
+/**
+ * Identifies a recipe by its result and the multiset of its ingredients (shape excluded), so
+ * the verdicts computed for a recipe can be retrieved with a single hash lookup.
+ */
+final class RecipeFingerprint
+{
+    private final int result;
+
+    // Sorted (type, data) keys of the ingredients, once per slot used.
+    private final long[] ingredients;
+
+    private final int hashCode;
+
+
+    private RecipeFingerprint(ItemStack result, long[] ingredients)
+    {
+        this.result = result != null ? key(result) : -1;
+        this.ingredients = ingredients;
+
+        Arrays.sort(this.ingredients);
+
+        hashCode = 31 * this.result + Arrays.hashCode(this.ingredients);
+    }
+
+    /**
+     * Computes the fingerprint of a recipe.
+     *
+     * @param recipe The recipe.
+     * @return The fingerprint; {@code null} if this kind of recipe is not supported.
+     */
+    static RecipeFingerprint of(Recipe recipe)
+    {
+        if (recipe instanceof ShapedRecipe)
+        {
+            final ShapedRecipe shaped = (ShapedRecipe) recipe;
+            final Map<Character, ItemStack> ingredientsMap = shaped.getIngredientMap();
+
+            long[] ingredients = new long[9];
+            int count = 0;
+
+            for (String row : shaped.getShape())
+            {
+                for (char slot : row.toCharArray())
+                {
+                    final ItemStack ingredient = ingredientsMap.get(slot);
+                    if (ingredient != null && count < ingredients.length)
+                        ingredients[count++] = key(ingredient);
+                }
+            }
+
+            return new RecipeFingerprint(recipe.getResult(), Arrays.copyOf(ingredients, count));
+        }
+
+        else if (recipe instanceof ShapelessRecipe)
+        {
+            return new RecipeFingerprint(recipe.getResult(), ((ShapelessRecipe) recipe).getIngredientList().stream()
+                    .mapToLong(RecipeFingerprint::key)
+                    .toArray());
+        }
+
+        else if (recipe instanceof FurnaceRecipe)
+        {
+            return new RecipeFingerprint(recipe.getResult(), new long[] {key(((FurnaceRecipe) recipe).getInput())});
+        }
+
+        return null;
+    }
+
+    private static int key(ItemStack item)
+    {
+        return (item.getType().ordinal() << 16) | (item.getDurability() & 0xFFFF);
+    }
+
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (!(o instanceof RecipeFingerprint)) return false;
+
+        final RecipeFingerprint other = (RecipeFingerprint) o;
+        return hashCode == other.hashCode && result == other.result && Arrays.equals(ingredients, other.ingredients);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hashCode;
+    }
+}
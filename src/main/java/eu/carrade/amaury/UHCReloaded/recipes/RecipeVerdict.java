@@ -0,0 +1,107 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.recipes;
+
+
+/**
+ * The verdict of the {@link RecipesManager} about a recipe being prepared: whether it can be
+ * crafted, and what must be done to its result.
+ *
+ * <p>Returned by each lookup (see {@link RecipesManager#getVerdict(org.bukkit.inventory.Recipe)}),
+ * so it is safe to use even when several players craft at once.</p>
+ */
+public enum RecipeVerdict
+{
+    /**
+     * The recipe can be crafted as is.
+     */
+    ALLOWED(null),
+
+    /**
+     * The vanilla compass recipe, disabled in favor of the special compass.
+     */
+    DISABLED_COMPASS(RecipesManager.RECIPE_COMPASS),
+
+    /**
+     * The vanilla glistering melon recipe, disabled in favor of the gold block one.
+     */
+    DISABLED_GLISTERING_MELON(RecipesManager.RECIPE_GLISTERING_MELON),
+
+    /**
+     * An enchanted golden apple recipe, disabled.
+     */
+    DISABLED_ENCHANTED_GOLDEN_APPLE(RecipesManager.RECIPE_ENCHANTED_GOLDEN_APPLE),
+
+    /**
+     * A golden apple crafted from a player head; a lore may be added.
+     */
+    GOLDEN_HEAD_HUMAN(null),
+
+    /**
+     * A golden apple crafted from a wither head; a lore may be added.
+     */
+    GOLDEN_HEAD_WITHER(null),
+
+    /**
+     * The recipe removing the lore of a golden apple; the name must be kept.
+     */
+    LORE_REMOVER(null);
+
+
+    private final String failedRecipe;
+
+    RecipeVerdict(String failedRecipe)
+    {
+        this.failedRecipe = failedRecipe;
+    }
+
+    /**
+     * @return {@code true} if the recipe can be crafted.
+     */
+    public boolean isAllowed()
+    {
+        return failedRecipe == null;
+    }
+
+    /**
+     * Returns the type of the disabled recipe.
+     *
+     * Use {@link RecipesManager#RECIPE_COMPASS}, {@link RecipesManager#RECIPE_GLISTERING_MELON} and
+     * {@link RecipesManager#RECIPE_ENCHANTED_GOLDEN_APPLE} to check it.
+     *
+     * @return The type, or {@code null} if the recipe is allowed.
+     */
+    public String getFailedRecipe()
+    {
+        return failedRecipe;
+    }
+}
@@ -48,6 +48,9 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.SkullMeta;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public class RecipesManager
@@ -66,7 +69,16 @@ public class RecipesManager
     public static final int COMPASS_MEDIUM = 2;
     public static final int COMPASS_HARD = 3;
 
-    private String lastFailedRecipe = null;
+    // The verdicts by recipe, computed for the server's recipes when they are registered.
+    private final Map<RecipeFingerprint, RecipeVerdict> verdicts = new ConcurrentHashMap<>();
+
+    // The recipes compared to the ones prepared, to compute the verdicts.
+    private Recipe vanillaCompassRecipe = null;
+    private Recipe vanillaGoldenMelonRecipe = null;
+    private Recipe goldenHeadHumanRecipe = null;
+    private Recipe goldenHeadMonsterRecipe = null;
+    private Recipe loreRemoverNormalRecipe = null;
+    private Recipe loreRemoverNotchRecipe = null;
 
 
     public RecipesManager(UHCReloaded plugin)
@@ -121,28 +133,84 @@ public class RecipesManager
             case COMPASS_DISABLED:
                 break;
         }
+
+        compileVerdicts();
+    }
+
+    /**
+     * Called after a reload of the configuration, to compute the verdicts again with the new
+     * settings.
+     * <p>
+     * The recipes themselves are only registered at startup.
+     */
+    public void onConfigurationReloaded()
+    {
+        compileVerdicts();
+    }
+
+    /**
+     * Computes the verdicts of all the recipes known by the server, so the checks done while a
+     * craft is prepared are a single lookup.
+     */
+    private void compileVerdicts()
+    {
+        vanillaCompassRecipe = getVanillaCompassRecipe();
+        vanillaGoldenMelonRecipe = getVanillaGoldenMelonRecipe();
+        goldenHeadHumanRecipe = getGoldenHeadHumanRecipe();
+        goldenHeadMonsterRecipe = getGoldenHeadMonsterRecipe();
+        loreRemoverNormalRecipe = getLoreRemoverNormalRecipe();
+        loreRemoverNotchRecipe = getLoreRemoverNotchRecipe();
+
+        verdicts.clear();
+
+        final Iterator<Recipe> recipes = p.getServer().recipeIterator();
+        while (recipes.hasNext())
+        {
+            final Recipe recipe = recipes.next();
+            final RecipeFingerprint fingerprint = RecipeFingerprint.of(recipe);
+
+            if (fingerprint != null)
+                verdicts.putIfAbsent(fingerprint, computeVerdict(recipe));
+        }
+    }
+
+    /**
+     * Returns the verdict about a recipe: whether it can be crafted, and what must be done to
+     * its result.
+     *
+     * <p>Recipes registered after this plugin (by other plugins) are checked the first time
+     * they are seen.</p>
+     *
+     * @param recipe The recipe to be checked.
+     * @return The verdict.
+     */
+    public RecipeVerdict getVerdict(Recipe recipe)
+    {
+        final RecipeFingerprint fingerprint = RecipeFingerprint.of(recipe);
+        if (fingerprint == null)
+            return RecipeVerdict.ALLOWED;
+
+        return verdicts.computeIfAbsent(fingerprint, f -> computeVerdict(recipe));
     }
 
     /**
-     * Checks if a recipe is allowed.
+     * Checks a recipe against the disabled and modified recipes.
      *
      * @param recipe The recipe to be checked.
-     * @return True if the recipe is allowed, false else.
+     * @return The verdict.
      */
-    public boolean isRecipeAllowed(Recipe recipe)
+    private RecipeVerdict computeVerdict(Recipe recipe)
     {
         // Vanilla compass recipe is disabled if the special compass is used.
-        if (UHConfig.GAMEPLAY_CHANGES.COMPASS.ENABLED.get() && RecipeUtil.areSimilar(recipe, getVanillaCompassRecipe()))
+        if (UHConfig.GAMEPLAY_CHANGES.COMPASS.ENABLED.get() && RecipeUtil.areSimilar(recipe, vanillaCompassRecipe))
         {
-            this.lastFailedRecipe = RECIPE_COMPASS;
-            return false;
+            return RecipeVerdict.DISABLED_COMPASS;
         }
 
         // Vanilla golden melon recipe is disabled if the craft with a gold block is enabled.
-        if (UHConfig.GAMEPLAY_CHANGES.CRAFT_GOLDEN_MELON_WITH_GOLD_BLOCK.get() && RecipeUtil.areSimilar(recipe, getVanillaGoldenMelonRecipe()))
+        if (UHConfig.GAMEPLAY_CHANGES.CRAFT_GOLDEN_MELON_WITH_GOLD_BLOCK.get() && RecipeUtil.areSimilar(recipe, vanillaGoldenMelonRecipe))
         {
-            this.lastFailedRecipe = RECIPE_GLISTERING_MELON;
-            return false;
+            return RecipeVerdict.DISABLED_GLISTERING_MELON;
         }
 
         // If enchanted golden apples are disabled...
@@ -156,15 +224,30 @@ public class RecipesManager
                     if (item.getType() == Material.GOLD_BLOCK)
                     {
                         // There is a gold block in a recipe for a golden apple - NOPE NOPE NOPE
-                        this.lastFailedRecipe = RECIPE_ENCHANTED_GOLDEN_APPLE;
-                        return false;
+                        return RecipeVerdict.DISABLED_ENCHANTED_GOLDEN_APPLE;
                     }
                 }
             }
         }
 
+        final boolean addLore = UHConfig.GAMEPLAY_CHANGES.CRAFT_GOLDEN_APPLE_FROM_HEAD.FROM_HUMAN.ADD_LORE.get() || UHConfig.GAMEPLAY_CHANGES.CRAFT_GOLDEN_APPLE_FROM_HEAD.FROM_WITHER.ADD_LORE.get();
+
+        if (addLore && (UHConfig.GAMEPLAY_CHANGES.CRAFT_GOLDEN_APPLE_FROM_HEAD.FROM_HUMAN.DO.get() || UHConfig.GAMEPLAY_CHANGES.CRAFT_GOLDEN_APPLE_FROM_HEAD.FROM_WITHER.DO.get()))
+        {
+            if (RecipeUtil.areSimilar(recipe, goldenHeadHumanRecipe))
+                return RecipeVerdict.GOLDEN_HEAD_HUMAN;
+
+            if (RecipeUtil.areSimilar(recipe, goldenHeadMonsterRecipe))
+                return RecipeVerdict.GOLDEN_HEAD_WITHER;
+        }
+
+        if (addLore && (RecipeUtil.areSimilar(recipe, loreRemoverNormalRecipe) || RecipeUtil.areSimilar(recipe, loreRemoverNotchRecipe)))
+        {
+            return RecipeVerdict.LORE_REMOVER;
+        }
+
         // The recipe is allowed.
-        return true;
+        return RecipeVerdict.ALLOWED;
     }
 
     /**
@@ -239,35 +322,37 @@ public class RecipesManager
     /**
      * Adds the lore to the golden apples, if needed.
      *
+     * @param verdict The verdict about the recipe (see {@link #getVerdict(Recipe)}).
      * @param recipe The recipe to change.
      * @param inventory The crafting inventory (used to access the skull owner)
      * @return The modified result (ItemStack) if a change was needed. Null if no change is needed.
      */
-    public ItemStack addLore(Recipe recipe, CraftingInventory inventory)
+    public ItemStack addLore(RecipeVerdict verdict, Recipe recipe, CraftingInventory inventory)
     {
-        if ((UHConfig.GAMEPLAY_CHANGES.CRAFT_GOLDEN_APPLE_FROM_HEAD.FROM_HUMAN.DO.get() || UHConfig.GAMEPLAY_CHANGES.CRAFT_GOLDEN_APPLE_FROM_HEAD.FROM_WITHER.DO.get())
-                && (UHConfig.GAMEPLAY_CHANGES.CRAFT_GOLDEN_APPLE_FROM_HEAD.FROM_HUMAN.ADD_LORE.get() || UHConfig.GAMEPLAY_CHANGES.CRAFT_GOLDEN_APPLE_FROM_HEAD.FROM_WITHER.ADD_LORE.get())
-                && (RecipeUtil.areSimilar(recipe, getGoldenHeadHumanRecipe()) || RecipeUtil.areSimilar(recipe, getGoldenHeadMonsterRecipe())))
+        if (verdict == RecipeVerdict.GOLDEN_HEAD_HUMAN || verdict == RecipeVerdict.GOLDEN_HEAD_WITHER)
         {
             ItemStack result = recipe.getResult();
             ItemMeta meta = result.getItemMeta();
 
-            // Lookup for the head in the recipe
+            // Lookup for the head in the recipe (only a player head can have an owner)
             String name = "";
             Boolean wither = true;
 
-            for (ItemStack item : inventory.getContents())
+            if (verdict == RecipeVerdict.GOLDEN_HEAD_HUMAN)
             {
-                // An human head
-                if (item.getType() == Material.SKULL_ITEM && item.getDurability() == (short) SkullType.PLAYER.ordinal())
+                for (ItemStack item : inventory.getMatrix())
                 {
-                    SkullMeta sm = (SkullMeta) item.getItemMeta();
-                    if (sm.hasOwner()) // An human head
+                    // An human head
+                    if (item != null && item.getType() == Material.SKULL_ITEM && item.getDurability() == (short) SkullType.PLAYER.ordinal())
                     {
-                        name = sm.getOwner();
-                        wither = false;
+                        SkullMeta sm = (SkullMeta) item.getItemMeta();
+                        if (sm.hasOwner()) // An human head
+                        {
+                            name = sm.getOwner();
+                            wither = false;
+                        }
+                        break;
                     }
-                    break;
                 }
             }
 
@@ -297,26 +382,27 @@ public class RecipesManager
      * Changes the name of the result item of the anti-lore recipe,
      * to keep the same name than the original.
      *
+     * @param verdict The verdict about the recipe (see {@link #getVerdict(Recipe)}).
      * @param recipe The recipe.
      * @param inventory The crafting inventory. Used to get the name of the item placed in the inventory grid.
      * @return The ItemStack if a change was needed; null else.
      */
-    public ItemStack keepNameOnLoreRemover(Recipe recipe, CraftingInventory inventory)
+    public ItemStack keepNameOnLoreRemover(RecipeVerdict verdict, Recipe recipe, CraftingInventory inventory)
     {
-        if ((UHConfig.GAMEPLAY_CHANGES.CRAFT_GOLDEN_APPLE_FROM_HEAD.FROM_HUMAN.ADD_LORE.get() || UHConfig.GAMEPLAY_CHANGES.CRAFT_GOLDEN_APPLE_FROM_HEAD.FROM_WITHER.ADD_LORE.get())
-                && (RecipeUtil.areSimilar(recipe, getLoreRemoverNormalRecipe()) || RecipeUtil.areSimilar(recipe, getLoreRemoverNotchRecipe())))
+        if (verdict == RecipeVerdict.LORE_REMOVER)
         {
-
             ItemStack original = null;
-            for (int slot = 0; slot <= 9; slot++)
+            for (ItemStack item : inventory.getMatrix())
             {
-                original = inventory.getMatrix()[slot];
-                if (original.getType() != Material.AIR)
+                if (item != null && item.getType() != Material.AIR)
                 {
+                    original = item;
                     break; // Found (because there is only one item in the craft).
                 }
             }
 
+            if (original == null) return null;
+
             ItemMeta metaOriginal = original.getItemMeta();
 
             if (metaOriginal != null && metaOriginal.hasDisplayName())
@@ -515,18 +601,4 @@ public class RecipesManager
 
         return vanillaGoldenMelonRecipe;
     }
-
-
-    /**
-     * Returns the last failed recipe.
-     *
-     * Use {@link RecipesManager#RECIPE_COMPASS}, {@link RecipesManager#RECIPE_GLISTERING_MELON} and
-     * {@link RecipesManager#RECIPE_ENCHANTED_GOLDEN_APPLE} to get the type of the failed recipe.
-     *
-     * @return the lastFailedRecipe
-     */
-    public String getLastFailedRecipe()
-    {
-        return lastFailedRecipe;
-    }
 }
@@ -35,58 +35,121 @@ import eu.carrade.amaury.UHCReloaded.UHCReloaded;
 import eu.carrade.amaury.UHCReloaded.UHConfig;
 import eu.carrade.amaury.UHCReloaded.borders.MapShape;
 import eu.carrade.amaury.UHCReloaded.borders.worldborders.WorldBorder;
+import eu.carrade.amaury.UHCReloaded.game.GameStateSnapshot;
 import eu.carrade.amaury.UHCReloaded.game.UHGameManager;
-import eu.carrade.amaury.UHCReloaded.misc.Freezer;
 import eu.carrade.amaury.UHCReloaded.teams.UHTeam;
 import eu.carrade.amaury.UHCReloaded.timers.UHTimer;
+import eu.carrade.amaury.UHCReloaded.utils.I18nTemplates;
 import eu.carrade.amaury.UHCReloaded.utils.UHUtils;
-import fr.zcraft.zlib.components.i18n.I;
 import fr.zcraft.zlib.components.scoreboard.Sidebar;
 import fr.zcraft.zlib.components.scoreboard.SidebarMode;
+import fr.zcraft.zlib.tools.runners.RunAsyncTask;
+import fr.zcraft.zlib.tools.runners.RunTask;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class GameSidebar extends Sidebar
 {
+    /**
+     * The sections of the sidebar, rendered again only when their inputs changed.
+     */
+    public enum Section
+    {
+        /**
+         * The episode, players and teams counts.
+         */
+        TOP,
+
+        /**
+         * The border size.
+         */
+        BORDER,
+
+        /**
+         * The timers.
+         */
+        TIMERS,
+
+        /**
+         * The per-player parts: own team (health, login state, met teammates), kills and freeze
+         * status.
+         */
+        PLAYERS;
+
+        static final int ALL = (1 << values().length) - 1;
+
+        int mask()
+        {
+            return 1 << ordinal();
+        }
+    }
+
     private final UHGameManager gameManager;
     private final WorldBorder border;
 
-    private final boolean EPISODES_ENABLED;
-    private final boolean EPISODES_IN_SIDEBAR;
-    private final boolean PLAYERS_IN_SIDEBAR;
-    private final boolean TEAMS_IN_SIDEBAR;
-    private final boolean BORDER_IN_SIDEBAR;
-    private final boolean KILLS_IN_SIDEBAR;
-    private final boolean TIMER_IN_SIDEBAR;
-    private final boolean FREEZE_STATUS_IN_SIDEBAR;
-
-    private final boolean OWN_TEAM_IN_SIDEBAR;
-    private final String  OWN_TEAM_TITLE_COLOR;
-    private final boolean OWN_TEAM_TITLE_IS_NAME;
-    private final boolean OWN_TEAM_DISPLAY_HEARTS;
-    private final boolean OWN_TEAM_COLOR_WHOLE_NAME;
-    private final boolean OWN_TEAM_STRIKE_DEAD_PLAYERS;
-    private final boolean OWN_TEAM_DISPLAY_LOGIN_STATE_ITALIC;
-    private final String  OWN_TEAM_DISPLAY_LOGIN_STATE_SUFFIX;
-    private final boolean OWN_TEAM_DISPLAY_MET_PLAYERS_ONLY;
-    private final double  OWN_TEAM_DISPLAY_MET_PLAYERS_MIN_DISTANCE_SQUARED;
-
-    private final boolean BORDER_DISPLAY_DIAMETER;
+    // Read from the configuration; updated on reload (see applyConfiguration).
+    private boolean EPISODES_ENABLED;
+    private boolean EPISODES_IN_SIDEBAR;
+    private boolean PLAYERS_IN_SIDEBAR;
+    private boolean TEAMS_IN_SIDEBAR;
+    private boolean BORDER_IN_SIDEBAR;
+    private boolean KILLS_IN_SIDEBAR;
+    private boolean TIMER_IN_SIDEBAR;
+    private boolean FREEZE_STATUS_IN_SIDEBAR;
+
+    private boolean OWN_TEAM_IN_SIDEBAR;
+    private String  OWN_TEAM_TITLE_COLOR;
+    private boolean OWN_TEAM_TITLE_IS_NAME;
+    private boolean OWN_TEAM_DISPLAY_HEARTS;
+    private boolean OWN_TEAM_COLOR_WHOLE_NAME;
+    private boolean OWN_TEAM_STRIKE_DEAD_PLAYERS;
+    private boolean OWN_TEAM_DISPLAY_LOGIN_STATE_ITALIC;
+    private String  OWN_TEAM_DISPLAY_LOGIN_STATE_SUFFIX;
+    private boolean OWN_TEAM_DISPLAY_MET_PLAYERS_ONLY;
+
+    private boolean BORDER_DISPLAY_DIAMETER;
 
     private final String FROOZEN_NULL_TIMER_TEXT;
+
+    // Ticks.
+    private static final long MIN_REFRESH_INTERVAL = 10L;
     private final String HEART = "\u2764";
 
-    private final String sidebarTitle;
-    private final List<String> sidebarTop = new ArrayList<>();
-    private final List<String> sidebarBorder = new ArrayList<>();
-    private final List<String> sidebarTimers = new ArrayList<>();
+    private String sidebarTitle;
+
+    // Shared by all players, and replaced only when their content changes.
+    private List<String> sidebarTop = Collections.emptyList();
+    private List<String> sidebarBorder = Collections.emptyList();
+    private List<String> sidebarTimers = Collections.emptyList();
+
+    // The layouts rendered during the current and the previous refreshes, by key.
+    private Map<LayoutKey, List<String>> layouts = new ConcurrentHashMap<>();
+    private Map<LayoutKey, List<String>> previousLayouts = new ConcurrentHashMap<>();
+
+    // The sections to render again at the next refresh (bits of Section.mask()).
+    private final AtomicInteger dirtySections = new AtomicInteger(Section.ALL);
+
+    // Published by the main thread (see publishInputs), as the border and the timers cannot be
+    // read from the asynchronous refresh.
+    private volatile BorderView borderView = null;
+    private volatile List<String> timersLines = Collections.emptyList();
+
+    // Only accessed from the main thread.
+    private long lastTimersSignature = -1;
 
 
     public GameSidebar()
@@ -94,6 +157,19 @@ public class GameSidebar extends Sidebar
         gameManager = UHCReloaded.get().getGameManager();
         border = UHCReloaded.get().getBorderManager().getBorderProxy();
 
+        FROOZEN_NULL_TIMER_TEXT = new UHTimer("").toString();
+
+        setAsync(true);
+        setContentMode(SidebarMode.PER_PLAYER);
+
+        configure();
+    }
+
+    /**
+     * Reads the sidebar settings from the configuration.
+     */
+    private void configure()
+    {
         EPISODES_ENABLED = UHConfig.EPISODES.ENABLED.get();
         EPISODES_IN_SIDEBAR = UHConfig.SCOREBOARD.EPISODE.get();
         PLAYERS_IN_SIDEBAR = UHConfig.SCOREBOARD.PLAYERS.get();
@@ -112,179 +188,300 @@ public class GameSidebar extends Sidebar
         OWN_TEAM_DISPLAY_LOGIN_STATE_ITALIC = UHConfig.SCOREBOARD.OWN_TEAM.CONTENT.LOGIN_STATE.ITALIC.get();
         OWN_TEAM_DISPLAY_LOGIN_STATE_SUFFIX = ChatColor.translateAlternateColorCodes('&', UHConfig.SCOREBOARD.OWN_TEAM.CONTENT.LOGIN_STATE.SUFFIX.get());
         OWN_TEAM_DISPLAY_MET_PLAYERS_ONLY = UHConfig.SCOREBOARD.OWN_TEAM.CONTENT.DISPLAY_MET_PLAYERS_ONLY.ENABLED.get();
-        OWN_TEAM_DISPLAY_MET_PLAYERS_MIN_DISTANCE_SQUARED = Math.pow(UHConfig.SCOREBOARD.OWN_TEAM.CONTENT.DISPLAY_MET_PLAYERS_ONLY.DISPLAYED_WHEN_CLOSER_THAN.get(), 2);
 
         BORDER_DISPLAY_DIAMETER = UHConfig.SCOREBOARD.BORDER.DISPLAY_DIAMETER.get();
 
-        FROOZEN_NULL_TIMER_TEXT = new UHTimer("").toString();
+        sidebarTitle = ChatColor.translateAlternateColorCodes('&', UHConfig.SCOREBOARD.TITLE.get());
+    }
 
-        setAsync(true);
-        setAutoRefreshDelay(20);
-        setContentMode(SidebarMode.PER_PLAYER);
+    /**
+     * Reads the sidebar settings again, after a reload of the configuration, and renders the
+     * whole sidebar again at the next refresh. Must be called from the main thread.
+     */
+    public void applyConfiguration()
+    {
+        configure();
 
-        sidebarTitle = ChatColor.translateAlternateColorCodes('&', UHConfig.SCOREBOARD.TITLE.get());
+        // The timers' lines depend on the settings too.
+        lastTimersSignature = -1;
+
+        // Published after the settings, so the next refresh sees them.
+        dirtySections.set(Section.ALL);
     }
 
-    @Override
-    public void preRender()
+    /**
+     * Starts the task publishing the border and timers from the main thread, and the task
+     * refreshing the sidebar when some of its sections are dirty, at most once every
+     * {@link #MIN_REFRESH_INTERVAL} ticks.
+     */
+    public void runDirtyRefresh()
     {
-        sidebarTop.clear();
-        sidebarBorder.clear();
-        sidebarTimers.clear();
+        RunTask.timer(this::publishInputs, 1L, 1L);
 
-        // Top sidebar
+        RunAsyncTask.timer(() -> {
+            if (dirtySections.get() != 0)
+                refresh();
+        }, 1L, MIN_REFRESH_INTERVAL);
+    }
+
+    /**
+     * Marks a section of the sidebar as dirty: it will be rendered again at the next refresh.
+     *
+     * @param section The section whose inputs changed.
+     */
+    public void markDirty(Section section)
+    {
+        dirtySections.getAndUpdate(dirty -> dirty | section.mask());
+    }
 
-        if (EPISODES_ENABLED && EPISODES_IN_SIDEBAR)
+    /**
+     * Publishes the inputs not changed through events, for the asynchronous refresh: the border
+     * (when animated) and the timers' lines. The matching section is marked as dirty only if they
+     * changed. Runs on the main thread, every tick.
+     */
+    private void publishInputs()
+    {
+        final BorderView borderView = BORDER_IN_SIDEBAR && gameManager.isGameStarted() ? new BorderView(border) : null;
+        if (!Objects.equals(borderView, this.borderView))
         {
-            /// Current episode in the sidebar
-            sidebarTop.add(I.t("{gray}Episode {white}{0}",
-                    String.valueOf(gameManager.isGameStarted() ? gameManager.getEpisode() : 0)
-            ));
+            this.borderView = borderView;
+            markDirty(Section.BORDER);
         }
 
-        if (!gameManager.isGameStarted())
+        final long timersSignature = getTimersSignature();
+        if (timersSignature != lastTimersSignature)
+        {
+            lastTimersSignature = timersSignature;
+
+            timersLines = renderTimers();
+            markDirty(Section.TIMERS);
+        }
+    }
+
+    /**
+     * Computes a signature of the displayed timers, changing when their displayed digits or state
+     * change.
+     *
+     * @return The signature.
+     */
+    private long getTimersSignature()
+    {
+        long signature = gameManager.isGameStarted() ? 1 : 0;
+
+        for (UHTimer timer : UHCReloaded.get().getTimerManager().getTimers())
+            if (timer.isDisplayed())
+                signature = 31 * signature + getTimerSignature(timer);
+
+        if (TIMER_IN_SIDEBAR)
         {
-            if (PLAYERS_IN_SIDEBAR)
-                /// Players alive in the sidebar
-                sidebarTop.add(I.tn("{white}{0}{gray} player", "{white}{0}{gray} players", Bukkit.getOnlinePlayers().size(), Bukkit.getOnlinePlayers().size()));
+            final UHTimer mainTimer = UHCReloaded.get().getTimerManager().getMainTimer();
+            if (mainTimer != null) signature = 31 * signature + getTimerSignature(mainTimer);
         }
-        else
+
+        return signature;
+    }
+
+    private long getTimerSignature(UHTimer timer)
+    {
+        return ((long) timer.getName().hashCode() * 31 + timer.getTotalSecondsLeft()) * 4
+                + (timer.isRunning() ? 1 : 0) + (timer.isPaused() ? 2 : 0);
+    }
+
+    @Override
+    public void preRender()
+    {
+        final int dirty = dirtySections.getAndSet(0);
+        final GameStateSnapshot game = gameManager.getSnapshot();
+
+        // Top sidebar
+
+        if ((dirty & Section.TOP.mask()) != 0)
         {
-            if (gameManager.isGameWithTeams() && EPISODES_ENABLED && EPISODES_IN_SIDEBAR)
-                sidebarTop.add("");
+            final List<String> sidebarTop = new ArrayList<>();
+
+            if (EPISODES_ENABLED && EPISODES_IN_SIDEBAR)
+            {
+                /// Current episode in the sidebar
+                sidebarTop.add(I18nTemplates.t("{gray}Episode {white}{0}",
+                        String.valueOf(game.isGameStarted() ? game.getEpisode() : 0)
+                ));
+            }
+
+            if (!game.isGameStarted())
+            {
+                if (PLAYERS_IN_SIDEBAR)
+                    /// Players alive in the sidebar
+                    sidebarTop.add(I18nTemplates.tn("{white}{0}{gray} player", "{white}{0}{gray} players", Bukkit.getOnlinePlayers().size(), Bukkit.getOnlinePlayers().size()));
+            }
+            else
+            {
+                if (game.isGameWithTeams() && EPISODES_ENABLED && EPISODES_IN_SIDEBAR)
+                    sidebarTop.add("");
+
+                if (PLAYERS_IN_SIDEBAR)
+                    /// Players alive in the sidebar
+                    sidebarTop.add(I18nTemplates.tn("{white}{0}{gray} player", "{white}{0}{gray} players", game.getAlivePlayersCount(), game.getAlivePlayersCount()));
 
-            if (PLAYERS_IN_SIDEBAR)
-                /// Players alive in the sidebar
-                sidebarTop.add(I.tn("{white}{0}{gray} player", "{white}{0}{gray} players", gameManager.getAlivePlayersCount(), gameManager.getAlivePlayersCount()));
+                if (game.isGameWithTeams() && TEAMS_IN_SIDEBAR)
+                    /// Teams alive in the sidebar
+                    sidebarTop.add(I18nTemplates.tn("{white}{0}{gray} team", "{white}{0}{gray} teams", game.getAliveTeamsCount(), game.getAliveTeamsCount()));
+            }
 
-            if (gameManager.isGameWithTeams() && TEAMS_IN_SIDEBAR)
-                /// Teams alive in the sidebar
-                sidebarTop.add(I.tn("{white}{0}{gray} team", "{white}{0}{gray} teams", gameManager.getAliveTeamsCount(), gameManager.getAliveTeamsCount()));
+            this.sidebarTop = share(this.sidebarTop, sidebarTop);
         }
 
 
         // Border part of the sidebar
 
-        if (gameManager.isGameStarted())
+        if ((dirty & Section.BORDER.mask()) != 0)
         {
-            insertBorder(sidebarBorder);
+            final List<String> sidebarBorder = new ArrayList<>();
+            final BorderView borderView = this.borderView;
+
+            if (game.isGameStarted() && borderView != null)
+            {
+                insertBorder(sidebarBorder, borderView);
+            }
+
+            this.sidebarBorder = share(this.sidebarBorder, sidebarBorder);
         }
 
 
         // Timers part of the sidebar
 
-        insertTimers(sidebarTimers);
+        if ((dirty & Section.TIMERS.mask()) != 0)
+        {
+            this.sidebarTimers = share(this.sidebarTimers, timersLines);
+        }
 
-        if (TIMER_IN_SIDEBAR)
+
+        // Any change requires the layouts to be rendered again; else, the ones of the last refresh
+        // are still valid.
+        if (dirty != 0)
         {
-            if (!gameManager.isGameStarted())
-                sidebarTimers.add(FROOZEN_NULL_TIMER_TEXT);
-            else
-            {
-                final UHTimer mainTimer = UHCReloaded.get().getTimerManager().getMainTimer();
-                if (mainTimer != null) sidebarTimers.add(mainTimer.toString());
-            }
+            previousLayouts = layouts;
+            layouts = new ConcurrentHashMap<>();
         }
     }
 
     @Override
     public List<String> getContent(Player player)
     {
+        final GameStateSnapshot game = gameManager.getSnapshot();
+        final LayoutKey key = getLayoutKey(player, game);
 
-        List<String> sidebar = new ArrayList<>(sidebarTop);
+        // Players seeing the same sidebar share the same layout, rendered once per refresh.
+        List<String> layout = layouts.get(key);
+        if (layout == null)
+        {
+            final List<String> previousLayout = previousLayouts.get(key);
+
+            layout = renderLayout(key, game);
+            layout = previousLayout != null ? share(previousLayout, layout) : Collections.unmodifiableList(layout);
+
+            layouts.put(key, layout);
+        }
+
+        return layout;
+    }
+
+    /**
+     * Computes the key of the sidebar seen by the given player: all players with the same key see
+     * exactly the same sidebar.
+     *
+     * @param player The player.
+     * @param game   The game state to render.
+     * @return The key.
+     */
+    private LayoutKey getLayoutKey(Player player, GameStateSnapshot game)
+    {
+        UHTeam team = null;
+        Set<UUID> displayedTeammates = null;
+
+        if (OWN_TEAM_IN_SIDEBAR && game.isGameStarted() && game.isGameWithTeams())
+        {
+            team = game.getTeamForPlayer(player.getUniqueId());
+
+            // If enabled, only the teammates already met are displayed (see ProximityEngine).
+            if (team != null && OWN_TEAM_DISPLAY_MET_PLAYERS_ONLY)
+            {
+                final ScoreboardManager scoreboardManager = UHCReloaded.get().getScoreboardManager();
+                final SidebarPlayerCache viewerCache = scoreboardManager.getSidebarPlayerCache(player.getUniqueId());
+
+                displayedTeammates = new HashSet<>();
+                for (UUID teamMember : game.getTeamMembers(team))
+                    if (teamMember.equals(player.getUniqueId()) || viewerCache.hasMet(scoreboardManager.getSidebarPlayerCache(teamMember)))
+                        displayedTeammates.add(teamMember);
+            }
+        }
+
+        final int kills = KILLS_IN_SIDEBAR && game.isGameStarted()
+                ? UHCReloaded.get().getScoreboardManager().getSidebarPlayerCache(player.getUniqueId()).getPlayersKilledCount()
+                : -1;
+
+        return new LayoutKey(team, displayedTeammates, kills, FREEZE_STATUS_IN_SIDEBAR && (game.isGlobalFreezeDisplayed() || game.isPlayerFrozen(player.getUniqueId())));
+    }
+
+    /**
+     * Renders the sidebar seen by the players sharing the given key.
+     *
+     * @param key  The key.
+     * @param game The game state to render.
+     * @return The sidebar's content.
+     */
+    private List<String> renderLayout(LayoutKey key, GameStateSnapshot game)
+    {
+        final List<String> sidebar = new ArrayList<>(sidebarTop);
         sidebar.add("");
 
-        if (OWN_TEAM_IN_SIDEBAR && gameManager.isGameStarted() && gameManager.isGameWithTeams())
+        final UHTeam team = key.team;
+        if (team != null)
         {
-            UHTeam team = UHCReloaded.get().getTeamManager().getTeamForPlayer(player);
+            sidebar.add(
+                      (OWN_TEAM_TITLE_COLOR.isEmpty() ? team.getColorOrWhite().toChatColor() : OWN_TEAM_TITLE_COLOR)
+                      /// Title of the team section in the sidebar
+                    + (OWN_TEAM_TITLE_IS_NAME ? ChatColor.BOLD + team.getName() : I18nTemplates.t("{bold}Your team"))
+            );
 
-            if (team != null)
+            for (UUID teamMember : game.getTeamMembers(team))
             {
-                sidebar.add(
-                          (OWN_TEAM_TITLE_COLOR.isEmpty() ? team.getColorOrWhite().toChatColor() : OWN_TEAM_TITLE_COLOR)
-                          /// Title of the team section in the sidebar
-                        + (OWN_TEAM_TITLE_IS_NAME ? ChatColor.BOLD + team.getName() : I.t("{bold}Your team"))
-                );
+                if (key.displayedTeammates != null && !key.displayedTeammates.contains(teamMember))
+                    continue;
 
-                Location playerLocation = player.getLocation();
+                SidebarPlayerCache cache = UHCReloaded.get().getScoreboardManager().getSidebarPlayerCache(teamMember);
 
-                for (UUID teamMember : team.getPlayersUUID())
-                {
-                    SidebarPlayerCache cache = UHCReloaded.get().getScoreboardManager().getSidebarPlayerCache(teamMember);
-
-                    // If enabled, we check if the player was already met or is close to this player.
-                    // Only if the damages are on (= 30 seconds after the game start) to avoid false close while
-                    // teleporting.
-                    if(OWN_TEAM_DISPLAY_MET_PLAYERS_ONLY)
-                    {
-                        if(!(teamMember.equals(player.getUniqueId()) || cache.getTeammatesDisplayed().contains(teamMember)))
-                        {
-                            if (gameManager.isGameStarted() && gameManager.isTakingDamage())
-                            {
-                                if (gameManager.isPlayerDead(teamMember))
-                                    continue; // dead (spectators don't have to be displayed in the sidebar).
-
-                                Player teammate = Sidebar.getPlayerAsync(teamMember);
-                                if (teammate == null)
-                                    continue; // offline
-
-
-                                Location teammateLocation = teammate.getLocation();
-
-                                // Check if the players are close
-                                if (teammateLocation.getWorld().equals(playerLocation.getWorld()))
-                                {
-                                    final double distanceSquared = teammateLocation.distanceSquared(playerLocation);
-                                    if (distanceSquared <= OWN_TEAM_DISPLAY_MET_PLAYERS_MIN_DISTANCE_SQUARED)
-                                        cache.getTeammatesDisplayed().add(teamMember);
-                                    else
-                                        continue; // Too far, skipped
-                                }
-                                else
-                                {
-                                    continue; // Too far, skipped
-                                }
-                            }
-                            else
-                            {
-                                continue;
-                            }
-                        }
-                    }
-
-                    final String strike = OWN_TEAM_STRIKE_DEAD_PLAYERS && !cache.isAlive() ? ChatColor.STRIKETHROUGH.toString() : "";
-                    final ChatColor aliveColor = cache.isAlive() ? ChatColor.WHITE : ChatColor.GRAY;
-
-                    final String heart = OWN_TEAM_DISPLAY_HEARTS ? cache.getHealthColor() + strike + HEART + " " : "";
-                    final String name = (OWN_TEAM_COLOR_WHOLE_NAME ? cache.getHealthColor() : aliveColor)
-                            + strike
-                            + (OWN_TEAM_DISPLAY_LOGIN_STATE_ITALIC && !cache.isOnline() ? ChatColor.ITALIC : "")
-                            + cache.getPlayerName()
-                            + (!cache.isOnline() ? ChatColor.RESET + "" + (OWN_TEAM_COLOR_WHOLE_NAME ? cache.getHealthColor() : aliveColor) + " " + OWN_TEAM_DISPLAY_LOGIN_STATE_SUFFIX : "");
-
-                    sidebar.add(heart + name);
-                }
+                final String strike = OWN_TEAM_STRIKE_DEAD_PLAYERS && !cache.isAlive() ? ChatColor.STRIKETHROUGH.toString() : "";
+                final ChatColor aliveColor = cache.isAlive() ? ChatColor.WHITE : ChatColor.GRAY;
 
-                sidebar.add("");
+                final String heart = OWN_TEAM_DISPLAY_HEARTS ? cache.getHealthColor() + strike + HEART + " " : "";
+                final String name = (OWN_TEAM_COLOR_WHOLE_NAME ? cache.getHealthColor() : aliveColor)
+                        + strike
+                        + (OWN_TEAM_DISPLAY_LOGIN_STATE_ITALIC && !cache.isOnline() ? ChatColor.ITALIC : "")
+                        + cache.getPlayerName()
+                        + (!cache.isOnline() ? ChatColor.RESET + "" + (OWN_TEAM_COLOR_WHOLE_NAME ? cache.getHealthColor() : aliveColor) + " " + OWN_TEAM_DISPLAY_LOGIN_STATE_SUFFIX : "");
+
+                sidebar.add(heart + name);
             }
+
+            sidebar.add("");
         }
 
         sidebar.addAll(sidebarBorder);
 
-        if (KILLS_IN_SIDEBAR && gameManager.isGameStarted())
+        if (key.kills >= 0)
         {
-            SidebarPlayerCache cache = UHCReloaded.get().getScoreboardManager().getSidebarPlayerCache(player.getUniqueId());
-
             /// Kills count in the sidebar
-            sidebar.add(I.tn("{white}{0}{gray} player killed", "{white}{0}{gray} players killed", cache.getPlayersKilled().size(), cache.getPlayersKilled().size()));
+            sidebar.add(I18nTemplates.tn("{white}{0}{gray} player killed", "{white}{0}{gray} players killed", key.kills, key.kills));
             sidebar.add("");
         }
 
         sidebar.addAll(sidebarTimers);
 
-        if (FREEZE_STATUS_IN_SIDEBAR)
+        if (key.frozen)
         {
-            insertFreezeStatus(sidebar, player);
+            sidebar.add("");
+            /// Notice displayed at the bottom of the sidebar if the game is paused (/uh freeze all).
+            sidebar.add(I18nTemplates.t("{darkaqua}Game frozen"));
         }
 
         return sidebar;
@@ -297,51 +494,66 @@ public class GameSidebar extends Sidebar
     }
 
 
+    /**
+     * Returns the previous section if its content is unchanged, so the same line instances are
+     * shared as long as possible; else the new section.
+     *
+     * @param previous The previously rendered section.
+     * @param current  The newly rendered section.
+     *
+     * @return The section to use.
+     */
+    private static List<String> share(List<String> previous, List<String> current)
+    {
+        return previous.equals(current) ? previous : Collections.unmodifiableList(current);
+    }
+
+
     /**
      * Inserts the border status in the given list, to be displayed in the sidebar.
      *
      * @param sidebar The list representing the sidebar's content.
+     * @param border  The border, as published by the main thread.
      */
-    private void insertBorder(List<String> sidebar)
+    private void insertBorder(List<String> sidebar, BorderView border)
     {
         if (BORDER_IN_SIDEBAR)
         {
             /// Title of the border section in the sidebar
-            sidebar.add(I.t("{blue}{bold}Border"));
+            sidebar.add(I18nTemplates.t("{blue}{bold}Border"));
 
-            int diameter = (int) Math.ceil(border.getDiameter());
+            int diameter = border.diameter;
 
-            if (BORDER_DISPLAY_DIAMETER || border.getShape() == MapShape.CIRCULAR)
+            if (BORDER_DISPLAY_DIAMETER || border.shape == MapShape.CIRCULAR)
             {
-                if (border.getShape() == MapShape.SQUARED)
+                if (border.shape == MapShape.SQUARED)
                     /// Border diameter for a squared map in the sidebar
-                    sidebar.add(I.tn("{white}{0} block wide", "{white}{0} blocks wide", diameter, diameter));
+                    sidebar.add(I18nTemplates.tn("{white}{0} block wide", "{white}{0} blocks wide", diameter, diameter));
                 else
                     /// Border diameter for a circular map in the sidebar
-                    sidebar.add(I.tn("{gray}Diameter: {white}{0} block", "{gray}Diameter: {white}{0} blocks", diameter, diameter));
+                    sidebar.add(I18nTemplates.tn("{gray}Diameter: {white}{0} block", "{gray}Diameter: {white}{0} blocks", diameter, diameter));
             }
             else
             {
-                Location center = border.getCenter();
                 int radius = (int) Math.ceil(diameter / 2);
 
-                int minX = center.getBlockX() - radius;
-                int maxX = center.getBlockX() + radius;
-                int minZ = center.getBlockZ() - radius;
-                int maxZ = center.getBlockZ() + radius;
+                int minX = border.centerX - radius;
+                int maxX = border.centerX + radius;
+                int minZ = border.centerZ - radius;
+                int maxZ = border.centerZ + radius;
 
                 // Same min & max, we can display both at once
                 if (minX == minZ && maxX == maxZ)
                 {
                     /// Min & max coordinates in the sidebar, to locate the border. Ex: "-500 +500". {0} = minimal coord, {1} = maximal coord.
-                    sidebar.add(I.t("{white}{0} {1}", UHUtils.integerToStringWithSign(minX), UHUtils.integerToStringWithSign(maxZ)));
+                    sidebar.add(I18nTemplates.t("{white}{0} {1}", UHUtils.integerToStringWithSign(minX), UHUtils.integerToStringWithSign(maxZ)));
                 }
                 else
                 {
                     /// Min & max X coordinates in the sidebar, to locate the border. Ex: "X: -500 +500". {0} = minimal coord, {1} = maximal coord.
-                    sidebar.add(I.t("{gray}X: {white}{0} {1}", UHUtils.integerToStringWithSign(minX), UHUtils.integerToStringWithSign(maxX)));
+                    sidebar.add(I18nTemplates.t("{gray}X: {white}{0} {1}", UHUtils.integerToStringWithSign(minX), UHUtils.integerToStringWithSign(maxX)));
                     /// Min & max Z coordinates in the sidebar, to locate the border. Ex: "Z: -500 +500". {0} = minimal coord, {1} = maximal coord.
-                    sidebar.add(I.t("{gray}Z: {white}{0} {1}", UHUtils.integerToStringWithSign(minZ), UHUtils.integerToStringWithSign(maxZ)));
+                    sidebar.add(I18nTemplates.t("{gray}Z: {white}{0} {1}", UHUtils.integerToStringWithSign(minZ), UHUtils.integerToStringWithSign(maxZ)));
                 }
             }
 
@@ -350,35 +562,110 @@ public class GameSidebar extends Sidebar
     }
 
     /**
-     * Inserts the timers in the given list, to be displayed in the sidebar, at the bottom of the
-     * list.
+     * Renders the timers part of the sidebar: the displayed timers, and the main timer at the
+     * bottom. Called from the main thread.
      *
-     * @param sidebar The list representing the sidebar's content.
+     * @return The lines.
      */
-    private void insertTimers(List<String> sidebar)
+    private List<String> renderTimers()
     {
+        final List<String> sidebar = new ArrayList<>();
+
         UHCReloaded.get().getTimerManager().getTimers().stream().filter(UHTimer::isDisplayed).forEach(timer -> {
             sidebar.add(timer.getDisplayName());
             sidebar.add(timer.toString());
             sidebar.add("");
         });
+
+        if (TIMER_IN_SIDEBAR)
+        {
+            if (!gameManager.isGameStarted())
+                sidebar.add(FROOZEN_NULL_TIMER_TEXT);
+            else
+            {
+                final UHTimer mainTimer = UHCReloaded.get().getTimerManager().getMainTimer();
+                if (mainTimer != null) sidebar.add(mainTimer.toString());
+            }
+        }
+
+        return Collections.unmodifiableList(sidebar);
     }
 
     /**
-     * Inserts the « frozen » text at the bottom of the list, if active globally or for the given
-     * player.
-     *
-     * @param sidebar The list representing the sidebar's content.
+     * The displayed state of the border, captured on the main thread.
      */
-    private void insertFreezeStatus(List<String> sidebar, Player player)
+    private static final class BorderView
     {
-        final Freezer freezer = UHCReloaded.get().getFreezer();
+        private final int diameter;
+        private final int centerX;
+        private final int centerZ;
+        private final MapShape shape;
 
-        if ((freezer.getGlobalFreezeState() && !freezer.isHiddenFreeze()) || freezer.isPlayerFrozen(player))
+        private BorderView(WorldBorder border)
         {
-            sidebar.add("");
-            /// Notice displayed at the bottom of the sidebar if the game is paused (/uh freeze all).
-            sidebar.add(I.t("{darkaqua}Game frozen"));
+            final Location center = border.getCenter();
+
+            this.diameter = (int) Math.ceil(border.getDiameter());
+            this.centerX = center.getBlockX();
+            this.centerZ = center.getBlockZ();
+            this.shape = border.getShape();
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (!(o instanceof BorderView)) return false;
+
+            final BorderView other = (BorderView) o;
+            return diameter == other.diameter && centerX == other.centerX && centerZ == other.centerZ && shape == other.shape;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(diameter, centerX, centerZ, shape);
+        }
+    }
+
+    /**
+     * Identifies a sidebar layout: the players with equal keys see exactly the same sidebar.
+     */
+    private static final class LayoutKey
+    {
+        private final UHTeam team;
+        private final Set<UUID> displayedTeammates;
+        private final int kills;
+        private final boolean frozen;
+
+        private final int hash;
+
+        private LayoutKey(UHTeam team, Set<UUID> displayedTeammates, int kills, boolean frozen)
+        {
+            this.team = team;
+            this.displayedTeammates = displayedTeammates;
+            this.kills = kills;
+            this.frozen = frozen;
+
+            this.hash = Objects.hash(team, displayedTeammates, kills, frozen);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (!(o instanceof LayoutKey)) return false;
+
+            final LayoutKey other = (LayoutKey) o;
+            return kills == other.kills && frozen == other.frozen
+                    && Objects.equals(team, other.team)
+                    && Objects.equals(displayedTeammates, other.displayedTeammates);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
         }
     }
 }
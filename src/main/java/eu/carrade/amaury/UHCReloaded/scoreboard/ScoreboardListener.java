@@ -32,8 +32,11 @@
 package eu.carrade.amaury.UHCReloaded.scoreboard;
 
 import eu.carrade.amaury.UHCReloaded.UHCReloaded;
+import eu.carrade.amaury.UHCReloaded.events.UHEpisodeChangedEvent;
+import eu.carrade.amaury.UHCReloaded.events.UHGameStartsEvent;
 import eu.carrade.amaury.UHCReloaded.events.UHPlayerDeathEvent;
 import eu.carrade.amaury.UHCReloaded.events.UHPlayerResurrectedEvent;
+import eu.carrade.amaury.UHCReloaded.events.UHTeammateMetEvent;
 import fr.zcraft.zlib.tools.runners.RunTask;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -45,6 +48,8 @@ import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerKickEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
+import java.util.UUID;
+
 
 public class ScoreboardListener implements Listener
 {
@@ -55,6 +60,9 @@ public class ScoreboardListener implements Listener
 
         cache.updateName(ev.getPlayer().getName());
         cache.updateOnlineStatus(true);
+
+        markDirty(GameSidebar.Section.TOP);
+        markDirty(GameSidebar.Section.PLAYERS);
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
@@ -88,11 +96,13 @@ public class ScoreboardListener implements Listener
     {
         onPlayerHealthChange(ev.getPlayer());
 
+        markDirty(GameSidebar.Section.TOP);
+        markDirty(GameSidebar.Section.PLAYERS);
+
         if (ev.getPlayerDeathEvent().getEntity().getKiller() != null)
         {
-            UHCReloaded.get().getScoreboardManager()
-                    .getSidebarPlayerCache(ev.getPlayerDeathEvent().getEntity().getKiller().getUniqueId())
-                    .getPlayersKilled().add(ev.getPlayer().getUniqueId());
+            UHCReloaded.get().getScoreboardManager().getSidebarPlayerCacheStore()
+                    .recordKill(ev.getPlayerDeathEvent().getEntity().getKiller().getUniqueId(), ev.getPlayer().getUniqueId());
         }
     }
 
@@ -101,16 +111,41 @@ public class ScoreboardListener implements Listener
     {
         onPlayerHealthChange(ev.getPlayer());
 
-        for (SidebarPlayerCache cache : UHCReloaded.get().getScoreboardManager().getAllSidebarPlayerCache().values())
-        {
-            if (cache.getPlayersKilled().remove(ev.getPlayer().getUniqueId()))
-                break;
-        }
+        markDirty(GameSidebar.Section.TOP);
+        markDirty(GameSidebar.Section.PLAYERS);
+
+        UHCReloaded.get().getScoreboardManager().getSidebarPlayerCacheStore().cancelKill(ev.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEpisodeChanged(UHEpisodeChangedEvent ev)
+    {
+        markDirty(GameSidebar.Section.TOP);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onGameStarts(UHGameStartsEvent ev)
+    {
+        for (GameSidebar.Section section : GameSidebar.Section.values())
+            markDirty(section);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onTeammateMet(UHTeammateMetEvent ev)
+    {
+        markDirty(GameSidebar.Section.PLAYERS);
     }
 
     private void onPlayerQuit(Player player)
     {
         UHCReloaded.get().getScoreboardManager().getSidebarPlayerCache(player.getUniqueId()).updateOnlineStatus(false);
+
+        markDirty(GameSidebar.Section.TOP);
+        markDirty(GameSidebar.Section.PLAYERS);
+
+        // A bit later, as the player may be removed from their team just after leaving.
+        final UUID playerId = player.getUniqueId();
+        RunTask.later(() -> UHCReloaded.get().getScoreboardManager().evictSidebarPlayerCacheIfUnused(playerId), 20L);
     }
 
     private void onPlayerHealthChange(final Player player)
@@ -118,7 +153,13 @@ public class ScoreboardListener implements Listener
         // One tick later to use the updated health value.
         RunTask.nextTick(() -> {
             final SidebarPlayerCache cache = UHCReloaded.get().getScoreboardManager().getSidebarPlayerCache(player.getUniqueId());
-            cache.updateHealth(UHCReloaded.get().getGameManager().isPlayerDead(player.getUniqueId()) ? 0d : player.getHealth());
+            if (cache.updateHealth(UHCReloaded.get().getGameManager().isPlayerDead(player.getUniqueId()) ? 0d : player.getHealth()))
+                markDirty(GameSidebar.Section.PLAYERS);
         });
     }
+
+    private void markDirty(GameSidebar.Section section)
+    {
+        UHCReloaded.get().getScoreboardManager().markSidebarDirty(section);
+    }
 }
@@ -33,7 +33,6 @@ package eu.carrade.amaury.UHCReloaded.scoreboard;
 
 import eu.carrade.amaury.UHCReloaded.UHCReloaded;
 import eu.carrade.amaury.UHCReloaded.UHConfig;
-import fr.zcraft.zlib.components.scoreboard.Sidebar;
 import fr.zcraft.zlib.tools.runners.RunTask;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -44,19 +43,19 @@ import org.bukkit.scoreboard.DisplaySlot;
 import org.bukkit.scoreboard.Objective;
 import org.bukkit.scoreboard.Scoreboard;
 
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 
 public class ScoreboardManager
 {
+    private static final String HEALTH_OBJECTIVE = "Health";
+
     private UHCReloaded p;
 
-    private Map<UUID, SidebarPlayerCache> sidebarCache = new ConcurrentHashMap<>();
+    private final SidebarPlayerCacheStore sidebarCache = new SidebarPlayerCacheStore();
 
     private final Scoreboard sb;
-    private Sidebar sidebar = null;
+    private GameSidebar sidebar = null;
 
 
     public ScoreboardManager(UHCReloaded p)
@@ -74,13 +73,13 @@ public class ScoreboardManager
 
             Bukkit.getOnlinePlayers().forEach(player -> sidebar.addRecipient(player));
 
-            sidebar.runAutoRefresh(true);
+            sidebar.runDirtyRefresh();
         }
 
         // Initialization of the scoreboard (health in players' list)
         if (UHConfig.SCOREBOARD.HEALTH.get())
         {
-            final Objective healthObjective = sb.registerNewObjective("Health", Criterias.HEALTH);
+            final Objective healthObjective = sb.registerNewObjective(HEALTH_OBJECTIVE, Criterias.HEALTH);
             healthObjective.setDisplayName("Health");
             healthObjective.setDisplaySlot(DisplaySlot.PLAYER_LIST);
 
@@ -109,10 +108,21 @@ public class ScoreboardManager
     /**
      * Updates the health score for the given player.
      *
+     * <p>With ProtocolLib, the score is sent directly to the clients (in a batch, at the next tick).
+     * Else, the health is changed back and forth to force the server to send it.</p>
+     *
      * @param player The player to update.
      */
     public void updateHealthScore(final Player player)
     {
+        if (p.getProtocolLibIntegrationWrapper().isProtocolLibIntegrationEnabled())
+        {
+            if (sb.getObjective(HEALTH_OBJECTIVE) != null)
+                p.getProtocolLibIntegrationWrapper().getIntegration().queueHealthScoreUpdate(player, HEALTH_OBJECTIVE);
+
+            return;
+        }
+
         if (player.getHealth() != 1d) // Prevents killing the player
         {
             player.setHealth(player.getHealth() - 1);
@@ -136,6 +146,21 @@ public class ScoreboardManager
     {
         p.setScoreboard(sb);
         sidebar.addRecipient(p);
+
+        // The client doesn't receive the health scores of the other players with the scoreboard.
+        if (this.p.getProtocolLibIntegrationWrapper().isProtocolLibIntegrationEnabled() && sb.getObjective(HEALTH_OBJECTIVE) != null)
+            this.p.getProtocolLibIntegrationWrapper().getIntegration().queueHealthScoresSync(p, HEALTH_OBJECTIVE);
+    }
+
+    /**
+     * Called after a reload of the configuration, to apply the new sidebar settings.
+     * <p>
+     * Enabling or disabling the sidebar or the health in the players list requires a restart.
+     */
+    public void onConfigurationReloaded()
+    {
+        if (sidebar != null)
+            sidebar.applyConfiguration();
     }
 
     /**
@@ -167,11 +192,50 @@ public class ScoreboardManager
      */
     public SidebarPlayerCache getSidebarPlayerCache(UUID id)
     {
-        return sidebarCache.computeIfAbsent(id, SidebarPlayerCache::new);
+        return sidebarCache.get(id);
     }
 
-    public Map<UUID, SidebarPlayerCache> getAllSidebarPlayerCache()
+    /**
+     * Returns the store containing the cached data about all players.
+     *
+     * @return The store.
+     */
+    public SidebarPlayerCacheStore getSidebarPlayerCacheStore()
     {
         return sidebarCache;
     }
+
+    /**
+     * Removes the cached data about the given player, if this player is offline and not part of the
+     * match (not in a team, not alive, and without any kill displayed during the game).
+     *
+     * @param id The player's UUID.
+     * @return {@code true} if the cached data was removed.
+     */
+    public boolean evictSidebarPlayerCacheIfUnused(UUID id)
+    {
+        if (!sidebarCache.contains(id) || Bukkit.getPlayer(id) != null)
+            return false;
+
+        if (p.getTeamManager().getTeamForPlayer(Bukkit.getOfflinePlayer(id)) != null)
+            return false;
+
+        if (p.getGameManager().isGameStarted()
+                && (!p.getGameManager().isPlayerDead(id) || sidebarCache.get(id).getPlayersKilledCount() > 0))
+            return false;
+
+        sidebarCache.evict(id);
+        return true;
+    }
+
+    /**
+     * Marks a section of the sidebar as dirty, to render it again at the next refresh.
+     *
+     * @param section The section whose displayed data changed.
+     */
+    public void markSidebarDirty(GameSidebar.Section section)
+    {
+        if (sidebar != null)
+            sidebar.markDirty(section);
+    }
 }
@@ -35,40 +35,50 @@ import eu.carrade.amaury.UHCReloaded.misc.OfflinePlayersLoader;
 import fr.zcraft.zlib.components.i18n.I;
 import fr.zcraft.zlib.components.scoreboard.Sidebar;
 import org.bukkit.ChatColor;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 
-import java.util.Set;
+import java.util.Arrays;
 import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
  * This class stores the data displayed in the sidebar for a player, like the color, the health, the name...
+ *
+ * Each cache has a small dense index (see {@link SidebarPlayerCacheStore}), used to store the met
+ * teammates as a bitset.
  */
 public class SidebarPlayerCache
 {
-    private UUID playerId;
+    private static final long[] NO_BITS = new long[0];
+
+    private final UUID playerId;
+    private final int index;
 
-    private String playerName;
-    private ChatColor healthColor = ChatColor.WHITE;
+    // Updated from the main thread, read by the asynchronous sidebar.
+    private volatile String playerName;
+    private volatile ChatColor healthColor = ChatColor.WHITE;
 
-    private boolean isOnline;
-    private boolean isAlive;
+    private volatile boolean isOnline;
+    private volatile boolean isAlive;
 
-    private Set<UUID> playersKilled      = new CopyOnWriteArraySet<>();
-    private Set<UUID> teammatesDisplayed = new CopyOnWriteArraySet<>();
+    private final AtomicInteger playersKilled = new AtomicInteger();
+    private volatile int killerIndex = -1;
 
+    // Copy-on-write bitset of the indexes of the teammates met.
+    private volatile long[] teammatesDisplayed = NO_BITS;
 
-    public SidebarPlayerCache(UUID id)
+
+    SidebarPlayerCache(UUID id, int index)
     {
-        playerId = id;
+        this.playerId = id;
+        this.index = index;
 
         Player player = Sidebar.getPlayerAsync(id);
 
         if (player != null)
         {
-            playerName = player.getName();
+            updateName(player.getName());
             isOnline = true;
             updateHealth(player.getHealth());
         }
@@ -81,11 +91,20 @@ public class SidebarPlayerCache
 
     public void updateName(String name)
     {
-        playerName = name;
+        playerName = name != null ? name.intern() : null;
     }
 
-    public void updateHealth(double health)
+    /**
+     * Updates the health of this player.
+     *
+     * @param health The new health.
+     * @return {@code true} if the displayed health (color or alive state) changed.
+     */
+    public boolean updateHealth(double health)
     {
+        final ChatColor oldHealthColor = healthColor;
+        final boolean wasAlive = isAlive;
+
         if (health <= 0)
             healthColor = ChatColor.GRAY;
         else if (health <= 4.1)
@@ -100,6 +119,8 @@ public class SidebarPlayerCache
             healthColor = ChatColor.DARK_GREEN;
 
         isAlive = (health > 0);
+
+        return healthColor != oldHealthColor || isAlive != wasAlive;
     }
 
     public void updateOnlineStatus(boolean isOnline)
@@ -107,14 +128,17 @@ public class SidebarPlayerCache
         this.isOnline = isOnline;
     }
 
-    public void addKill(UUID id)
+    public UUID getPlayerId()
     {
-        playersKilled.add(id);
+        return playerId;
     }
 
-    public UUID getPlayerId()
+    /**
+     * @return The dense index of this cache in the store.
+     */
+    public int getIndex()
     {
-        return playerId;
+        return index;
     }
 
     public String getPlayerName()
@@ -122,10 +146,10 @@ public class SidebarPlayerCache
         if (playerName != null && !playerName.isEmpty())
             return playerName;
 
-        OfflinePlayer player = OfflinePlayersLoader.getOfflinePlayer(playerId);
-        if (player != null && player.getName() != null && !player.getName().isEmpty())
+        final String name = OfflinePlayersLoader.getName(playerId);
+        if (name != null)
         {
-            playerName = player.getName();
+            updateName(name);
             return playerName;
         }
 
@@ -148,13 +172,80 @@ public class SidebarPlayerCache
         return isAlive;
     }
 
-    public Set<UUID> getTeammatesDisplayed()
+    /**
+     * Checks if this player met the given teammate.
+     *
+     * @param teammate The cache of the teammate.
+     * @return {@code true} if met.
+     */
+    public boolean hasMet(SidebarPlayerCache teammate)
+    {
+        final long[] bits = teammatesDisplayed;
+        final int word = teammate.index >>> 6;
+
+        return word < bits.length && (bits[word] & (1L << teammate.index)) != 0;
+    }
+
+    /**
+     * Marks the given teammate as met by this player.
+     *
+     * @param teammate The cache of the teammate.
+     * @return {@code true} if the teammate was not already met.
+     */
+    public synchronized boolean markMet(SidebarPlayerCache teammate)
+    {
+        if (hasMet(teammate)) return false;
+
+        final int word = teammate.index >>> 6;
+        final long[] bits = Arrays.copyOf(teammatesDisplayed, Math.max(teammatesDisplayed.length, word + 1));
+
+        bits[word] |= 1L << teammate.index;
+        teammatesDisplayed = bits;
+
+        return true;
+    }
+
+    /**
+     * Forgets a met teammate, by index (used when the index is freed).
+     *
+     * @param teammateIndex The index of the teammate.
+     */
+    synchronized void forgetMet(int teammateIndex)
+    {
+        final int word = teammateIndex >>> 6;
+        if (word >= teammatesDisplayed.length || (teammatesDisplayed[word] & (1L << teammateIndex)) == 0)
+            return;
+
+        final long[] bits = teammatesDisplayed.clone();
+        bits[word] &= ~(1L << teammateIndex);
+        teammatesDisplayed = bits;
+    }
+
+    /**
+     * @return The number of players killed by this player.
+     */
+    public int getPlayersKilledCount()
+    {
+        return playersKilled.get();
+    }
+
+    void addKill()
+    {
+        playersKilled.incrementAndGet();
+    }
+
+    void removeKill()
+    {
+        playersKilled.updateAndGet(kills -> Math.max(kills - 1, 0));
+    }
+
+    int getKillerIndex()
     {
-        return teammatesDisplayed;
+        return killerIndex;
     }
 
-    public Set<UUID> getPlayersKilled()
+    void setKillerIndex(int killerIndex)
     {
-        return playersKilled;
+        this.killerIndex = killerIndex;
     }
 }
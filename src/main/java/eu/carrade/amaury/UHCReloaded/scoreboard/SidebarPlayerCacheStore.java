@@ -0,0 +1,167 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.scoreboard;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Stores the sidebar caches of the players, with a small dense index for each.
+ *
+ * <p>The indexes of the evicted caches are reused, so the met teammates bitsets stay small and the
+ * memory used stays flat even if thousands of different players join the server.</p>
+ */
+public class SidebarPlayerCacheStore
+{
+    private final Map<UUID, SidebarPlayerCache> caches = new ConcurrentHashMap<>();
+
+    // Guarded by this.
+    private SidebarPlayerCache[] cachesByIndex = new SidebarPlayerCache[64];
+    private final BitSet usedIndexes = new BitSet();
+
+
+    /**
+     * Returns the cached data about the given player.
+     *
+     * @param id The player's UUID.
+     * @return The cached data, created on the fly if needed.
+     */
+    public SidebarPlayerCache get(UUID id)
+    {
+        final SidebarPlayerCache cache = caches.get(id);
+        if (cache != null) return cache;
+
+        synchronized (this)
+        {
+            return caches.computeIfAbsent(id, uuid -> {
+                final int index = usedIndexes.nextClearBit(0);
+
+                final SidebarPlayerCache newCache = new SidebarPlayerCache(uuid, index);
+
+                usedIndexes.set(index);
+                if (index >= cachesByIndex.length)
+                    cachesByIndex = Arrays.copyOf(cachesByIndex, cachesByIndex.length * 2);
+                cachesByIndex[index] = newCache;
+
+                return newCache;
+            });
+        }
+    }
+
+    /**
+     * Returns the cached data at the given index.
+     *
+     * @param index The index.
+     * @return The cached data, or {@code null} if there isn't any cache at this index.
+     */
+    public synchronized SidebarPlayerCache get(int index)
+    {
+        return index >= 0 && index < cachesByIndex.length ? cachesByIndex[index] : null;
+    }
+
+    /**
+     * Checks if the given player has a cache.
+     *
+     * @param id The player's UUID.
+     * @return {@code true} if cached.
+     */
+    public boolean contains(UUID id)
+    {
+        return caches.containsKey(id);
+    }
+
+    /**
+     * @return The number of cached players.
+     */
+    public int size()
+    {
+        return caches.size();
+    }
+
+    /**
+     * Records a kill.
+     *
+     * @param killer The killer's UUID.
+     * @param victim The victim's UUID.
+     */
+    public void recordKill(UUID killer, UUID victim)
+    {
+        final SidebarPlayerCache killerCache = get(killer);
+
+        killerCache.addKill();
+        get(victim).setKillerIndex(killerCache.getIndex());
+    }
+
+    /**
+     * Cancels the kill of the given victim (e.g. when resurrected).
+     *
+     * @param victim The victim's UUID.
+     */
+    public void cancelKill(UUID victim)
+    {
+        final SidebarPlayerCache victimCache = caches.get(victim);
+        if (victimCache == null || victimCache.getKillerIndex() < 0) return;
+
+        final SidebarPlayerCache killerCache = get(victimCache.getKillerIndex());
+        if (killerCache != null) killerCache.removeKill();
+
+        victimCache.setKillerIndex(-1);
+    }
+
+    /**
+     * Removes the cache of a player. Its index is freed, and removed from the other caches.
+     *
+     * @param id The player's UUID.
+     */
+    public synchronized void evict(UUID id)
+    {
+        final SidebarPlayerCache cache = caches.remove(id);
+        if (cache == null) return;
+
+        final int index = cache.getIndex();
+
+        for (SidebarPlayerCache other : caches.values())
+        {
+            other.forgetMet(index);
+
+            if (other.getKillerIndex() == index)
+                other.setKillerIndex(-1);
+        }
+
+        cachesByIndex[index] = null;
+        usedIndexes.clear(index);
+    }
+}
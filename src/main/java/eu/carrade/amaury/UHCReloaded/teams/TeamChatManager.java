@@ -39,20 +39,27 @@ import fr.zcraft.zlib.tools.runners.RunTask;
 import fr.zcraft.zlib.tools.text.MessageSender;
 import org.bukkit.entity.Player;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public class TeamChatManager
 {
     private final UHCReloaded p;
 
-    private final Set<UUID> teamChatLocked = new HashSet<>();
-    private final Map<UUID, UHTeam> otherTeamChatLocked = new HashMap<>();
-    private final Set<UUID> globalSpies = new HashSet<>();
+    // Read from the asynchronous chat.
+    private final Set<UUID> teamChatLocked = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, UHTeam> otherTeamChatLocked = new ConcurrentHashMap<>();
+    private final Set<UUID> globalSpies = ConcurrentHashMap.newKeySet();
+
+    // Reverse index of otherTeamChatLocked: the players in the chat of each team. Identity-based,
+    // as the hash of a team changes when renamed.
+    private final Map<UHTeam, Set<UUID>> spiesByTeam = Collections.synchronizedMap(new IdentityHashMap<>());
 
     public TeamChatManager(UHCReloaded p)
     {
@@ -98,7 +105,8 @@ public class TeamChatManager
         {
             /// Format of a private team message from a team member. {0} = sender display name, {1} = message.
             rawMessage = I.t("{gold}[{0}{gold} -> his team] {reset}{1}", sender.getDisplayName(), message);
-            recipient = p.getTeamManager().getTeamForPlayer(sender);
+            // Called from the asynchronous chat: the game state snapshot is used.
+            recipient = p.getGameManager().getSnapshot().getTeamForPlayer(sender.getUniqueId());
 
             if (recipient == null)
             {
@@ -126,24 +134,20 @@ public class TeamChatManager
      */
     private void sendRawTeamMessage(final Player sender, String rawMessage, UHTeam team)
     {
-        // The message is sent to the players of the team...
-        team.getOnlinePlayers().forEach(player -> MessageSender.sendChatMessage(player, rawMessage));
+        // The message is sent to the players of the team, to the spies of this team, and to the
+        // global spies; each one only once, to avoid double messages.
+        final Set<UUID> spies = spiesByTeam.getOrDefault(team, Collections.emptySet());
+        final Set<UUID> recipients = new HashSet<>(p.getGameManager().getSnapshot().getTeamMembers(team));
+
+        recipients.addAll(spies);
+        recipients.addAll(globalSpies);
 
-        // ... to the spies ...
-        if (otherTeamChatLocked.containsValue(team))
+        for (UUID recipientId : recipients)
         {
-            // The message is only sent to the spies not in the team, to avoid double messages
-            otherTeamChatLocked.keySet().stream()
-                    .filter(playerId -> otherTeamChatLocked.get(playerId).equals(team))
-                    .filter(playerId -> !team.containsPlayer(playerId))
-                    .forEach(playerId -> MessageSender.sendChatMessage(p.getServer().getPlayer(playerId), rawMessage));
+            final Player recipient = p.getServer().getPlayer(recipientId);
+            if (recipient != null) MessageSender.sendChatMessage(recipient, rawMessage);
         }
 
-        // ... to the global spies ...
-        globalSpies.stream()
-                .filter(playerId -> !team.containsPlayer(playerId))
-                .forEach(playerId -> p.getServer().getPlayer(playerId).sendMessage(rawMessage));
-
         // ... and to the console.
         if (UHConfig.TEAMS_OPTIONS.TEAM_CHAT.LOG.get())
         {
@@ -209,7 +213,7 @@ public class TeamChatManager
         {
             // if the player was in another team chat before, we removes it.
             teamChatLocked.remove(player.getUniqueId());
-            otherTeamChatLocked.put(player.getUniqueId(), team);
+            setOtherTeamChat(player.getUniqueId(), team);
 
             return true;
         }
@@ -219,7 +223,7 @@ public class TeamChatManager
             if (isAnyTeamChatEnabled(player))
             {
                 teamChatLocked.remove(player.getUniqueId());
-                otherTeamChatLocked.remove(player.getUniqueId());
+                setOtherTeamChat(player.getUniqueId(), null);
 
                 return false;
             }
@@ -233,6 +237,30 @@ public class TeamChatManager
         }
     }
 
+    /**
+     * Updates the chat of another team a player is in, keeping the reverse index up-to-date.
+     *
+     * @param playerId The player's UUID.
+     * @param team The other team, or {@code null} to leave the chat of the other team.
+     */
+    private synchronized void setOtherTeamChat(UUID playerId, UHTeam team)
+    {
+        final UHTeam previousTeam = team != null ? otherTeamChatLocked.put(playerId, team) : otherTeamChatLocked.remove(playerId);
+
+        if (previousTeam != null)
+        {
+            final Set<UUID> previousSpies = spiesByTeam.get(previousTeam);
+            if (previousSpies != null)
+            {
+                previousSpies.remove(playerId);
+                if (previousSpies.isEmpty()) spiesByTeam.remove(previousTeam);
+            }
+        }
+
+        if (team != null)
+            spiesByTeam.computeIfAbsent(team, t -> ConcurrentHashMap.newKeySet()).add(playerId);
+    }
+
     /**
      * Returns true if the team chat is enabled for the given player.
      *
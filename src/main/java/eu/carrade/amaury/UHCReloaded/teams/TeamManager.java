@@ -37,26 +37,37 @@ import eu.carrade.amaury.UHCReloaded.gui.teams.TeamsSelectorGUI;
 import eu.carrade.amaury.UHCReloaded.gui.teams.editor.TeamEditDeleteGUI;
 import eu.carrade.amaury.UHCReloaded.gui.teams.editor.TeamEditGUI;
 import eu.carrade.amaury.UHCReloaded.gui.teams.editor.TeamEditMembersGUI;
+import eu.carrade.amaury.UHCReloaded.misc.OfflinePlayersLoader;
 import fr.zcraft.zlib.components.configuration.ConfigurationParseException;
 import fr.zcraft.zlib.components.configuration.ConfigurationValueHandler;
 import fr.zcraft.zlib.components.gui.Gui;
 import fr.zcraft.zlib.components.i18n.I;
 import fr.zcraft.zlib.components.rawtext.RawText;
+import fr.zcraft.zlib.tools.Callback;
 import fr.zcraft.zlib.tools.PluginLogger;
 import fr.zcraft.zlib.tools.text.ActionBar;
 import fr.zcraft.zlib.tools.text.RawMessage;
 import org.bukkit.ChatColor;
 import org.bukkit.OfflinePlayer;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.meta.BannerMeta;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
+import java.util.UUID;
 
 
 public class TeamManager
@@ -118,6 +129,7 @@ public class TeamManager
         teams.add(team);
 
         updateGUIs();
+        p.getGameManager().invalidateSnapshot();
 
         return team;
     }
@@ -149,6 +161,7 @@ public class TeamManager
         teams.add(team);
 
         updateGUIs();
+        p.getGameManager().invalidateSnapshot();
 
         return team;
     }
@@ -171,6 +184,7 @@ public class TeamManager
         teams.add(team);
 
         updateGUIs();
+        p.getGameManager().invalidateSnapshot();
 
         return team;
     }
@@ -197,6 +211,7 @@ public class TeamManager
         final boolean removed = teams.remove(team);
 
         updateGUIs();
+        p.getGameManager().invalidateSnapshot();
 
         return removed;
     }
@@ -453,6 +468,281 @@ public class TeamManager
         return teamsCount;
     }
 
+    /**
+     * Replaces all the teams by the teams of the given roster.
+     *
+     * All the names are resolved at once; if some players cannot be found (including UUIDs
+     * unknown to the server and to the names cache), if the roster is invalid (player listed
+     * twice, team too large), or if the game was started meanwhile,
+     * nothing is changed. Else, the current teams
+     * are removed and the new ones are created in bulk, without notifying each player.
+     *
+     * @param roster The roster.
+     * @param callbackSuccess Called with the number of teams imported.
+     * @param callbackErrors Called with the errors (unresolved names or invalid roster) if nothing
+     *                       was imported.
+     */
+    public void importRoster(final TeamsRoster roster, final Callback<Integer> callbackSuccess, final Callback<List<String>> callbackErrors)
+    {
+        final Map<String, OfflinePlayer> players = new HashMap<>();
+        final List<String> namesToResolve = new ArrayList<>();
+
+        // Players given by UUID are not resolved, but they must be known by the server or by the
+        // names cache; else, they are reported as unknown.
+        for (String player : roster.getPlayers())
+        {
+            final UUID id;
+            try
+            {
+                id = UUID.fromString(player);
+            }
+            catch (IllegalArgumentException e)
+            {
+                namesToResolve.add(player);
+                continue;
+            }
+
+            OfflinePlayer offlinePlayer = OfflinePlayersLoader.getOfflinePlayer(id);
+            if (offlinePlayer.getName() == null)
+            {
+                final String name = OfflinePlayersLoader.getName(id);
+                offlinePlayer = name != null ? OfflinePlayersLoader.getOfflinePlayer(name) : null;
+            }
+
+            if (offlinePlayer != null && offlinePlayer.getUniqueId().equals(id))
+                players.put(player.toLowerCase(), offlinePlayer);
+        }
+
+        OfflinePlayersLoader.loadPlayers(namesToResolve, resolved ->
+        {
+            // The resolved names are now in the names cache.
+            for (String name : namesToResolve)
+            {
+                final OfflinePlayer player = OfflinePlayersLoader.getOfflinePlayer(name);
+                if (player != null) players.put(name.toLowerCase(), player);
+            }
+
+            final List<String> errors = new ArrayList<>();
+            final Map<TeamsRoster.Team, List<OfflinePlayer>> teamsPlayers = new LinkedHashMap<>();
+            final Map<UUID, TeamsRoster.Team> playersTeams = new HashMap<>();
+
+            for (TeamsRoster.Team team : roster.getTeams())
+            {
+                final List<OfflinePlayer> teamPlayers = new ArrayList<>();
+
+                for (String name : team.getPlayers())
+                {
+                    final OfflinePlayer player = players.get(name.toLowerCase());
+
+                    if (player == null)
+                    {
+                        errors.add(I.t("Unknown player {0}", name));
+                        continue;
+                    }
+
+                    final TeamsRoster.Team previousTeam = playersTeams.put(player.getUniqueId(), team);
+                    if (previousTeam == team)
+                        errors.add(I.t("{0} is listed twice in the team {1}", name, team.getName()));
+                    else if (previousTeam != null)
+                        errors.add(I.t("{0} is in the teams {1} and {2}", name, previousTeam.getName(), team.getName()));
+                    else
+                        teamPlayers.add(player);
+                }
+
+                if (MAX_PLAYERS_PER_TEAM != 0 && teamPlayers.size() > MAX_PLAYERS_PER_TEAM)
+                    errors.add(I.t("The team {0} has more than {1} players", team.getName(), MAX_PLAYERS_PER_TEAM));
+
+                teamsPlayers.put(team, teamPlayers);
+            }
+
+            // The game may have been started while the names were resolved.
+            if (p.getGameManager().isGameStarted() || p.getGameManager().isSlowStartInProgress())
+                errors.add(I.t("The game was started during the import"));
+
+            if (!errors.isEmpty())
+            {
+                if (callbackErrors != null) callbackErrors.call(errors);
+                return;
+            }
+
+            reset(true);
+
+            for (Map.Entry<TeamsRoster.Team, List<OfflinePlayer>> entry : teamsPlayers.entrySet())
+            {
+                final UHTeam team = new UHTeam(entry.getKey().getName(), generateColor(entry.getKey().getColor()));
+                team.addPlayersInBulk(entry.getValue());
+
+                teams.add(team);
+            }
+
+            for (Player player : p.getServer().getOnlinePlayers())
+            {
+                colorizePlayer(player);
+
+                if (UHConfig.BEFORE_START.TEAM_IN_ACTION_BAR.get())
+                    displayTeamInActionBar(player);
+            }
+
+            updateGUIs();
+            p.getGameManager().invalidateSnapshot();
+
+            if (callbackSuccess != null) callbackSuccess.call(teamsPlayers.size());
+        }, null);
+    }
+
+    /**
+     * Distributes the given players into teams of the given size, balanced using the skill
+     * ratings file, if any.
+     *
+     * The incomplete teams are considered as parties: they are always completed if there are
+     * enough players. New teams are created for the other players, all at once, without notifying
+     * each player.
+     *
+     * @param players The players to distribute. They must not be in a team.
+     * @param teamSize The size of the teams.
+     *
+     * @return The number of teams created.
+     */
+    public int autoTeams(Collection<UUID> players, int teamSize)
+    {
+        final Map<UHTeam, Set<UUID>> parties = new LinkedHashMap<>();
+        for (UHTeam team : teams)
+            parties.put(team, team.getPlayersUUID());
+
+        final TeamsBalancer.Result<UHTeam> result = new TeamsBalancer<UHTeam>(teamSize, loadSkillRatings()).balance(parties, players);
+
+        for (Map.Entry<UHTeam, List<UUID>> completedTeam : result.getCompletedParties().entrySet())
+        {
+            completedTeam.getKey().addPlayersInBulk(toOfflinePlayers(completedTeam.getValue()));
+        }
+
+        // Unique names, and the least used colors first.
+        final Set<String> takenNames = new HashSet<>();
+        final Map<TeamColor, Integer> colorsUsage = new EnumMap<>(TeamColor.class);
+
+        for (TeamColor color : TeamColor.values())
+            if (color != TeamColor.RANDOM) colorsUsage.put(color, 0);
+
+        for (UHTeam team : teams)
+        {
+            takenNames.add(team.getName().toLowerCase());
+            if (team.getColor() != null) colorsUsage.merge(team.getColor(), 1, Integer::sum);
+        }
+
+        final List<TeamColor> colors = new ArrayList<>(colorsUsage.keySet());
+        colors.sort(Comparator.comparingInt(colorsUsage::get));
+
+        int teamNumber = 0;
+        for (List<UUID> members : result.getNewTeams())
+        {
+            String name;
+            do
+            {
+                /// Name of the teams created by /uh team auto. {0} = team number.
+                name = I.t("Team {0}", ++teamNumber);
+            }
+            while (!takenNames.add(name.toLowerCase()));
+
+            final TeamColor color = UHConfig.TEAMS_OPTIONS.RANDOM_COLORS.get() ? colors.get((teamNumber - 1) % colors.size()) : null;
+
+            final UHTeam team = new UHTeam(name, color);
+            team.addPlayersInBulk(toOfflinePlayers(members));
+
+            teams.add(team);
+        }
+
+        for (UUID id : players)
+        {
+            final Player player = p.getServer().getPlayer(id);
+            if (player == null) continue;
+
+            colorizePlayer(player);
+
+            if (UHConfig.BEFORE_START.TEAM_IN_ACTION_BAR.get())
+                displayTeamInActionBar(player);
+        }
+
+        updateGUIs();
+        p.getGameManager().invalidateSnapshot();
+
+        return result.getNewTeams().size();
+    }
+
+    private List<OfflinePlayer> toOfflinePlayers(List<UUID> ids)
+    {
+        final List<OfflinePlayer> players = new ArrayList<>(ids.size());
+        for (UUID id : ids)
+            players.add(OfflinePlayersLoader.getOfflinePlayer(id));
+
+        return players;
+    }
+
+    /**
+     * Loads the skill ratings of the players from the ratings file, if it exists.
+     *
+     * @return The ratings; empty if there isn't any ratings file.
+     */
+    private Map<UUID, Double> loadSkillRatings()
+    {
+        final File file = new File(p.getDataFolder(), UHConfig.TEAMS_OPTIONS.AUTO.RATINGS_FILE.get());
+        final Map<UUID, Double> ratings = new HashMap<>();
+
+        if (!file.isFile()) return ratings;
+
+        final YamlConfiguration ratingsConfig = YamlConfiguration.loadConfiguration(file);
+
+        for (String key : ratingsConfig.getKeys(false))
+        {
+            if (!ratingsConfig.isDouble(key) && !ratingsConfig.isInt(key))
+            {
+                PluginLogger.warning("Invalid rating for {0} in {1}, skipping.", key, file.getName());
+                continue;
+            }
+
+            UUID id;
+            try
+            {
+                id = UUID.fromString(key);
+            }
+            catch (IllegalArgumentException e)
+            {
+                final OfflinePlayer player = OfflinePlayersLoader.getOfflinePlayer(key);
+                if (player == null) continue;
+
+                id = player.getUniqueId();
+            }
+
+            ratings.put(id, ratingsConfig.getDouble(key));
+        }
+
+        return ratings;
+    }
+
+    /**
+     * Exports the current teams as a roster.
+     *
+     * @return The roster; the players are given by name, or by UUID if their name is unknown.
+     */
+    public TeamsRoster exportRoster()
+    {
+        final TeamsRoster roster = new TeamsRoster();
+
+        for (UHTeam team : teams)
+        {
+            final List<String> players = new ArrayList<>();
+
+            for (UUID id : team.getPlayersUUID())
+            {
+                final String name = OfflinePlayersLoader.getName(id);
+                players.add(name != null ? name : id.toString());
+            }
+
+            roster.addTeam(team.getName(), team.getColor(), players);
+        }
+
+        return roster;
+    }
+
     /**
      * Displays a chat-based GUI (using tellraw formatting) to player to select a team.
      * <p>
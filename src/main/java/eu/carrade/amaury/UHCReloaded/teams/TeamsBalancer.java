@@ -0,0 +1,221 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.teams;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+
+/**
+ * Distributes players into teams of a given size, balancing the teams by skill.
+ *
+ * <p>The parties (groups of players already together, e.g. the incomplete teams) are kept
+ * together, and are always completed if there are enough players: new teams only get the players
+ * not needed to fill them. The players are assigned from the strongest to the weakest, each one to
+ * the weakest team with a free slot. Without ratings, all players weight the same and the teams
+ * are balanced by size.</p>
+ *
+ * <p>Runs in {@code O(n log t)} for {@code n} players and {@code t} teams.</p>
+ *
+ * @param <P> The type identifying the parties.
+ */
+public class TeamsBalancer<P>
+{
+    private final int teamSize;
+    private final Map<UUID, Double> ratings;
+    private final double defaultRating;
+
+
+    /**
+     * @param teamSize The size of the teams.
+     * @param ratings The skill ratings of the players. The players without rating get the average
+     *                rating. Can be empty.
+     */
+    public TeamsBalancer(int teamSize, Map<UUID, Double> ratings)
+    {
+        if (teamSize < 1)
+            throw new IllegalArgumentException("The teams size must be positive.");
+
+        this.teamSize = teamSize;
+        this.ratings = ratings;
+        this.defaultRating = ratings.isEmpty() ? 1d : ratings.values().stream().mapToDouble(Double::doubleValue).average().orElse(1d);
+    }
+
+    /**
+     * Distributes the players.
+     *
+     * @param parties The parties to complete, with their current members. The parties already
+     *                full are ignored.
+     * @param players The players to distribute.
+     *
+     * @return The result of the distribution.
+     */
+    public Result<P> balance(Map<P, ? extends Collection<UUID>> parties, Collection<UUID> players)
+    {
+        final List<Slot<P>> slots = new ArrayList<>();
+        int freeSlots = 0;
+
+        // Weakest team first; then the smallest, to balance the sizes with equal ratings.
+        final Comparator<Slot<P>> weakestFirst = Comparator.<Slot<P>>comparingDouble(slot -> slot.rating).thenComparingInt(slot -> slot.size);
+
+        final PriorityQueue<Slot<P>> partiesQueue = new PriorityQueue<>(weakestFirst);
+        final PriorityQueue<Slot<P>> newTeamsQueue = new PriorityQueue<>(weakestFirst);
+
+        for (Map.Entry<P, ? extends Collection<UUID>> party : parties.entrySet())
+        {
+            if (party.getValue().size() >= teamSize) continue;
+
+            final Slot<P> slot = new Slot<>(party.getKey(), party.getValue().size());
+            for (UUID member : party.getValue())
+                slot.rating += getRating(member);
+
+            slots.add(slot);
+            partiesQueue.add(slot);
+            freeSlots += teamSize - slot.size;
+        }
+
+        final int newTeams = Math.max(0, (players.size() - freeSlots + teamSize - 1) / teamSize);
+        for (int i = 0; i < newTeams; i++)
+        {
+            final Slot<P> slot = new Slot<>(null, 0);
+
+            slots.add(slot);
+            newTeamsQueue.add(slot);
+        }
+
+        // Strongest players first.
+        final List<UUID> sortedPlayers = new ArrayList<>(players);
+        if (!ratings.isEmpty())
+            sortedPlayers.sort(Comparator.comparingDouble(this::getRating).reversed());
+
+        int remainingPlayers = sortedPlayers.size();
+
+        for (UUID player : sortedPlayers)
+        {
+            // The players left are reserved to the parties if they are all needed to complete them.
+            final PriorityQueue<Slot<P>> queue;
+            if (partiesQueue.isEmpty())
+                queue = newTeamsQueue;
+            else if (newTeamsQueue.isEmpty() || remainingPlayers <= freeSlots)
+                queue = partiesQueue;
+            else
+                queue = weakestFirst.compare(partiesQueue.peek(), newTeamsQueue.peek()) <= 0 ? partiesQueue : newTeamsQueue;
+
+            final Slot<P> slot = queue.poll();
+
+            slot.added.add(player);
+            slot.size++;
+            slot.rating += getRating(player);
+
+            if (slot.party != null) freeSlots--;
+            remainingPlayers--;
+
+            if (slot.size < teamSize)
+                queue.add(slot);
+        }
+
+        final Map<P, List<UUID>> completedParties = new LinkedHashMap<>();
+        final List<List<UUID>> createdTeams = new ArrayList<>();
+
+        for (Slot<P> slot : slots)
+        {
+            if (slot.added.isEmpty()) continue;
+
+            if (slot.party != null) completedParties.put(slot.party, slot.added);
+            else createdTeams.add(slot.added);
+        }
+
+        return new Result<>(completedParties, createdTeams);
+    }
+
+    private double getRating(UUID player)
+    {
+        final Double rating = ratings.get(player);
+        return rating != null ? rating : defaultRating;
+    }
+
+
+    private static final class Slot<P>
+    {
+        private final P party;
+        private final List<UUID> added = new ArrayList<>();
+
+        private int size;
+        private double rating = 0d;
+
+        private Slot(P party, int size)
+        {
+            this.party = party;
+            this.size = size;
+        }
+    }
+
+    /**
+     * The result of a distribution.
+     *
+     * @param <P> The type identifying the parties.
+     */
+    public static final class Result<P>
+    {
+        private final Map<P, List<UUID>> completedParties;
+        private final List<List<UUID>> newTeams;
+
+        private Result(Map<P, List<UUID>> completedParties, List<List<UUID>> newTeams)
+        {
+            this.completedParties = Collections.unmodifiableMap(completedParties);
+            this.newTeams = Collections.unmodifiableList(newTeams);
+        }
+
+        /**
+         * @return The players added to each party (only the completed parties are included).
+         */
+        public Map<P, List<UUID>> getCompletedParties()
+        {
+            return completedParties;
+        }
+
+        /**
+         * @return The players of each new team.
+         */
+        public List<List<UUID>> getNewTeams()
+        {
+            return newTeams;
+        }
+    }
+}
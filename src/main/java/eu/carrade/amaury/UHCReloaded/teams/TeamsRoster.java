@@ -0,0 +1,429 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.teams;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * Reads and writes teams rosters, as CSV or JSON files (the format is chosen from the extension).
+ *
+ * <p>The CSV files contain one team per line: {@code name,color,player1,player2,...}. A team can
+ * be spread across multiple lines. The color can be left empty for a random one; the players can
+ * be given by name or UUID. Empty lines, lines starting with {@code #} and a {@code name,color,...}
+ * header are ignored.</p>
+ *
+ * <p>The JSON files contain an array of teams: {@code [{"name": "...", "color": "...",
+ * "players": ["...", ...]}, ...]}.</p>
+ *
+ * <p>The files are parsed as a stream, so large rosters are read without loading the whole file.</p>
+ */
+public class TeamsRoster
+{
+    private final Map<String, Team> teams = new LinkedHashMap<>();
+
+
+    /**
+     * @return The teams of this roster, in the file order.
+     */
+    public Collection<Team> getTeams()
+    {
+        return Collections.unmodifiableCollection(teams.values());
+    }
+
+    /**
+     * @return The names (or UUIDs) of all the players of this roster.
+     */
+    public List<String> getPlayers()
+    {
+        final List<String> players = new ArrayList<>();
+        teams.values().forEach(team -> players.addAll(team.players));
+
+        return players;
+    }
+
+    /**
+     * Adds a team, or players to an existing team with the same name (case-insensitive).
+     *
+     * @param name The team's name.
+     * @param color The team's color; {@code null} for a random one.
+     * @param players The names (or UUIDs) of the players to add.
+     *
+     * @throws IllegalArgumentException if the team already exists with another color.
+     */
+    public void addTeam(String name, TeamColor color, Collection<String> players)
+    {
+        final String key = name.toLowerCase(Locale.ROOT);
+        Team team = teams.get(key);
+
+        if (team == null)
+        {
+            team = new Team(name, color);
+            teams.put(key, team);
+        }
+        else if (color != null && team.color != null && color != team.color)
+        {
+            throw new IllegalArgumentException("The team " + name + " is declared with two different colors");
+        }
+        else if (team.color == null)
+        {
+            team.color = color;
+        }
+
+        team.players.addAll(players);
+    }
+
+
+    /**
+     * Reads a roster.
+     *
+     * @param file The file (.json for a JSON file, else CSV).
+     * @return The roster.
+     *
+     * @throws IOException if the file cannot be read or is invalid; the message describes the error.
+     */
+    public static TeamsRoster read(File file) throws IOException
+    {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))
+        {
+            return isJSON(file) ? readJSON(reader) : readCSV(new BufferedReader(reader));
+        }
+    }
+
+    /**
+     * Writes a roster.
+     *
+     * @param file The file (.json for a JSON file, else CSV).
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(File file) throws IOException
+    {
+        file = file.getAbsoluteFile();
+
+        if (!file.getParentFile().exists() && !file.getParentFile().mkdirs())
+            throw new IOException("Unable to create the directory " + file.getParentFile());
+
+        // Written aside and then moved, so an existing file is never left half-written.
+        final File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)))
+        {
+            if (isJSON(file)) writeJSON(writer);
+            else writeCSV(writer);
+        }
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static boolean isJSON(File file)
+    {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(".json");
+    }
+
+
+    private static TeamsRoster readCSV(BufferedReader reader) throws IOException
+    {
+        final TeamsRoster roster = new TeamsRoster();
+
+        String line;
+        int lineNumber = 0;
+
+        while ((line = reader.readLine()) != null)
+        {
+            lineNumber++;
+
+            if (line.trim().isEmpty() || line.trim().startsWith("#"))
+                continue;
+
+            final List<String> values = splitCSVLine(line, lineNumber);
+
+            if (lineNumber == 1 && values.get(0).equalsIgnoreCase("name"))
+                continue;
+
+            try
+            {
+                roster.addTeam(
+                        values.get(0),
+                        values.size() > 1 ? parseColor(values.get(1)) : null,
+                        values.size() > 2 ? values.subList(2, values.size()) : Collections.<String>emptyList()
+                );
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new IOException("Line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+
+        return roster;
+    }
+
+    private static List<String> splitCSVLine(String line, int lineNumber) throws IOException
+    {
+        final List<String> values = new ArrayList<>();
+        final StringBuilder value = new StringBuilder();
+
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++)
+        {
+            final char c = line.charAt(i);
+
+            if (quoted)
+            {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"')
+                {
+                    value.append('"');
+                    i++;
+                }
+                else if (c == '"') quoted = false;
+                else value.append(c);
+            }
+            else if (c == '"') quoted = true;
+            else if (c == ',')
+            {
+                values.add(value.toString().trim());
+                value.setLength(0);
+            }
+            else value.append(c);
+        }
+
+        if (quoted)
+            throw new IOException("Line " + lineNumber + ": unclosed quote");
+
+        values.add(value.toString().trim());
+
+        if (values.get(0).isEmpty())
+            throw new IOException("Line " + lineNumber + ": missing team name");
+
+        // Trailing empty values (e.g. "name,color,") are not players.
+        while (values.size() > 2 && values.get(values.size() - 1).isEmpty())
+            values.remove(values.size() - 1);
+
+        return values;
+    }
+
+    private static TeamsRoster readJSON(Reader reader) throws IOException
+    {
+        final TeamsRoster roster = new TeamsRoster();
+        final JsonReader json = new JsonReader(reader);
+
+        try
+        {
+            json.beginArray();
+
+            while (json.hasNext())
+            {
+                String name = null;
+                TeamColor color = null;
+                final List<String> players = new ArrayList<>();
+
+                json.beginObject();
+
+                while (json.hasNext())
+                {
+                    final String key = json.nextName();
+
+                    if (json.peek() == JsonToken.NULL)
+                    {
+                        json.skipValue();
+                        continue;
+                    }
+
+                    switch (key)
+                    {
+                        case "name":
+                            name = json.nextString();
+                            break;
+
+                        case "color":
+                            color = parseColor(json.nextString());
+                            break;
+
+                        case "players":
+                            json.beginArray();
+                            while (json.hasNext()) players.add(json.nextString().trim());
+                            json.endArray();
+                            break;
+
+                        default:
+                            json.skipValue();
+                    }
+                }
+
+                json.endObject();
+
+                if (name == null || name.trim().isEmpty())
+                    throw new IOException("A team without name was found (" + json.toString() + ")");
+
+                roster.addTeam(name.trim(), color, players);
+            }
+
+            json.endArray();
+        }
+        catch (IllegalStateException | IllegalArgumentException e)
+        {
+            throw new IOException(e.getMessage(), e);
+        }
+
+        return roster;
+    }
+
+    private static TeamColor parseColor(String value)
+    {
+        if (value == null || value.trim().isEmpty())
+            return null;
+
+        final TeamColor color = TeamColor.fromString(value.trim());
+        if (color == null)
+            throw new IllegalArgumentException("Invalid team color: " + value);
+
+        return color == TeamColor.RANDOM ? null : color;
+    }
+
+
+    private void writeCSV(Writer writer) throws IOException
+    {
+        writer.write("name,color,players...\n");
+
+        for (Team team : teams.values())
+        {
+            writer.write(escapeCSV(team.name));
+            writer.write(',');
+            writer.write(team.color != null ? team.color.name().toLowerCase(Locale.ROOT) : "");
+
+            for (String player : team.players)
+            {
+                writer.write(',');
+                writer.write(escapeCSV(player));
+            }
+
+            writer.write('\n');
+        }
+    }
+
+    private static String escapeCSV(String value)
+    {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.trim().equals(value))
+            return value;
+
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private void writeJSON(Writer writer) throws IOException
+    {
+        final JsonWriter json = new JsonWriter(writer);
+        json.setIndent("    ");
+
+        json.beginArray();
+
+        for (Team team : teams.values())
+        {
+            json.beginObject();
+            json.name("name").value(team.name);
+            json.name("color").value(team.color != null ? team.color.name().toLowerCase(Locale.ROOT) : null);
+
+            json.name("players").beginArray();
+            for (String player : team.players) json.value(player);
+            json.endArray();
+
+            json.endObject();
+        }
+
+        json.endArray();
+        json.flush();
+    }
+
+
+    /**
+     * A team of a roster.
+     */
+    public static final class Team
+    {
+        private final String name;
+        private TeamColor color;
+        private final List<String> players = new ArrayList<>();
+
+        private Team(String name, TeamColor color)
+        {
+            this.name = name;
+            this.color = color;
+        }
+
+        /**
+         * @return The name of the team.
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * @return The color of the team; {@code null} for a random one.
+         */
+        public TeamColor getColor()
+        {
+            return color;
+        }
+
+        /**
+         * @return The names (or UUIDs) of the players.
+         */
+        public List<String> getPlayers()
+        {
+            return Collections.unmodifiableList(players);
+        }
+    }
+}
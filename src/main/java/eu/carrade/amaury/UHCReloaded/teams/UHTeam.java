@@ -53,6 +53,7 @@ import org.bukkit.inventory.meta.BannerMeta;
 import org.bukkit.scoreboard.Scoreboard;
 import org.bukkit.scoreboard.Team;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Objects;
@@ -79,6 +80,11 @@ public class UHTeam
 
     private HashSet<UUID> players = new HashSet<>();
 
+    // Cached members views, rebuilt when the members or the online players change.
+    private static volatile int onlinePlayersVersion = 0;
+    private volatile int membersVersion = 0;
+    private volatile MembersViews views = null;
+
 
     public UHTeam(String name, TeamColor color)
     {
@@ -143,6 +149,7 @@ public class UHTeam
         updateDefaultBanner();
 
         plugin.getTeamManager().updateGUIs();
+        plugin.getGameManager().invalidateSnapshot();
 
         for (Player player : getOnlinePlayers())
         {
@@ -182,79 +189,129 @@ public class UHTeam
     /**
      * Returns the players inside this team.
      *
-     * @return The players.
+     * @return The players (unmodifiable).
      */
     public Set<OfflinePlayer> getPlayers()
     {
-        final Set<OfflinePlayer> playersList = new HashSet<>();
+        final MembersViews views = getViews();
 
-        for (UUID id : players)
+        if (views.players == null)
         {
-            final Player player = plugin.getServer().getPlayer(id);
-            if (player != null)
-            {
-                playersList.add(player);
-            }
-            else
+            final Set<OfflinePlayer> playersList = new HashSet<>();
+
+            for (UUID id : views.playersUUID)
             {
-                playersList.add(plugin.getServer().getOfflinePlayer(id));
+                final Player player = plugin.getServer().getPlayer(id);
+                if (player != null)
+                {
+                    playersList.add(player);
+                }
+                else
+                {
+                    playersList.add(plugin.getServer().getOfflinePlayer(id));
+                }
             }
+
+            views.players = Collections.unmodifiableSet(playersList);
         }
 
-        return playersList;
+        return views.players;
     }
 
     /**
      * Returns the online players inside this team.
      *
-     * @return The online players.
+     * @return The online players (unmodifiable).
      */
     public Set<Player> getOnlinePlayers()
     {
-        HashSet<Player> playersList = new HashSet<>();
+        final MembersViews views = getViews();
 
-        for (UUID id : players)
-        {
-            Player player = plugin.getServer().getPlayer(id);
-            if (player != null && player.isOnline())
-            {
-                playersList.add(player);
-            }
-        }
+        if (views.onlinePlayers == null)
+            buildOnlineViews(views);
 
-        return playersList;
+        return views.onlinePlayers;
     }
 
     /**
      * Returns the UUIDs of the players inside this team.
      *
-     * @return The UUIDs of the players.
+     * @return The UUIDs of the players (unmodifiable snapshot, replaced when the members change).
      */
-    @SuppressWarnings ("unchecked")
     public Set<UUID> getPlayersUUID()
     {
-        return Collections.unmodifiableSet(players);
+        return getViews().playersUUID;
     }
 
     /**
      * Returns the UUIDs of the online players inside this team.
      *
-     * @return The UUID of the online players.
+     * @return The UUID of the online players (unmodifiable).
      */
     public Set<UUID> getOnlinePlayersUUID()
     {
-        HashSet<UUID> playersList = new HashSet<>();
+        final MembersViews views = getViews();
+
+        if (views.onlinePlayersUUID == null)
+            buildOnlineViews(views);
+
+        return views.onlinePlayersUUID;
+    }
 
-        for (UUID id : players)
+    /**
+     * Returns the cached views of the members, rebuilt if the members or the online players
+     * changed since they were built.
+     *
+     * @return The views.
+     */
+    private MembersViews getViews()
+    {
+        final MembersViews current = views;
+
+        if (current != null && current.membersVersion == membersVersion && current.onlinePlayersVersion == onlinePlayersVersion)
+            return current;
+
+        final MembersViews newViews = new MembersViews(membersVersion, onlinePlayersVersion, Collections.unmodifiableSet(new HashSet<>(players)));
+        views = newViews;
+
+        return newViews;
+    }
+
+    private void buildOnlineViews(MembersViews views)
+    {
+        final Set<Player> playersList = new HashSet<>();
+        final Set<UUID> playersUUIDList = new HashSet<>();
+
+        for (UUID id : views.playersUUID)
         {
-            Player player = plugin.getServer().getPlayer(id);
+            final Player player = plugin.getServer().getPlayer(id);
             if (player != null && player.isOnline())
             {
-                playersList.add(id);
+                playersList.add(player);
+                playersUUIDList.add(id);
             }
         }
 
-        return playersList;
+        views.onlinePlayersUUID = Collections.unmodifiableSet(playersUUIDList);
+        views.onlinePlayers = Collections.unmodifiableSet(playersList);
+    }
+
+    /**
+     * Invalidates the cached views of the members, after a change of the members.
+     */
+    private void invalidateViews()
+    {
+        membersVersion++;
+        views = null;
+    }
+
+    /**
+     * Invalidates the cached online members views of all the teams. To be called when a player
+     * logs in or out.
+     */
+    public static void invalidateOnlineViews()
+    {
+        onlinePlayersVersion++;
     }
 
     /**
@@ -316,11 +373,13 @@ public class UHTeam
         plugin.getTeamManager().removePlayerFromTeam(player, true);
 
         players.add(player.getUniqueId());
+        invalidateViews();
         plugin.getScoreboardManager().getScoreboard().getTeam(this.internalName).addPlayer(player);
 
         plugin.getTeamManager().colorizePlayer(player);
 
         plugin.getTeamManager().updateGUIs();
+        plugin.getGameManager().invalidateSnapshot();
 
         if (player.isOnline())
         {
@@ -332,6 +391,28 @@ public class UHTeam
         }
     }
 
+    /**
+     * Adds players inside this team, without any notification or check. The players must not be
+     * in another team, and the caller is responsible of the colorization of the players and the
+     * update of the GUIs and game state.
+     *
+     * Internal use for bulk imports.
+     *
+     * @param newPlayers The players to add.
+     */
+    void addPlayersInBulk(Collection<OfflinePlayer> newPlayers)
+    {
+        final Team scoreboardTeam = plugin.getScoreboardManager().getScoreboard().getTeam(this.internalName);
+
+        for (OfflinePlayer player : newPlayers)
+        {
+            players.add(player.getUniqueId());
+            scoreboardTeam.addPlayer(player);
+        }
+
+        invalidateViews();
+    }
+
     /**
      * Removes a player from this team.
      *
@@ -357,9 +438,11 @@ public class UHTeam
         Validate.notNull(player, "The player cannot be null.");
 
         players.remove(player.getUniqueId());
+        invalidateViews();
         unregisterPlayer(player, silent);
 
         plugin.getTeamManager().updateGUIs();
+        plugin.getGameManager().invalidateSnapshot();
     }
 
     /**
@@ -396,6 +479,7 @@ public class UHTeam
         players.forEach(id -> unregisterPlayer(plugin.getServer().getOfflinePlayer(id), false));
 
         players.clear();
+        invalidateViews();
 
         // Then the scoreboard team is deleted.
         plugin.getScoreboardManager().getScoreboard().getTeam(this.internalName).unregister();
@@ -494,6 +578,7 @@ public class UHTeam
         updateDefaultBanner();
 
         plugin.getTeamManager().updateGUIs();
+        plugin.getGameManager().invalidateSnapshot();
     }
 
 
@@ -621,4 +706,27 @@ public class UHTeam
         final UHTeam other = (UHTeam) obj;
         return name == null ? other.name == null : name.equals(other.name);
     }
+
+
+    /**
+     * The cached views of the members. The online views are built lazily.
+     */
+    private static final class MembersViews
+    {
+        private final int membersVersion;
+        private final int onlinePlayersVersion;
+
+        private final Set<UUID> playersUUID;
+
+        private volatile Set<OfflinePlayer> players = null;
+        private volatile Set<Player> onlinePlayers = null;
+        private volatile Set<UUID> onlinePlayersUUID = null;
+
+        private MembersViews(int membersVersion, int onlinePlayersVersion, Set<UUID> playersUUID)
+        {
+            this.membersVersion = membersVersion;
+            this.onlinePlayersVersion = onlinePlayersVersion;
+            this.playersUUID = playersUUID;
+        }
+    }
 }
@@ -32,16 +32,37 @@
 
 package eu.carrade.amaury.UHCReloaded.timers;
 
+import eu.carrade.amaury.UHCReloaded.UHCReloaded;
+import eu.carrade.amaury.UHCReloaded.UHConfigSnapshot;
+import eu.carrade.amaury.UHCReloaded.borders.BorderManager;
+import eu.carrade.amaury.UHCReloaded.borders.worldborders.BorderAnimation;
+import eu.carrade.amaury.UHCReloaded.borders.worldborders.WorldBorder;
+import eu.carrade.amaury.UHCReloaded.events.TimerEndsEvent;
+import eu.carrade.amaury.UHCReloaded.game.UHGameManager;
+import eu.carrade.amaury.UHCReloaded.teams.UHTeam;
+import fr.zcraft.zlib.tools.PluginLogger;
+import fr.zcraft.zlib.tools.runners.RunAsyncTask;
+import org.bukkit.Bukkit;
+
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
 
 
 public class TimerManager
 {
+    private static final long SAVE_DELAY = TimeUnit.SECONDS.toNanos(1);
+    private static final long SAVE_INTERVAL_WHILE_RUNNING = TimeUnit.SECONDS.toNanos(30);
+
     private Map<String, UHTimer> timers = new ConcurrentHashMap<>();
     private UHTimer mainTimer = null;
 
@@ -57,16 +78,40 @@ public class TimerManager
      */
     private Set<UHTimer> timersToResume = new CopyOnWriteArraySet<>();
 
+    /**
+     * The deadlines of the running timers.
+     */
+    private final TimerWheel wheel = new TimerWheel(UHTimer::onDeadline);
+
+    /**
+     * The file the timers are saved into, to be restored after a restart.
+     */
+    private final TimersStore store = new TimersStore(new File(UHCReloaded.get().getDataFolder(), "timers.dat"));
+
+    private boolean dirty = false;
+    private long lastSave = System.nanoTime();
+
 
     /**
      * Registers the main timer, used to display the episodes countdown.
+     * <p>
+     * The previous main timer, if any, is silently unregistered: as all the main timers share
+     * the same name, it would be taken for the new one when up.
      *
      * @param timer The timer.
      */
     public void registerMainTimer(UHTimer timer)
     {
+        if (mainTimer != null && mainTimer != timer)
+        {
+            runningTimers.remove(mainTimer.getName());
+            wheel.cancel(mainTimer);
+            mainTimer.setRegistered(false);
+        }
+
         this.mainTimer = timer;
         timer.setRegistered(true);
+        markDirty();
     }
 
     /**
@@ -79,6 +124,23 @@ public class TimerManager
         return this.mainTimer;
     }
 
+    /**
+     * Called after a reload of the configuration, to apply the new episodes length.
+     * <p>
+     * A running episode is not altered: the new length is used from the next one (see the
+     * {@link TimerEndsEvent} handler restarting the main timer).
+     *
+     * @param config The new configuration.
+     */
+    public void onConfigurationReloaded(UHConfigSnapshot config)
+    {
+        if (mainTimer != null && !mainTimer.isRunning())
+        {
+            mainTimer.setDuration(config.getEpisodeLength());
+            markDirty();
+        }
+    }
+
     /**
      * Registers a timer.
      *
@@ -95,6 +157,7 @@ public class TimerManager
         timers.put(timer.getName(), timer);
 
         timer.setRegistered(true);
+        markDirty();
     }
 
     /**
@@ -108,16 +171,21 @@ public class TimerManager
     {
         timers.remove(timer.getName());
         runningTimers.remove(timer.getName());
+        wheel.cancel(timer);
 
         timer.setRegistered(false);
+        markDirty();
     }
 
     /**
      * Updates the internal list of started timers.
+     * <p>
+     * This list is kept up-to-date when the timers are started or stopped, so this is only
+     * needed if the timers were altered outside of their normal lifecycle.
      */
     public void updateStartedTimersList()
     {
-        runningTimers = new HashMap<>();
+        runningTimers.clear();
 
         if (getMainTimer() != null && getMainTimer().isRunning())
         {
@@ -129,6 +197,217 @@ public class TimerManager
                 .forEach(timer -> runningTimers.put(timer.getName(), timer));
     }
 
+    /**
+     * Advances the timers up to now, ending the timers that are up.
+     * <p>
+     * Called every tick; only the timers reaching their deadline are processed.
+     */
+    public void tick()
+    {
+        final long now = System.nanoTime();
+
+        wheel.advance(now);
+
+        // Changes are saved (at most once per second), and the running timers are saved
+        // periodically, so a crash loses at most a few seconds.
+        if ((dirty && now - lastSave >= SAVE_DELAY) || (!runningTimers.isEmpty() && now - lastSave >= SAVE_INTERVAL_WHILE_RUNNING))
+        {
+            saveTimers(false);
+        }
+    }
+
+    /**
+     * Marks the timers, or the saved game state, as changed, so they will be saved soon.
+     */
+    public void markDirty()
+    {
+        dirty = true;
+    }
+
+    /**
+     * Saves the state of the running game and of all the timers, to be restored after a
+     * restart. If no game is running, the saved state is deleted.
+     * <p>
+     * The state is captured immediately; the file is written in another thread, unless
+     * {@code synchronously} is set (e.g. when the plugin is disabled).
+     *
+     * @param synchronously {@code true} to write the file before returning.
+     */
+    public void saveTimers(boolean synchronously)
+    {
+        final TimersStore.State state = captureState();
+
+        if (synchronously)
+            store.write(state);
+        else
+            RunAsyncTask.nextTick(() -> store.write(state));
+
+        dirty = false;
+        lastSave = System.nanoTime();
+    }
+
+    /**
+     * Deletes the saved state. Called when a game starts or ends, so the timers of a previous
+     * game are never restored.
+     */
+    public void discardSavedTimers()
+    {
+        store.delete();
+    }
+
+    /**
+     * @return The current state of the game and of the timers.
+     */
+    private TimersStore.State captureState()
+    {
+        final UHGameManager gameManager = UHCReloaded.get().getGameManager();
+
+        if (!gameManager.isGameRunning())
+            return new TimersStore.State(store.nextSequence(), null, null, new ArrayList<>());
+
+        final List<TimersStore.SavedTimer> savedTimers = new ArrayList<>();
+        final Map<UUID, String> alivePlayers = new HashMap<>();
+
+        if (mainTimer != null) savedTimers.add(captureTimer(mainTimer, true));
+        for (UHTimer timer : timers.values())
+            savedTimers.add(captureTimer(timer, false));
+
+        for (UUID alivePlayer : gameManager.getAlivePlayersUUID())
+            alivePlayers.put(alivePlayer, "");
+
+        for (UHTeam team : UHCReloaded.get().getTeamManager().getTeams())
+            for (UUID player : team.getPlayersUUID())
+                if (alivePlayers.containsKey(player))
+                    alivePlayers.put(player, team.getName());
+
+        final TimersStore.SavedGame game = new TimersStore.SavedGame(
+                gameManager.getEpisode(), gameManager.isGameWithTeams(), alivePlayers, new HashSet<>(gameManager.getStartupSpectatorsUUID()),
+                gameManager.getGracePeriodLeft(), gameManager.getPeacePeriodLeft(), gameManager.getSurfaceMobsFreePeriodLeft()
+        );
+
+        return new TimersStore.State(store.nextSequence(), game, captureBorder(), savedTimers);
+    }
+
+    private static TimersStore.SavedBorder captureBorder()
+    {
+        final BorderManager borderManager = UHCReloaded.get().getBorderManager();
+        final WorldBorder border = borderManager.getBorderProxy();
+        final BorderAnimation animation = border.getAnimation();
+
+        final boolean warning = borderManager.isWarningEnabled();
+        final UUID warningSenderId = warning ? borderManager.getWarningSenderId() : null;
+
+        return new TimersStore.SavedBorder(
+                border.getDiameter(),
+                animation != null ? animation.getEndDiameter() : border.getDiameter(),
+                animation != null ? animation.getTimeLeft() : 0L,
+                warning, borderManager.getWarningSize(),
+                warning && warningSenderId == null && borderManager.getWarningSender() != null,
+                warningSenderId
+        );
+    }
+
+    private static TimersStore.SavedTimer captureTimer(UHTimer timer, boolean main)
+    {
+        return new TimersStore.SavedTimer(
+                timer.getName(), main, timer.getDuration(),
+                timer.isRunning() ? TimeUnit.NANOSECONDS.toMillis(timer.getElapsedTime()) : 0L,
+                timer.isRunning(), timer.isPaused(), timer.isDisplayed()
+        );
+    }
+
+    /**
+     * Resumes the game running before a restart, if any, with its timers and the episode they
+     * were aligned with, the border (diameter, running shrinking and warning), and the game
+     * state restored by {@link UHGameManager#restoreRunningGame(int, boolean, Map, Set, long, long, long)}.
+     * <p>
+     * A warning sent by a non-player sender is restored as sent by the console.
+     */
+    public void restoreTimers()
+    {
+        final TimersStore.State state = store.read();
+
+        if (state == null || state.game == null)
+        {
+            store.delete();
+            return;
+        }
+
+        for (TimersStore.SavedTimer saved : state.timers)
+        {
+            if (saved.main ? mainTimer != null : getTimer(saved.name) != null)
+                continue;
+
+            final UHTimer timer = new UHTimer(saved.name);
+            timer.restore(saved.duration, TimeUnit.MILLISECONDS.toNanos(saved.elapsed), saved.running, saved.paused, saved.displayed);
+
+            if (saved.main) registerMainTimer(timer);
+            else registerTimer(timer);
+        }
+
+        final BorderManager borderManager = UHCReloaded.get().getBorderManager();
+        final TimersStore.SavedBorder border = state.border;
+
+        borderManager.restoreBorder(border.diameter, border.targetDiameter, border.shrinkTimeLeft);
+
+        if (border.warning)
+            borderManager.restoreWarning(border.warningSize, border.warningFromConsole ? Bukkit.getConsoleSender() : null, border.warningSenderId);
+
+        final TimersStore.SavedGame game = state.game;
+        UHCReloaded.get().getGameManager().restoreRunningGame(
+                game.episode, game.withTeams, game.alivePlayers, game.spectators,
+                game.gracePeriodLeft, game.peacePeriodLeft, game.surfaceMobsFreePeriodLeft
+        );
+
+        PluginLogger.info("Resumed the game running before the restart, with {0} timer(s).", state.timers.size());
+    }
+
+    /**
+     * Adds a registered timer to the list of running timers.
+     *
+     * @param timer The started timer.
+     */
+    void timerStarted(UHTimer timer)
+    {
+        runningTimers.put(timer.getName(), timer);
+        markDirty();
+    }
+
+    /**
+     * Removes a registered timer from the list of running timers.
+     *
+     * @param timer The stopped timer.
+     */
+    void timerStopped(UHTimer timer)
+    {
+        runningTimers.remove(timer.getName());
+        wheel.cancel(timer);
+        markDirty();
+    }
+
+    /**
+     * Schedules the deadline of a running timer.
+     *
+     * @param timer    The timer.
+     * @param deadline The deadline, as a {@link System#nanoTime()} timestamp.
+     */
+    void scheduleDeadline(UHTimer timer, long deadline)
+    {
+        wheel.schedule(timer, deadline);
+        markDirty();
+    }
+
+    /**
+     * Removes the deadline of a timer (if paused, as example).
+     *
+     * @param timer The timer.
+     */
+    void cancelDeadline(UHTimer timer)
+    {
+        wheel.cancel(timer);
+        markDirty();
+    }
+
     /**
      * Returns a timer by his name.
      *
@@ -0,0 +1,193 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.timers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+
+/**
+ * A hierarchical timing wheel, scheduling the deadlines of the timers on the monotonic clock
+ * ({@link System#nanoTime()}).
+ *
+ * <p>The resolution is one server tick (50 ms). Four levels of 64 slots are used, so deadlines up
+ * to ~233 hours are scheduled in constant time; farther deadlines are re-scheduled when the last
+ * level cascades. Advancing the wheel costs nothing for the timers not due.</p>
+ */
+public class TimerWheel
+{
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final List<Set<UHTimer>> slots = new ArrayList<>(SLOTS * LEVELS);
+    private final Map<UHTimer, Set<UHTimer>> positions = new IdentityHashMap<>();
+    private final Map<UHTimer, Long> deadlines = new IdentityHashMap<>();
+
+    private final Consumer<UHTimer> onDeadline;
+
+    private final long origin = System.nanoTime();
+    private long currentTick = 0L;
+
+
+    /**
+     * @param onDeadline Called with the timer when its deadline is reached.
+     */
+    public TimerWheel(Consumer<UHTimer> onDeadline)
+    {
+        this.onDeadline = onDeadline;
+
+        for (int i = 0; i < SLOTS * LEVELS; i++)
+        {
+            slots.add(Collections.newSetFromMap(new IdentityHashMap<>()));
+        }
+    }
+
+    /**
+     * Schedules the deadline of a timer. A previous deadline of this timer is replaced.
+     *
+     * @param timer    The timer.
+     * @param deadline The deadline, as a {@link System#nanoTime()} timestamp.
+     */
+    public void schedule(UHTimer timer, long deadline)
+    {
+        cancel(timer);
+
+        // Rounded up, so the deadline is never fired early; and never in a slot already processed.
+        final long tick = Math.max(Math.floorDiv(deadline - origin + TICK - 1, TICK), currentTick + 1);
+
+        deadlines.put(timer, tick);
+        place(timer, tick);
+    }
+
+    /**
+     * Removes the deadline of a timer, if scheduled.
+     *
+     * @param timer The timer.
+     */
+    public void cancel(UHTimer timer)
+    {
+        final Set<UHTimer> slot = positions.remove(timer);
+        if (slot != null) slot.remove(timer);
+
+        deadlines.remove(timer);
+    }
+
+    /**
+     * @param timer The timer.
+     * @return {@code true} if a deadline is scheduled for this timer.
+     */
+    public boolean isScheduled(UHTimer timer)
+    {
+        return deadlines.containsKey(timer);
+    }
+
+    /**
+     * Advances the wheel up to the given time, firing the deadlines reached.
+     *
+     * @param now A {@link System#nanoTime()} timestamp.
+     */
+    public void advance(long now)
+    {
+        final long target = Math.floorDiv(now - origin, TICK);
+
+        while (currentTick < target)
+        {
+            currentTick++;
+
+            // Cascades the upper levels when a lower level completes a turn.
+            for (int level = LEVELS - 1; level > 0; level--)
+            {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0)
+                {
+                    cascade(level);
+                }
+            }
+
+            final Set<UHTimer> slot = slots.get((int) (currentTick & SLOT_MASK));
+            if (slot.isEmpty()) continue;
+
+            final List<UHTimer> due = new ArrayList<>(slot);
+            slot.clear();
+
+            for (UHTimer timer : due)
+            {
+                positions.remove(timer);
+                deadlines.remove(timer);
+
+                onDeadline.accept(timer);
+            }
+        }
+    }
+
+    private void cascade(int level)
+    {
+        final Set<UHTimer> slot = slots.get(level * SLOTS + (int) ((currentTick >> (SLOT_BITS * level)) & SLOT_MASK));
+        if (slot.isEmpty()) return;
+
+        final List<UHTimer> timers = new ArrayList<>(slot);
+        slot.clear();
+
+        for (UHTimer timer : timers)
+        {
+            place(timer, deadlines.get(timer));
+        }
+    }
+
+    private void place(UHTimer timer, long tick)
+    {
+        final long delta = tick - currentTick;
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1)))
+        {
+            level++;
+        }
+
+        // Beyond the wheel: stored in the farthest slot, and re-placed when it cascades.
+        final long slotTick = delta < 1L << (SLOT_BITS * LEVELS) ? tick : currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+
+        final Set<UHTimer> slot = slots.get(level * SLOTS + (int) ((slotTick >> (SLOT_BITS * level)) & SLOT_MASK));
+
+        slot.add(timer);
+        positions.put(timer, slot);
+    }
+}
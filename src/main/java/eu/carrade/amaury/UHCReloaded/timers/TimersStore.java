@@ -0,0 +1,409 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.timers;
+
+import fr.zcraft.zlib.tools.PluginLogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Saves the state of the running game and of its timers to a compact binary file, and restores
+ * it.
+ *
+ * <p>For each timer, the duration, the elapsed time (pauses excluded), the running, paused and
+ * displayed states are stored, and if it is the main timer. The current episode, the alive
+ * players and their teams, the startup spectators and the time left in the grace, peace and
+ * surface-mobs-free periods are stored too, so the game can be resumed with its timers; and so
+ * are the border diameter, its running shrinking, and the warning sent about the next border.</p>
+ *
+ * <p>The time the server was down is not counted: the timers, periods and border shrinking are
+ * restored as they were when saved, like if the game was paused meanwhile.</p>
+ *
+ * <p>The state is captured on the main thread (see {@link State}), and can be written from any
+ * thread: a state older than the last one written is ignored.</p>
+ */
+public class TimersStore
+{
+    private static final int MAGIC = 0x55485444; // "UHTD"
+    private static final byte VERSION = 3;
+
+    private final File file;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private long lastWritten = -1L;
+
+
+    /**
+     * @param file The file the timers are stored into.
+     */
+    public TimersStore(File file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * @return The sequence number of the next captured state.
+     */
+    long nextSequence()
+    {
+        return sequence.getAndIncrement();
+    }
+
+    /**
+     * Writes a captured state into the file. The file is replaced atomically, so a crash while
+     * saving cannot corrupt the previous save.
+     *
+     * <p>If no game is running in this state, the file is deleted instead, as there is nothing
+     * to resume.</p>
+     *
+     * @param state The state.
+     */
+    public synchronized void write(State state)
+    {
+        if (state.sequence < lastWritten) return;
+        lastWritten = state.sequence;
+
+        if (state.game == null)
+        {
+            deleteFile();
+            return;
+        }
+
+        final File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try
+        {
+            if (!file.getParentFile().exists() && !file.getParentFile().mkdirs())
+                throw new IOException("Unable to create the directory " + file.getParentFile());
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+            {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+
+                final SavedGame game = state.game;
+
+                out.writeInt(game.episode);
+                out.writeBoolean(game.withTeams);
+
+                out.writeInt(game.alivePlayers.size());
+                for (Map.Entry<UUID, String> alivePlayer : game.alivePlayers.entrySet())
+                {
+                    writeUUID(out, alivePlayer.getKey());
+                    out.writeUTF(alivePlayer.getValue());
+                }
+
+                out.writeInt(game.spectators.size());
+                for (UUID spectator : game.spectators)
+                {
+                    writeUUID(out, spectator);
+                }
+
+                out.writeLong(game.gracePeriodLeft);
+                out.writeLong(game.peacePeriodLeft);
+                out.writeLong(game.surfaceMobsFreePeriodLeft);
+
+                final SavedBorder border = state.border;
+
+                out.writeDouble(border.diameter);
+                out.writeDouble(border.targetDiameter);
+                out.writeLong(border.shrinkTimeLeft);
+                out.writeBoolean(border.warning);
+                out.writeInt(border.warningSize);
+                out.writeBoolean(border.warningFromConsole);
+                out.writeBoolean(border.warningSenderId != null);
+                if (border.warningSenderId != null)
+                    writeUUID(out, border.warningSenderId);
+
+                out.writeInt(state.timers.size());
+                for (SavedTimer timer : state.timers)
+                {
+                    out.writeUTF(timer.name);
+                    out.writeBoolean(timer.main);
+                    out.writeInt(timer.duration);
+                    out.writeLong(timer.elapsed);
+                    out.writeBoolean(timer.running);
+                    out.writeBoolean(timer.paused);
+                    out.writeBoolean(timer.displayed);
+                }
+            }
+
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            PluginLogger.error("Unable to save the timers to {0}", e, file.getName());
+        }
+    }
+
+    private static void writeUUID(DataOutputStream out, UUID id) throws IOException
+    {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID readUUID(DataInputStream in) throws IOException
+    {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    /**
+     * Deletes the saved state, and ignores the states captured before.
+     */
+    public synchronized void delete()
+    {
+        lastWritten = sequence.getAndIncrement();
+        deleteFile();
+    }
+
+    private void deleteFile()
+    {
+        if (file.exists() && !file.delete())
+            PluginLogger.warning("Unable to delete the timers file {0}.", file.getName());
+    }
+
+    /**
+     * Reads the state saved in the file.
+     *
+     * @return The saved state, or {@code null} if there isn't any saved state or if it cannot be
+     * read.
+     */
+    public synchronized State read()
+    {
+        if (!file.exists()) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION)
+            {
+                PluginLogger.warning("Ignoring the timers file {0}: unknown format.", file.getName());
+                return null;
+            }
+
+            final int episode = in.readInt();
+            final boolean withTeams = in.readBoolean();
+
+            final int alivePlayersCount = in.readInt();
+            final Map<UUID, String> alivePlayers = new HashMap<>();
+            for (int i = 0; i < alivePlayersCount; i++)
+            {
+                alivePlayers.put(readUUID(in), in.readUTF());
+            }
+
+            final int spectatorsCount = in.readInt();
+            final Set<UUID> spectators = new HashSet<>();
+            for (int i = 0; i < spectatorsCount; i++)
+            {
+                spectators.add(readUUID(in));
+            }
+
+            final SavedGame game = new SavedGame(episode, withTeams, alivePlayers, spectators, in.readLong(), in.readLong(), in.readLong());
+
+            final double diameter = in.readDouble();
+            final double targetDiameter = in.readDouble();
+            final long shrinkTimeLeft = in.readLong();
+            final boolean warning = in.readBoolean();
+            final int warningSize = in.readInt();
+            final boolean warningFromConsole = in.readBoolean();
+            final UUID warningSenderId = in.readBoolean() ? readUUID(in) : null;
+
+            final SavedBorder border = new SavedBorder(diameter, targetDiameter, shrinkTimeLeft, warning, warningSize, warningFromConsole, warningSenderId);
+
+            final int timersCount = in.readInt();
+            final List<SavedTimer> timers = new ArrayList<>(timersCount);
+            for (int i = 0; i < timersCount; i++)
+            {
+                timers.add(new SavedTimer(in.readUTF(), in.readBoolean(), in.readInt(), in.readLong(), in.readBoolean(), in.readBoolean(), in.readBoolean()));
+            }
+
+            return new State(-1L, game, border, timers);
+        }
+        catch (IOException e)
+        {
+            PluginLogger.error("Unable to restore the timers from {0}", e, file.getName());
+            return null;
+        }
+    }
+
+
+    /**
+     * An immutable state of the game and its timers, captured on the main thread.
+     */
+    public static final class State
+    {
+        private final long sequence;
+
+        final SavedGame game;
+        final SavedBorder border;
+        final List<SavedTimer> timers;
+
+        /**
+         * @param sequence The sequence number of this state, from {@link #nextSequence()}.
+         * @param game     The state of the running game, or {@code null} if no game is running.
+         * @param border   The state of the border; ignored if no game is running.
+         * @param timers   The timers, the main one included.
+         */
+        State(long sequence, SavedGame game, SavedBorder border, List<SavedTimer> timers)
+        {
+            this.sequence = sequence;
+            this.game = game;
+            this.border = border;
+            this.timers = Collections.unmodifiableList(timers);
+        }
+    }
+
+    /**
+     * The state of the running game.
+     */
+    static final class SavedGame
+    {
+        final int episode;
+        final boolean withTeams;
+        final Map<UUID, String> alivePlayers;
+        final Set<UUID> spectators;
+        final long gracePeriodLeft;
+        final long peacePeriodLeft;
+        final long surfaceMobsFreePeriodLeft;
+
+        /**
+         * @param episode                   The current episode.
+         * @param withTeams                 {@code true} if the game is played with teams.
+         * @param alivePlayers              The alive players, with the name of their team (empty
+         *                                  if none).
+         * @param spectators                The startup spectators.
+         * @param gracePeriodLeft           The time left in the grace period, in milliseconds.
+         * @param peacePeriodLeft           The time left in the peace period, in milliseconds.
+         * @param surfaceMobsFreePeriodLeft The time left before the mobs can spawn on the surface,
+         *                                  in milliseconds.
+         */
+        SavedGame(int episode, boolean withTeams, Map<UUID, String> alivePlayers, Set<UUID> spectators, long gracePeriodLeft, long peacePeriodLeft, long surfaceMobsFreePeriodLeft)
+        {
+            this.episode = episode;
+            this.withTeams = withTeams;
+            this.alivePlayers = Collections.unmodifiableMap(alivePlayers);
+            this.spectators = Collections.unmodifiableSet(spectators);
+            this.gracePeriodLeft = gracePeriodLeft;
+            this.peacePeriodLeft = peacePeriodLeft;
+            this.surfaceMobsFreePeriodLeft = surfaceMobsFreePeriodLeft;
+        }
+    }
+
+    /**
+     * The state of the border: its diameter, its running shrinking, and the warning about the
+     * next border.
+     */
+    static final class SavedBorder
+    {
+        final double diameter;
+        final double targetDiameter;
+        final long shrinkTimeLeft;
+        final boolean warning;
+        final int warningSize;
+        final boolean warningFromConsole;
+        final UUID warningSenderId;
+
+        /**
+         * @param diameter           The current diameter.
+         * @param targetDiameter     The diameter at the end of the shrinking.
+         * @param shrinkTimeLeft     The time left before the end of the shrinking, in
+         *                           milliseconds; zero if the border is not shrinking.
+         * @param warning            {@code true} if the players out of the future border are warned.
+         * @param warningSize        The diameter of the future border.
+         * @param warningFromConsole {@code true} if the warning was sent by the console (or
+         *                           another non-player sender).
+         * @param warningSenderId    The UUID of the player who sent the warning, or {@code null}.
+         */
+        SavedBorder(double diameter, double targetDiameter, long shrinkTimeLeft, boolean warning, int warningSize, boolean warningFromConsole, UUID warningSenderId)
+        {
+            this.diameter = diameter;
+            this.targetDiameter = targetDiameter;
+            this.shrinkTimeLeft = shrinkTimeLeft;
+            this.warning = warning;
+            this.warningSize = warningSize;
+            this.warningFromConsole = warningFromConsole;
+            this.warningSenderId = warningSenderId;
+        }
+    }
+
+    /**
+     * The state of a timer.
+     */
+    static final class SavedTimer
+    {
+        final String name;
+        final boolean main;
+        final int duration;
+        final long elapsed;
+        final boolean running;
+        final boolean paused;
+        final boolean displayed;
+
+        /**
+         * @param name      The name of the timer.
+         * @param main      {@code true} for the main timer.
+         * @param duration  The duration, in seconds.
+         * @param elapsed   The time elapsed since the start (pauses excluded), in milliseconds.
+         * @param running   {@code true} if the timer was running.
+         * @param paused    {@code true} if the timer was paused.
+         * @param displayed {@code true} if the timer was displayed.
+         */
+        SavedTimer(String name, boolean main, int duration, long elapsed, boolean running, boolean paused, boolean displayed)
+        {
+            this.name = name;
+            this.main = main;
+            this.duration = duration;
+            this.elapsed = elapsed;
+            this.running = running;
+            this.paused = paused;
+            this.displayed = displayed;
+        }
+    }
+}
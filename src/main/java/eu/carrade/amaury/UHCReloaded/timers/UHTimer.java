@@ -32,6 +32,7 @@
 
 package eu.carrade.amaury.UHCReloaded.timers;
 
+import eu.carrade.amaury.UHCReloaded.UHCReloaded;
 import eu.carrade.amaury.UHCReloaded.events.TimerEndsEvent;
 import eu.carrade.amaury.UHCReloaded.events.TimerStartsEvent;
 import fr.zcraft.zlib.components.i18n.I;
@@ -42,6 +43,7 @@ import org.bukkit.ChatColor;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -52,6 +54,7 @@ import java.util.UUID;
 public class UHTimer
 {
     private static final NumberFormat formatter = new DecimalFormat("00");
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
 
     private UUID id;
     private String name;
@@ -59,22 +62,17 @@ public class UHTimer
     private Boolean running = false;
     private Boolean displayed = false;
 
-    private Long startTime = 0L;
+    private long startTime = 0L; // System.nanoTime()
     private Integer duration = 0; // seconds
 
-    // Cached values
-    private Integer hoursLeft = 0;
-    private Integer minutesLeft = 0;
-    private Integer secondsLeft = 0;
-
-    // Old values, used by the scoreboard to reset the scores.
-    private Integer oldHoursLeft = -1;
-    private Integer oldMinutesLeft = -1;
-    private Integer oldSecondsLeft = -1;
+    // Seconds left displayed while the timer is not running: the full duration before the
+    // start, and zero after the end.
+    private int idleSecondsLeft = 0;
+    private boolean everStarted = false;
 
     // Pause
     private Boolean paused = false;
-    private Long pauseTime = 0L;
+    private long pauseTime = 0L;
 
     // Display this timer following the format "hh:mm:ss"?
     private Boolean displayHoursInTimer = false;
@@ -96,12 +94,11 @@ public class UHTimer
     public void setDuration(int seconds)
     {
         this.duration = seconds;
+        this.idleSecondsLeft = seconds;
 
-        this.hoursLeft = (int) Math.floor(this.duration / 3600);
-        this.minutesLeft = (int) (Math.floor(this.duration / 60) - (this.hoursLeft * 60));
-        this.secondsLeft = this.duration - (this.minutesLeft * 60 + this.hoursLeft * 3600);
+        this.displayHoursInTimer = (seconds >= 3600);
 
-        this.displayHoursInTimer = (this.hoursLeft != 0);
+        schedule();
     }
 
     /**
@@ -110,9 +107,28 @@ public class UHTimer
      * If this is called while the timer is running, the timer is restarted.
      */
     public void start()
+    {
+        start(System.nanoTime());
+    }
+
+    /**
+     * Starts this timer, as if it was started at the given time.
+     *
+     * @param startTime The start time, as a {@link System#nanoTime()} timestamp.
+     */
+    private void start(long startTime)
     {
         this.running = true;
-        this.startTime = System.currentTimeMillis();
+        this.everStarted = true;
+        this.startTime = startTime;
+
+        if (paused)
+            this.pauseTime = System.nanoTime();
+
+        if (isRegistered())
+            UHCReloaded.get().getTimerManager().timerStarted(this);
+
+        schedule();
 
         Bukkit.getServer().getPluginManager().callEvent(new TimerStartsEvent(this));
     }
@@ -132,6 +148,9 @@ public class UHTimer
      */
     private void stop(boolean wasUp)
     {
+        // Computed before the event, as its listeners may change the duration of the next round.
+        final long deadline = getDeadline();
+
         final TimerEndsEvent event = new TimerEndsEvent(this, wasUp);
         Bukkit.getServer().getPluginManager().callEvent(event);
 
@@ -139,50 +158,90 @@ public class UHTimer
         {
             if (event.getRestart())
             {
-                start();
+                // If the timer was up, the next round starts exactly at the end of this one,
+                // so successive rounds (like episodes) don't drift.
+                if (wasUp)
+                    start(deadline);
+                else
+                    start();
             }
             else
             {
                 this.running = false;
                 this.startTime = 0L;
+                this.idleSecondsLeft = 0;
 
-                this.hoursLeft = 0;
-                this.minutesLeft = 0;
-                this.secondsLeft = 0;
-
-                this.oldHoursLeft = 0;
-                this.oldMinutesLeft = 0;
-                this.oldSecondsLeft = 0;
+                UHCReloaded.get().getTimerManager().timerStopped(this);
             }
         }
     }
 
     /**
-     * Updates the timer.
+     * Restores the state of this timer, saved in a previous session. No event is fired.
+     * <p>
+     * Must be called before the registration of this timer.
+     *
+     * @param duration  The duration, in seconds.
+     * @param elapsed   The time elapsed since the start (pauses excluded), in nanoseconds.
+     * @param running   {@code true} if the timer was running.
+     * @param paused    {@code true} if the timer was paused.
+     * @param displayed {@code true} if the timer was displayed.
      */
-    public void update()
+    void restore(int duration, long elapsed, boolean running, boolean paused, boolean displayed)
     {
-        if (running && !paused)
-        {
-            oldHoursLeft = hoursLeft;
-            oldMinutesLeft = minutesLeft;
-            oldSecondsLeft = secondsLeft;
+        setDuration(duration);
 
-            long timeSinceStart = System.currentTimeMillis() - this.startTime; // ms
+        final long now = System.nanoTime();
 
-            if (timeSinceStart >= getDuration() * 1000)
-            {
-                stop(true);
-            }
-            else
-            {
-                int countSecondsLeft = (int) (getDuration() - Math.floor(timeSinceStart / 1000));
+        this.running = running;
+        this.everStarted = running;
+        this.startTime = now - elapsed;
+        this.paused = running && paused;
+        this.pauseTime = this.paused ? now : 0L;
+        this.displayed = displayed;
+    }
 
-                secondsLeft = countSecondsLeft % 60;
-                minutesLeft = (countSecondsLeft % 3600) / 60;
-                hoursLeft = (int) Math.floor(countSecondsLeft / 3600);
-            }
-        }
+    /**
+     * Called by the {@link TimerManager} when the deadline of this timer is reached.
+     */
+    void onDeadline()
+    {
+        if (!running || paused) return;
+
+        if (System.nanoTime() >= getDeadline())
+            stop(true);
+        else
+            schedule();
+    }
+
+    /**
+     * Schedules (or un-schedules, if not running) the deadline of this timer.
+     */
+    private void schedule()
+    {
+        if (!isRegistered()) return;
+
+        if (running && !paused)
+            UHCReloaded.get().getTimerManager().scheduleDeadline(this, getDeadline());
+        else
+            UHCReloaded.get().getTimerManager().cancelDeadline(this);
+    }
+
+    /**
+     * @return The time when this timer will be up, as a {@link System#nanoTime()} timestamp
+     * (meaningless if the timer is not running).
+     */
+    long getDeadline()
+    {
+        return startTime + duration * SECOND;
+    }
+
+    /**
+     * @return The time elapsed since the start of this timer, pauses excluded, in nanoseconds.
+     */
+    long getElapsedTime()
+    {
+        return (paused ? pauseTime : System.nanoTime()) - startTime;
     }
 
     /**
@@ -200,18 +259,20 @@ public class UHTimer
             if (pause && !this.paused)
             {
                 this.paused = true;
-                this.pauseTime = System.currentTimeMillis();
+                this.pauseTime = System.nanoTime();
             }
 
             if (!pause && this.paused)
             {
                 // We have to add to the time of the start of the episode the elapsed time
                 // during the pause.
-                this.startTime += (System.currentTimeMillis() - this.pauseTime);
-                this.pauseTime = 0l;
+                this.startTime += (System.nanoTime() - this.pauseTime);
+                this.pauseTime = 0L;
 
                 this.paused = false;
             }
+
+            schedule();
         }
     }
 
@@ -233,6 +294,12 @@ public class UHTimer
     protected void setRegistered(Boolean registered)
     {
         this.registered = registered;
+
+        if (registered && running)
+        {
+            UHCReloaded.get().getTimerManager().timerStarted(this);
+            schedule();
+        }
     }
 
     /**
@@ -286,6 +353,9 @@ public class UHTimer
     public void setDisplayed(Boolean displayed)
     {
         this.displayed = displayed;
+
+        if (isRegistered())
+            UHCReloaded.get().getTimerManager().markDirty();
     }
 
     /**
@@ -298,6 +368,18 @@ public class UHTimer
         return duration;
     }
 
+    /**
+     * Returns the number of seconds left until the end of this countdown, in total.
+     *
+     * @return The number of seconds left.
+     */
+    public int getTotalSecondsLeft()
+    {
+        if (!running) return idleSecondsLeft;
+
+        return (int) Math.max(duration - Math.floorDiv(getElapsedTime(), SECOND), 0);
+    }
+
     /**
      * Returns the number of hours left until the end of this countdown.
      *
@@ -305,7 +387,7 @@ public class UHTimer
      */
     public Integer getHoursLeft()
     {
-        return hoursLeft;
+        return getTotalSecondsLeft() / 3600;
     }
 
     /**
@@ -315,7 +397,7 @@ public class UHTimer
      */
     public Integer getMinutesLeft()
     {
-        return minutesLeft;
+        return (getTotalSecondsLeft() % 3600) / 60;
     }
 
     /**
@@ -325,43 +407,60 @@ public class UHTimer
      */
     public Integer getSecondsLeft()
     {
-        return secondsLeft;
+        return getTotalSecondsLeft() % 60;
     }
 
     /**
-     * Returns the number of hours left until the end of this countdown, before the last update.
+     * Returns the number of seconds left, in total, one second before; i.e. the previously
+     * displayed value.
+     *
+     * @return The old number of seconds left, or -1 if the timer was never started.
+     */
+    private int getOldTotalSecondsLeft()
+    {
+        if (!everStarted) return -1;
+        if (!running) return 0;
+
+        return Math.min(getTotalSecondsLeft() + 1, duration);
+    }
+
+    /**
+     * Returns the number of hours left until the end of this countdown, one second before.
      * <p>
      * Used by the scoreboard, to remove the old score.
      *
-     * @return The old number of hours left, or -1 if the timer was never updated.
+     * @return The old number of hours left, or -1 if the timer was never started.
      */
     public Integer getOldHoursLeft()
     {
-        return oldHoursLeft;
+        final int old = getOldTotalSecondsLeft();
+        return old < 0 ? -1 : old / 3600;
     }
 
     /**
-     * Returns the number of minutes left until the end of this countdown, before the last update.
+     * Returns the number of minutes left until the end of this countdown, one second before.
      * <p>
      * Used by the scoreboard, to remove the old score.
      *
-     * @return The old number of minutes left, or -1 if the timer was never updated.
+     * @return The old number of minutes left, or -1 if the timer was never started.
      */
     public Integer getOldMinutesLeft()
     {
-        return oldMinutesLeft;
+        final int old = getOldTotalSecondsLeft();
+        return old < 0 ? -1 : (old % 3600) / 60;
     }
 
     /**
-     * Returns the number of seconds left until the end of this countdown, before the last update.
+     * Returns the number of seconds left until the end of this countdown, one second before.
      * <p>
      * Used by the scoreboard, to remove the old score.
      *
-     * @return The old number of seconds left, or -1 if the timer was never updated.
+     * @return The old number of seconds left, or -1 if the timer was never started.
      */
     public Integer getOldSecondsLeft()
     {
-        return oldSecondsLeft;
+        final int old = getOldTotalSecondsLeft();
+        return old < 0 ? -1 : old % 60;
     }
 
     /**
@@ -398,15 +497,17 @@ public class UHTimer
 
     public String toString(boolean displayHours)
     {
+        final int secondsLeft = getTotalSecondsLeft();
+
         if (displayHours)
         {
             /// Timer. {0} = hours; {1} = minutes; {2} = seconds.
-            return I.t("{0}{gray}:{white}{1}{gray}:{white}{2}", formatter.format(hoursLeft), formatter.format(minutesLeft), formatter.format(secondsLeft));
+            return I.t("{0}{gray}:{white}{1}{gray}:{white}{2}", formatter.format(secondsLeft / 3600), formatter.format((secondsLeft % 3600) / 60), formatter.format(secondsLeft % 60));
         }
         else
         {
             /// Timer. {0} = minutes; {1} = seconds.
-            return I.t("{white}{0}{gray}:{white}{1}", formatter.format(minutesLeft), formatter.format(secondsLeft));
+            return I.t("{white}{0}{gray}:{white}{1}", formatter.format((secondsLeft % 3600) / 60), formatter.format(secondsLeft % 60));
         }
     }
 
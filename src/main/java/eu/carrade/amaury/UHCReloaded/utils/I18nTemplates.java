@@ -0,0 +1,288 @@
+/*
+ * Copyright or © or Copr. Amaury Carrade (2014 - 2016)
+ *
+ * http://amaury.carrade.eu
+ *
+ * This software is governed by the CeCILL-B license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-B
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ *
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ *
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-B license and that you accept its terms.
+ */
+package eu.carrade.amaury.UHCReloaded.utils;
+
+import fr.zcraft.zlib.components.i18n.I;
+import fr.zcraft.zlib.components.i18n.I18n;
+
+import java.text.NumberFormat;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Drop-in replacements for {@link I#t(String, Object...)} and {@link I#tn(String, String, int,
+ * Object...)}, for the texts rendered very frequently (sidebar, MOTD, players list...).
+ *
+ * <p>Each message is translated and formatted by zLib only once, with markers instead of the
+ * parameters; the result is split into literal segments and parameters slots. Rendering is then
+ * a simple concatenation, without pattern parsing.</p>
+ *
+ * <p>The compiled templates are dropped when the primary locale changes, and by {@link #clear()}.
+ * </p>
+ */
+public final class I18nTemplates
+{
+    private I18nTemplates() {}
+
+    // Private-use characters used to mark the parameters in the formatted messages.
+    private static final char SLOT_MARKER = '\uE000';
+    private static final int MAX_SLOTS = 0x100;
+
+    private static final int MAX_PLURAL_TEMPLATES = 512;
+
+    private static final Map<String, Template> templates = new ConcurrentHashMap<>();
+
+    // Plural templates are compiled per count, as the plural form depends on the locale rules.
+    private static final Map<PluralKey, Template> pluralTemplates = Collections.synchronizedMap(
+            new LinkedHashMap<PluralKey, Template>(64, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<PluralKey, Template> eldest)
+                {
+                    return size() > MAX_PLURAL_TEMPLATES;
+                }
+            }
+    );
+
+    // Numbers are formatted like MessageFormat does.
+    private static final ThreadLocal<NumberFormat> numberFormat = ThreadLocal.withInitial(NumberFormat::getInstance);
+
+    private static volatile Locale locale = null;
+
+
+    /**
+     * Translates and formats a message, like {@link I#t(String, Object...)}.
+     *
+     * @param text       The message to translate.
+     * @param parameters The parameters.
+     *
+     * @return The translated message.
+     */
+    public static String t(String text, Object... parameters)
+    {
+        checkLocale();
+
+        Template template = templates.get(text);
+        if (template == null || template.getSlotsCount() < parameters.length)
+        {
+            template = compile(text, null, 0, parameters.length);
+            templates.put(text, template);
+        }
+
+        return template.render(parameters);
+    }
+
+    /**
+     * Translates and formats a message with plurals, like
+     * {@link I#tn(String, String, int, Object...)}.
+     *
+     * @param singular   The singular form of the message to translate.
+     * @param plural     The plural form of the message to translate.
+     * @param count      The count used to choose the plural form.
+     * @param parameters The parameters.
+     *
+     * @return The translated message.
+     */
+    public static String tn(String singular, String plural, int count, Object... parameters)
+    {
+        checkLocale();
+
+        final PluralKey key = new PluralKey(singular, plural, count);
+
+        Template template = pluralTemplates.get(key);
+        if (template == null || template.getSlotsCount() < parameters.length)
+        {
+            template = compile(singular, plural, count, parameters.length);
+            pluralTemplates.put(key, template);
+        }
+
+        return template.render(parameters);
+    }
+
+    /**
+     * Drops all the compiled templates, e.g. when the translations are reloaded.
+     */
+    public static void clear()
+    {
+        templates.clear();
+        pluralTemplates.clear();
+    }
+
+
+    private static void checkLocale()
+    {
+        final Locale primaryLocale = I18n.getPrimaryLocale();
+
+        if (!Objects.equals(primaryLocale, locale))
+        {
+            clear();
+            locale = primaryLocale;
+        }
+    }
+
+    private static Template compile(String singular, String plural, int count, int slotsCount)
+    {
+        if (slotsCount > MAX_SLOTS)
+            throw new IllegalArgumentException("Too many parameters: " + slotsCount);
+
+        final Object[] markers = new Object[slotsCount];
+        for (int i = 0; i < slotsCount; i++)
+            markers[i] = String.valueOf((char) (SLOT_MARKER + i));
+
+        final String formatted = plural == null ? I.t(singular, markers) : I.tn(singular, plural, count, markers);
+
+        return new Template(formatted, slotsCount);
+    }
+
+    private static String format(Object parameter)
+    {
+        if (parameter instanceof String)
+            return (String) parameter;
+        else if (parameter instanceof Number)
+            return numberFormat.get().format(parameter);
+        else
+            return String.valueOf(parameter);
+    }
+
+
+    /**
+     * A formatted message, split into literal segments and parameters slots.
+     */
+    private static final class Template
+    {
+        private final String[] literals;
+        private final int[] slots;
+        private final int slotsCount;
+        private final int literalsLength;
+
+        private Template(String formatted, int slotsCount)
+        {
+            this.slotsCount = slotsCount;
+
+            int slotsInMessage = 0;
+            for (int i = 0; i < formatted.length(); i++)
+                if (isMarker(formatted.charAt(i), slotsCount)) slotsInMessage++;
+
+            literals = new String[slotsInMessage + 1];
+            slots = new int[slotsInMessage];
+
+            int slot = 0;
+            int literalStart = 0;
+
+            for (int i = 0; i < formatted.length(); i++)
+            {
+                final char c = formatted.charAt(i);
+
+                if (isMarker(c, slotsCount))
+                {
+                    literals[slot] = formatted.substring(literalStart, i);
+                    slots[slot] = c - SLOT_MARKER;
+
+                    slot++;
+                    literalStart = i + 1;
+                }
+            }
+
+            literals[slot] = formatted.substring(literalStart);
+
+            int length = 0;
+            for (String literal : literals) length += literal.length();
+            literalsLength = length;
+        }
+
+        private static boolean isMarker(char c, int slotsCount)
+        {
+            return c >= SLOT_MARKER && c < SLOT_MARKER + slotsCount;
+        }
+
+        int getSlotsCount()
+        {
+            return slotsCount;
+        }
+
+        String render(Object[] parameters)
+        {
+            if (slots.length == 0)
+                return literals[0];
+
+            final StringBuilder builder = new StringBuilder(literalsLength + 16 * slots.length);
+
+            builder.append(literals[0]);
+            for (int i = 0; i < slots.length; i++)
+            {
+                // Missing parameters are kept as is, like MessageFormat does.
+                if (slots[i] < parameters.length)
+                    builder.append(format(parameters[slots[i]]));
+                else
+                    builder.append('{').append(slots[i]).append('}');
+                builder.append(literals[i + 1]);
+            }
+
+            return builder.toString();
+        }
+    }
+
+    private static final class PluralKey
+    {
+        private final String singular;
+        private final String plural;
+        private final int count;
+
+        private PluralKey(String singular, String plural, int count)
+        {
+            this.singular = singular;
+            this.plural = plural;
+            this.count = count;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (!(o instanceof PluralKey)) return false;
+
+            final PluralKey other = (PluralKey) o;
+            return count == other.count && singular.equals(other.singular) && plural.equals(other.plural);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * (31 * singular.hashCode() + plural.hashCode()) + count;
+        }
+    }
+}